@@ -0,0 +1,15 @@
+#!/usr/bin/env sh
+# Buduje aplikację i benchmarki, a wyniki zapisuje w results/ pod skrótem bieżącego commita,
+# żeby przebiegi z różnych commitów można było porównać (np. na https://jmh.morethan.io).
+set -e
+
+cd "$(dirname "$0")"
+COMMIT=$(git rev-parse --short HEAD)
+mkdir -p results
+
+../mvnw -q -f ../pom.xml install -DskipTests
+../mvnw -q package
+
+java -jar target/benchmarks.jar -rf json -rff "results/jmh-$COMMIT.json" "$@"
+java -cp target/benchmarks.jar org.example.filemonitoringapi.benchmarks.WriterLatencyHarness \
+    --commit="$COMMIT" --output="results/latency-$COMMIT.json"
@@ -0,0 +1,38 @@
+package org.example.filemonitoringapi.benchmarks;
+
+import org.example.filemonitoringapi.FileMonitoringApiApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Uruchamia aplikację z profilem {@code benchmark} (H2 w pamięci, bez serwera HTTP, SMTP na localhost:3025).
+ */
+public final class BenchmarkApplication {
+
+    private BenchmarkApplication() {
+    }
+
+    public static ConfigurableApplicationContext start(String... properties) {
+        return new SpringApplicationBuilder(FileMonitoringApiApplication.class)
+                .profiles("benchmark")
+                .properties(properties)
+                .run();
+    }
+
+    public static void deleteRecursively(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
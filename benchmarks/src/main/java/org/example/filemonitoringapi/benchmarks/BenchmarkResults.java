@@ -0,0 +1,66 @@
+package org.example.filemonitoringapi.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Wspólny format wyników harnessów: płaski obiekt JSON o stałych kluczach, zapisywany pod nazwą z commitem.
+ */
+public final class BenchmarkResults {
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private BenchmarkResults() {
+    }
+
+    public static Map<String, String> parseOptions(String[] args) {
+        return Arrays.stream(args)
+                .filter(arg -> arg.startsWith("--") && arg.contains("="))
+                .collect(Collectors.toMap(arg -> arg.substring(2, arg.indexOf('=')), arg -> arg.substring(arg.indexOf('=') + 1)));
+    }
+
+    /**
+     * @return percentyle p50, p90, p99, p99.9 i maksimum w milisekundach, z prefiksem {@code prefix}
+     */
+    public static Map<String, Object> percentiles(String prefix, long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        Map<String, Object> summary = new LinkedHashMap<>();
+        for (double percentile : PERCENTILES) {
+            String name = String.valueOf(percentile).replace(".0", "").replace('.', '_');
+            summary.put(prefix + "p" + name + "Millis", sorted.length == 0 ? null : toMillis(sorted[percentileIndex(sorted.length, percentile)]));
+        }
+        summary.put(prefix + "maxMillis", sorted.length == 0 ? null : toMillis(sorted[sorted.length - 1]));
+        return summary;
+    }
+
+    public static void write(Path output, Map<String, Object> result) throws IOException {
+        String json = result.entrySet().stream()
+                .map(entry -> "  \"" + entry.getKey() + "\": " + toJson(entry.getValue()))
+                .collect(Collectors.joining(",\n", "{\n", "\n}\n"));
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        Files.writeString(output, json);
+        System.out.print(json);
+    }
+
+    private static String toJson(Object value) {
+        if (value == null || value instanceof Number) {
+            return String.valueOf(value);
+        }
+        return "\"" + value + "\"";
+    }
+
+    private static int percentileIndex(int size, double percentile) {
+        return (int) Math.min(size - 1, Math.ceil(percentile / 100 * size) - 1);
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,89 @@
+package org.example.filemonitoringapi.benchmarks;
+
+import org.example.filemonitoringapi.exception.FileWatcherRegistrationException;
+import org.example.filemonitoringapi.file.FileChangesPersistedEvent;
+import org.example.filemonitoringapi.listener.FileEventListener;
+import org.example.filemonitoringapi.listener.FileWatcherService;
+import org.example.filemonitoringapi.listener.WatchEngineType;
+import org.example.filemonitoringapi.subscription.SubscriptionRepository;
+import org.example.filemonitoringapi.subscription.model.DeliveryPolicy;
+import org.example.filemonitoringapi.subscription.model.Subscription;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pełna obsługa modyfikacji pliku: odczyt dopisanych linii, kolejka write-behind i zapis partii w H2
+ * aż do opublikowania {@link FileChangesPersistedEvent}. Zdarzenie jest zgłaszane przez
+ * {@link FileEventListener#onFileModified(String)} z wyłączoną koalescencją, więc przetworzenie
+ * odbywa się w wątku benchmarku.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileModificationBenchmark {
+
+    @Param({"1", "100", "10000"})
+    public int appendedLines;
+
+    private ConfigurableApplicationContext context;
+    private FileEventListener fileEventListener;
+    private final Semaphore persisted = new Semaphore(0);
+    private Path directory;
+    private Path file;
+    private String watchedPath;
+    private byte[] appendedContent;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, FileWatcherRegistrationException {
+        context = BenchmarkApplication.start("file-monitoring.watcher.coalesce-window=0");
+        context.addApplicationListener(ApplicationListener.forPayload(
+                (FileChangesPersistedEvent event) -> persisted.release(event.getChanges().size())));
+        FileWatcherService fileWatcherService = context.getBean(FileWatcherService.class);
+        fileEventListener = fileWatcherService;
+
+        directory = Files.createTempDirectory("file-modification-benchmark");
+        file = Files.createFile(directory.resolve("app.log"));
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < appendedLines; i++) {
+            content.append("2024-01-01 12:00:00 INFO  zdarzenie ").append(i).append('\n');
+        }
+        watchedPath = file.toRealPath().toString();
+        appendedContent = content.toString().getBytes(StandardCharsets.UTF_8);
+
+        Subscription subscription = Subscription.builder()
+                .filePath(file.toString())
+                .watchedPath(watchedPath)
+                .email("benchmark@example.org")
+                .jobId("benchmark")
+                .active(true)
+                .watchEngine(WatchEngineType.POLLING)
+                .deliveryPolicy(DeliveryPolicy.DAILY)
+                .build();
+        fileWatcherService.registerFileWatcher(context.getBean(SubscriptionRepository.class).save(subscription));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        BenchmarkApplication.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public void appendAndPersist() throws IOException, InterruptedException {
+        Files.write(file, appendedContent, StandardOpenOption.APPEND);
+        fileEventListener.onFileModified(watchedPath);
+        persisted.acquire();
+    }
+}
@@ -0,0 +1,86 @@
+package org.example.filemonitoringapi.benchmarks;
+
+import org.example.filemonitoringapi.config.FileMonitoringProperties;
+import org.example.filemonitoringapi.exception.FileReadException;
+import org.example.filemonitoringapi.listener.FileTailReader;
+import org.example.filemonitoringapi.listener.TailChunk;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.util.unit.DataSize;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Odczyt dopisanego fragmentu pliku dla różnych rozmiarów pliku i fragmentu, przez
+ * {@code FileChannel.read} (positioned) i {@code FileChannel.map} (mapped).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileTailReaderBenchmark {
+    private static final byte[] LINE = "2024-01-01 12:00:00 INFO  przykładowa linia logu aplikacji\n"
+            .getBytes(StandardCharsets.UTF_8);
+
+    @Param({"1MB", "64MB", "512MB"})
+    public String fileSize;
+
+    @Param({"4KB", "1MB"})
+    public String appendedSize;
+
+    @Param({"positioned", "mapped"})
+    public String readMode;
+
+    private Path directory;
+    private String filePath;
+    private FileTailReader fileTailReader;
+    private long offset;
+    private String fileKey;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, FileReadException {
+        FileMonitoringProperties properties = new FileMonitoringProperties();
+        properties.getReader().setMappedThreshold("mapped".equals(readMode) ? DataSize.ofBytes(0) : DataSize.ofTerabytes(1));
+        fileTailReader = new FileTailReader(properties);
+
+        directory = Files.createTempDirectory("tail-reader-benchmark");
+        Path file = directory.resolve("app.log");
+        writeLines(file, DataSize.parse(fileSize).toBytes());
+        filePath = file.toString();
+        offset = Math.max(0, Files.size(file) - DataSize.parse(appendedSize).toBytes());
+        offset -= offset % LINE.length;
+        fileKey = fileTailReader.currentFileKey(filePath);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkApplication.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public void readAppended(Blackhole blackhole) throws FileReadException {
+        long position = offset;
+        TailChunk chunk;
+        do {
+            chunk = fileTailReader.readAppended(filePath, position, fileKey);
+            blackhole.consume(chunk.getContent());
+            position = chunk.getOffset();
+        } while (chunk.isHasMore());
+    }
+
+    static void writeLines(Path file, long size) throws IOException {
+        try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16)) {
+            for (long written = 0; written < size; written += LINE.length) {
+                output.write(LINE);
+            }
+        }
+    }
+}
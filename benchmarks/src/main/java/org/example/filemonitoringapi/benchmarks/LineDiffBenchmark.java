@@ -0,0 +1,70 @@
+package org.example.filemonitoringapi.benchmarks;
+
+import org.example.filemonitoringapi.listener.LineDelta;
+import org.example.filemonitoringapi.listener.LineDiffEngine;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link LineDiffEngine} w porównaniu z dawnym wyznaczaniem nowej treści przez {@code lastIndexOf}
+ * ostatnio widzianej linii. Dawna metoda działa tylko dla dopisań - przy wstawieniu lub edycji
+ * w środku pliku zwraca błędny wynik, więc dla tych scenariuszy mierzy jedynie koszt.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LineDiffBenchmark {
+
+    @Param({"1000", "20000"})
+    public int lineCount;
+
+    @Param({"append", "insert", "edit"})
+    public String scenario;
+
+    private final LineDiffEngine lineDiffEngine = new LineDiffEngine();
+    private long[] previousHashes;
+    private String previousLastLine;
+    private List<String> currentLines;
+    private String currentContent;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        List<String> previousLines = new ArrayList<>(lineCount);
+        for (int i = 0; i < lineCount; i++) {
+            previousLines.add("2024-01-01 12:00:" + (i % 60) + " INFO  zdarzenie " + random.nextInt(lineCount / 10 + 1));
+        }
+        currentLines = new ArrayList<>(previousLines);
+        switch (scenario) {
+            case "append" -> currentLines.addAll(List.of("dopisana 1", "dopisana 2", "dopisana 3"));
+            case "insert" -> currentLines.addAll(lineCount / 2, List.of("wstawiona 1", "wstawiona 2"));
+            case "edit" -> {
+                for (int i = 0; i < 10; i++) {
+                    currentLines.set(random.nextInt(lineCount), "zmieniona " + i);
+                }
+            }
+            default -> throw new IllegalArgumentException("Nieznany scenariusz: " + scenario);
+        }
+        previousHashes = lineDiffEngine.hashLines(previousLines);
+        previousLastLine = previousLines.get(previousLines.size() - 1);
+        currentContent = String.join("\n", currentLines);
+    }
+
+    @Benchmark
+    public List<LineDelta> lineDiff() {
+        return lineDiffEngine.diff(previousHashes, currentLines);
+    }
+
+    @Benchmark
+    public String legacyLastIndexOf() {
+        int lastLineIndex = currentContent.lastIndexOf(previousLastLine);
+        return lastLineIndex < 0 ? currentContent : currentContent.substring(lastLineIndex + previousLastLine.length());
+    }
+}
@@ -0,0 +1,135 @@
+package org.example.filemonitoringapi.benchmarks;
+
+import org.example.filemonitoringapi.file.FileChangeRepository;
+import org.example.filemonitoringapi.subscription.SubscriptionRepository;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+/**
+ * Opóźnienia zapytań z gorących ścieżek przy dużych tabelach: domyślnie 10M zmian w 10k plikach
+ * (1% jeszcze nie wysłanych) i 100k subskrypcji w plikowej bazie H2 zbudowanej przez migracje Flyway.
+ * Z {@code --drop-indexes=true} mierzy te same zapytania bez indeksów z migracji V2.
+ *
+ * <pre>
+ * java -Xmx4g -cp target/benchmarks.jar org.example.filemonitoringapi.benchmarks.LookupLoadTest \
+ *     --rows=10000000 --commit=$(git rev-parse --short HEAD)
+ * </pre>
+ */
+public class LookupLoadTest {
+    private static final int INSERT_CHUNK = 1_000_000;
+    private static final List<String> V2_INDEXES = List.of("idx_file_change_pending", "idx_file_change_path_id",
+            "idx_subscription_watched_path_active", "idx_subscription_file_path_active", "idx_subscription_active_id");
+
+    private final long rows;
+    private final int files;
+    private final int subscriptions;
+    private final int samples;
+    private final boolean dropIndexes;
+    private final String commit;
+    private final Path output;
+    private final Random random = new Random(42);
+
+    private LookupLoadTest(Map<String, String> options) {
+        this.rows = Long.parseLong(options.getOrDefault("rows", "10000000"));
+        this.files = Integer.parseInt(options.getOrDefault("files", "10000"));
+        this.subscriptions = Integer.parseInt(options.getOrDefault("subscriptions", "100000"));
+        this.samples = Integer.parseInt(options.getOrDefault("samples", "10000"));
+        this.dropIndexes = Boolean.parseBoolean(options.getOrDefault("drop-indexes", "false"));
+        this.commit = options.getOrDefault("commit", "unknown");
+        this.output = Paths.get(options.getOrDefault("output",
+                "results/lookup-" + commit + (dropIndexes ? "-no-indexes" : "") + ".json"));
+    }
+
+    public static void main(String[] args) throws IOException {
+        new LookupLoadTest(BenchmarkResults.parseOptions(args)).run();
+    }
+
+    private void run() throws IOException {
+        Path directory = Files.createTempDirectory("lookup-load-test");
+        ConfigurableApplicationContext context = BenchmarkApplication.start(
+                "spring.datasource.url=jdbc:h2:file:" + directory.resolve("lookup") + ";DB_CLOSE_ON_EXIT=FALSE",
+                "file-monitoring.metrics.backlog-refresh-interval=PT1H");
+        try {
+            JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+            long populateStart = System.nanoTime();
+            populate(jdbcTemplate);
+            long populateMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - populateStart);
+            if (dropIndexes) {
+                V2_INDEXES.forEach(index -> jdbcTemplate.execute("drop index if exists " + index));
+            }
+            jdbcTemplate.execute("analyze");
+
+            FileChangeRepository fileChangeRepository = context.getBean(FileChangeRepository.class);
+            SubscriptionRepository subscriptionRepository = context.getBean(SubscriptionRepository.class);
+            PageRequest page = PageRequest.of(0, 500);
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("commit", commit);
+            result.put("rows", rows);
+            result.put("files", files);
+            result.put("subscriptions", subscriptions);
+            result.put("indexes", !dropIndexes);
+            result.put("populateMillis", populateMillis);
+            result.putAll(measure("findByJobId.", index ->
+                    subscriptionRepository.findByJobId("job-" + (1 + random.nextInt(subscriptions)))));
+            result.putAll(measure("findMinDeliveredChangeId.", index ->
+                    subscriptionRepository.findMinDeliveredChangeId(randomFilePath())));
+            result.putAll(measure("findMaxPendingId.", index ->
+                    fileChangeRepository.findMaxPendingId(randomFilePath())));
+            result.putAll(measure("findPendingPage.", index ->
+                    fileChangeRepository.findPendingPage(randomFilePath(), 0L, Long.MAX_VALUE, page)));
+            result.putAll(measure("findByFilePathAfterId.", index ->
+                    fileChangeRepository.findByFilePathAfterId(randomFilePath(), rows - rows / 100, page)));
+            BenchmarkResults.write(output, result);
+        } finally {
+            context.close();
+            BenchmarkApplication.deleteRecursively(directory);
+        }
+    }
+
+    private void populate(JdbcTemplate jdbcTemplate) {
+        long notifiedRows = rows - rows / 100;
+        for (long from = 1; from <= rows; from += INSERT_CHUNK) {
+            long to = Math.min(rows, from + INSERT_CHUNK - 1);
+            jdbcTemplate.update("insert into file_change (id, file_path, content, change_time, last_notification_sent, change_type) " +
+                    "select x, concat('/var/log/app-', mod(x, ?), '.log'), concat('linia ', x), " +
+                    "dateadd('SECOND', x, timestamp '2024-01-01 00:00:00'), " +
+                    "case when x <= ? then timestamp '2024-06-01 00:00:00' end, 'APPENDED' " +
+                    "from system_range(?, ?)", files, notifiedRows, from, to);
+        }
+        jdbcTemplate.update("insert into subscription (id, file_path, watched_path, email, job_id, active, " +
+                "last_delivered_change_id, delivery_policy) " +
+                "select x, concat('/var/log/app-', mod(x, ?), '.log'), concat('/var/log/app-', mod(x, ?), '.log'), " +
+                "'subskrybent@example.org', concat('job-', x), true, ?, 'DAILY' from system_range(1, ?)",
+                files, files, notifiedRows, subscriptions);
+    }
+
+    private Map<String, Object> measure(String prefix, IntConsumer query) {
+        for (int i = 0; i < Math.min(samples, 1000); i++) {
+            query.accept(i);
+        }
+        long[] nanos = new long[samples];
+        for (int i = 0; i < samples; i++) {
+            long start = System.nanoTime();
+            query.accept(i);
+            nanos[i] = System.nanoTime() - start;
+        }
+        return BenchmarkResults.percentiles(prefix, nanos);
+    }
+
+    private String randomFilePath() {
+        return "/var/log/app-" + random.nextInt(files) + ".log";
+    }
+}
@@ -0,0 +1,89 @@
+package org.example.filemonitoringapi.benchmarks;
+
+import org.example.filemonitoringapi.email.OutboxMessageRepository;
+import org.example.filemonitoringapi.file.FileChange;
+import org.example.filemonitoringapi.file.FileChangeRepository;
+import org.example.filemonitoringapi.notification.NotificationService;
+import org.example.filemonitoringapi.subscription.SubscriptionRepository;
+import org.example.filemonitoringapi.subscription.model.DeliveryPolicy;
+import org.example.filemonitoringapi.subscription.model.Subscription;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Doręczenie zaległych zmian: stronicowany odczyt zaległości, budowa podsumowania, zapis do outboxa
+ * i przesunięcie kursorów subskrybentów. Każda iteracja zaczyna od świeżej zaległości w H2.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, batchSize = 1)
+@Measurement(iterations = 10, batchSize = 1)
+@Fork(1)
+public class NotificationBenchmark {
+    private static final String FILE_PATH = "/benchmark/app.log";
+
+    @Param({"1000", "10000", "100000"})
+    public int backlogSize;
+
+    @Param({"1", "100"})
+    public int subscriberCount;
+
+    private ConfigurableApplicationContext context;
+    private NotificationService notificationService;
+    private FileChangeRepository fileChangeRepository;
+    private SubscriptionRepository subscriptionRepository;
+    private OutboxMessageRepository outboxMessageRepository;
+    private List<Subscription> subscriptions;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        notificationService = context.getBean(NotificationService.class);
+        fileChangeRepository = context.getBean(FileChangeRepository.class);
+        subscriptionRepository = context.getBean(SubscriptionRepository.class);
+        outboxMessageRepository = context.getBean(OutboxMessageRepository.class);
+
+        List<Subscription> created = new ArrayList<>();
+        for (int i = 0; i < subscriberCount; i++) {
+            created.add(Subscription.builder()
+                    .filePath(FILE_PATH)
+                    .email("subskrybent" + i + "@example.org")
+                    .jobId("benchmark-" + i)
+                    .active(true)
+                    .deliveryPolicy(DeliveryPolicy.DAILY)
+                    .build());
+        }
+        subscriptionRepository.saveAll(created);
+    }
+
+    @Setup(Level.Iteration)
+    public void prepareBacklog() {
+        outboxMessageRepository.deleteAllInBatch();
+        fileChangeRepository.deleteAllInBatch();
+        List<FileChange> backlog = new ArrayList<>(backlogSize);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < backlogSize; i++) {
+            backlog.add(new FileChange(FILE_PATH, "2024-01-01 12:00:00 INFO  zdarzenie " + i, now, null));
+        }
+        fileChangeRepository.saveAll(backlog);
+        subscriptions = subscriptionRepository.findAll();
+        subscriptionRepository.updateLastDeliveredChangeId(subscriptions.stream().map(Subscription::getId).toList(), null);
+        subscriptions = subscriptionRepository.findAll();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void deliverBacklog() {
+        notificationService.deliver(subscriptions);
+    }
+}
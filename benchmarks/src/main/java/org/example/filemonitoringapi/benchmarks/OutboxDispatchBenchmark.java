@@ -0,0 +1,76 @@
+package org.example.filemonitoringapi.benchmarks;
+
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import org.example.filemonitoringapi.email.OutboxDispatcher;
+import org.example.filemonitoringapi.email.OutboxMessage;
+import org.example.filemonitoringapi.email.OutboxMessageRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wysyłka wiadomości z outboxa do lokalnego serwera SMTP GreenMail (port 3025) - od wywołania
+ * {@link OutboxDispatcher#dispatch()} do odebrania wszystkich wiadomości przez serwer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, batchSize = 1)
+@Measurement(iterations = 5, batchSize = 1)
+@Fork(1)
+public class OutboxDispatchBenchmark {
+
+    @Param({"100", "1000"})
+    public int messageCount;
+
+    @Param({"10", "50"})
+    public int batchSize;
+
+    private GreenMail greenMail;
+    private ConfigurableApplicationContext context;
+    private OutboxDispatcher outboxDispatcher;
+    private OutboxMessageRepository outboxMessageRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        greenMail = new GreenMail(ServerSetupTest.SMTP);
+        greenMail.start();
+        context = BenchmarkApplication.start(
+                "file-monitoring.mail.batch-size=" + batchSize,
+                "file-monitoring.mail.dispatch-interval=PT1H");
+        outboxDispatcher = context.getBean(OutboxDispatcher.class);
+        outboxMessageRepository = context.getBean(OutboxMessageRepository.class);
+    }
+
+    @Setup(Level.Iteration)
+    public void fillOutbox() {
+        greenMail.purgeEmailFromAllMailboxes();
+        outboxMessageRepository.deleteAllInBatch();
+        List<OutboxMessage> messages = new ArrayList<>(messageCount);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < messageCount; i++) {
+            messages.add(new OutboxMessage("odbiorca" + i + "@example.org", "Zmiany w pliku",
+                    "2024-01-01 12:00:00 INFO  zdarzenie " + i, now));
+        }
+        outboxMessageRepository.saveAll(messages);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+        greenMail.stop();
+    }
+
+    @Benchmark
+    public void dispatchOutbox() {
+        outboxDispatcher.dispatch();
+        if (!greenMail.waitForIncomingEmail(TimeUnit.MINUTES.toMillis(5), messageCount)) {
+            throw new IllegalStateException("Serwer SMTP nie odebrał " + messageCount + " wiadomości");
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package org.example.filemonitoringapi.benchmarks;
+
+import org.example.filemonitoringapi.exception.FileWatcherRegistrationException;
+import org.example.filemonitoringapi.file.ChangeStore;
+import org.example.filemonitoringapi.file.FileChange;
+import org.example.filemonitoringapi.file.FileChangesPersistedEvent;
+import org.example.filemonitoringapi.listener.FileWatcherService;
+import org.example.filemonitoringapi.listener.WatchEngineType;
+import org.example.filemonitoringapi.subscription.SubscriptionRepository;
+import org.example.filemonitoringapi.subscription.model.DeliveryPolicy;
+import org.example.filemonitoringapi.subscription.model.Subscription;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Syntetyczny zapis do obserwowanych plików ze stałą częstotliwością. Każda linia niesie czas zapisu,
+ * a opóźnienie wykrycia to czas od zapisu do opublikowania {@link FileChangesPersistedEvent} z tą linią.
+ * Po rejestracji obserwatorów raportuje też liczbę wątków i RSS procesu.
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar org.example.filemonitoringapi.benchmarks.WriterLatencyHarness \
+ *     --files=10000 --rate=2000 --duration=PT60S --engine=NATIVE --commit=$(git rev-parse --short HEAD)
+ * </pre>
+ */
+public class WriterLatencyHarness {
+    private final int fileCount;
+    private final int linesPerSecond;
+    private final Duration duration;
+    private final WatchEngineType engine;
+    private final String commit;
+    private final Path output;
+    private final List<Long> latencies = new ArrayList<>();
+    private final AtomicLong writtenLines = new AtomicLong();
+
+    private WriterLatencyHarness(Map<String, String> options) {
+        this.fileCount = Integer.parseInt(options.getOrDefault("files", "100"));
+        this.linesPerSecond = Integer.parseInt(options.getOrDefault("rate", "1000"));
+        this.duration = Duration.parse(options.getOrDefault("duration", "PT30S"));
+        this.engine = WatchEngineType.valueOf(options.getOrDefault("engine", "NATIVE"));
+        this.commit = options.getOrDefault("commit", "unknown");
+        this.output = Paths.get(options.getOrDefault("output", "results/latency-" + commit + ".json"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        new WriterLatencyHarness(BenchmarkResults.parseOptions(args)).run();
+    }
+
+    private void run() throws IOException, FileWatcherRegistrationException, InterruptedException {
+        Path directory = Files.createTempDirectory("writer-latency-harness");
+        ConfigurableApplicationContext context = BenchmarkApplication.start(
+                "file-monitoring.tail-state-cache.max-size=" + Math.max(10_000, fileCount));
+        try {
+            ChangeStore changeStore = context.getBean(ChangeStore.class);
+            context.addApplicationListener(ApplicationListener.forPayload(
+                    (FileChangesPersistedEvent event) -> recordLatencies(event.getChanges(), changeStore, System.nanoTime())));
+
+            List<Path> files = createFiles(directory);
+            long registrationStart = System.nanoTime();
+            registerWatchers(context, files);
+            long registrationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - registrationStart);
+            Map<String, Object> footprint = footprint();
+
+            writeLines(files);
+            awaitDetection(Duration.ofSeconds(30));
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("commit", commit);
+            result.put("engine", engine.name());
+            result.put("files", fileCount);
+            result.put("linesPerSecond", linesPerSecond);
+            result.put("durationSeconds", duration.toSeconds());
+            result.put("registrationMillis", registrationMillis);
+            result.putAll(footprint);
+            result.putAll(summarizeLatencies());
+            BenchmarkResults.write(output, result);
+        } finally {
+            context.close();
+            BenchmarkApplication.deleteRecursively(directory);
+        }
+    }
+
+    private List<Path> createFiles(Path directory) throws IOException {
+        List<Path> files = new ArrayList<>(fileCount);
+        for (int i = 0; i < fileCount; i++) {
+            files.add(Files.createFile(directory.resolve("app-" + i + ".log")).toRealPath());
+        }
+        return files;
+    }
+
+    private void registerWatchers(ConfigurableApplicationContext context, List<Path> files)
+            throws FileWatcherRegistrationException {
+        SubscriptionRepository subscriptionRepository = context.getBean(SubscriptionRepository.class);
+        FileWatcherService fileWatcherService = context.getBean(FileWatcherService.class);
+        List<Subscription> subscriptions = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            subscriptions.add(Subscription.builder()
+                    .filePath(files.get(i).toString())
+                    .watchedPath(files.get(i).toString())
+                    .email("harness@example.org")
+                    .jobId("harness-" + i)
+                    .active(true)
+                    .watchEngine(engine)
+                    .deliveryPolicy(DeliveryPolicy.DAILY)
+                    .build());
+        }
+        for (Subscription subscription : subscriptionRepository.saveAll(subscriptions)) {
+            fileWatcherService.registerFileWatcher(subscription);
+        }
+    }
+
+    private void writeLines(List<Path> files) throws IOException {
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / linesPerSecond;
+        long end = System.nanoTime() + duration.toNanos();
+        long nextWriteAt = System.nanoTime();
+        int fileIndex = 0;
+        while (nextWriteAt < end) {
+            long now = System.nanoTime();
+            if (now < nextWriteAt) {
+                LockSupport.parkNanos(nextWriteAt - now);
+            }
+            String line = writtenLines.incrementAndGet() + " " + System.nanoTime() + "\n";
+            Files.write(files.get(fileIndex), line.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+            fileIndex = (fileIndex + 1) % files.size();
+            nextWriteAt += intervalNanos;
+        }
+    }
+
+    private void recordLatencies(List<FileChange> changes, ChangeStore changeStore, long detectedAt) {
+        List<Long> detected = new ArrayList<>();
+        for (FileChange change : changes) {
+            String content = changeStore.loadContent(change);
+            if (content == null) {
+                continue;
+            }
+            for (String line : content.split("\n")) {
+                int separator = line.indexOf(' ');
+                if (separator > 0) {
+                    detected.add(detectedAt - Long.parseLong(line.substring(separator + 1).trim()));
+                }
+            }
+        }
+        synchronized (latencies) {
+            latencies.addAll(detected);
+        }
+    }
+
+    private void awaitDetection(Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (System.nanoTime() < deadline) {
+            synchronized (latencies) {
+                if (latencies.size() >= writtenLines.get()) {
+                    return;
+                }
+            }
+            Thread.sleep(100);
+        }
+    }
+
+    private Map<String, Object> summarizeLatencies() {
+        long[] detected;
+        synchronized (latencies) {
+            detected = latencies.stream().mapToLong(Long::longValue).toArray();
+        }
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("writtenLines", writtenLines.get());
+        summary.put("detectedLines", detected.length);
+        summary.putAll(BenchmarkResults.percentiles("", detected));
+        return summary;
+    }
+
+    private Map<String, Object> footprint() throws IOException {
+        Map<String, Object> footprint = new LinkedHashMap<>();
+        footprint.put("threads", ManagementFactory.getThreadMXBean().getThreadCount());
+        footprint.put("heapUsedBytes", ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+        Path status = Paths.get("/proc/self/status");
+        if (Files.exists(status)) {
+            Files.readAllLines(status).stream()
+                    .filter(line -> line.startsWith("VmRSS:"))
+                    .findFirst()
+                    .ifPresent(line -> footprint.put("rssBytes", 1024 * Long.parseLong(line.replaceAll("\\D", ""))));
+        }
+        return footprint;
+    }
+}
@@ -1,13 +1,18 @@
 package org.example.filemonitoringapi;
 
+import org.example.filemonitoringapi.config.FileMonitoringProperties;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EnableScheduling
 @EnableAsync
+@EnableCaching
+@EnableConfigurationProperties(FileMonitoringProperties.class)
 public class FileMonitoringApiApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,234 @@
+package org.example.filemonitoringapi.cluster;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import org.example.filemonitoringapi.config.FileMonitoringProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Członkostwo węzła w klastrze oparte na dzierżawach w tabeli {@link ClusterNode}. Każdy węzeł
+ * odnawia swój wpis co {@code heartbeat-interval}, a węzły bez odnowienia dłużej niż {@code lease-ttl}
+ * uznaje się za martwe. Klucze (ścieżki plików) są dzielone na {@code shards} shardów; {@link ConsistentHashRing}
+ * zbudowany z żywych węzłów wskazuje, który węzeł powinien trzymać dany shard, ale właścicielem jest dopiero
+ * węzeł z ważną dzierżawą {@link ShardLease}. Dzierżawę przejmuje się warunkowym UPDATE tylko wtedy, gdy jest
+ * wolna lub wygasła, więc dwa węzły nigdy nie obsługują jednocześnie tego samego shardu. Lokalnie dzierżawa
+ * traci ważność po {@code lease-ttl} od ostatniego odnowienia, zanim mógłby ją przejąć inny węzeł.
+ * Przy wyłączonym klastrze węzeł jest właścicielem wszystkiego.
+ * <p>
+ * Odnowienia działają na własnym wątku {@code cluster-heartbeat-*}, a nie na wspólnym harmonogramie zadań
+ * {@code @Scheduled} - wolna retencja czy przebudowa obserwatorów nie mogą opóźnić ich ponad {@code lease-ttl}.
+ */
+@Component
+public class ClusterMembership {
+    private static final String SHARD_KEY_PREFIX = "shard-";
+
+    private final Logger logger = LoggerFactory.getLogger(ClusterMembership.class);
+    private final ClusterNodeRepository clusterNodeRepository;
+    private final ShardLeaseRepository shardLeaseRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final FileMonitoringProperties.Cluster settings;
+    @Getter
+    private final String nodeId;
+    private volatile ConsistentHashRing ring;
+    private final Map<Integer, Long> heldShards = new ConcurrentHashMap<>();
+    private volatile long leaseDeadline;
+    private ThreadPoolTaskScheduler heartbeatScheduler;
+
+    public ClusterMembership(ClusterNodeRepository clusterNodeRepository, ShardLeaseRepository shardLeaseRepository,
+                             ApplicationEventPublisher eventPublisher, FileMonitoringProperties properties) {
+        this.clusterNodeRepository = clusterNodeRepository;
+        this.shardLeaseRepository = shardLeaseRepository;
+        this.eventPublisher = eventPublisher;
+        this.settings = properties.getCluster();
+        this.nodeId = settings.getNodeId() != null && !settings.getNodeId().isBlank()
+                ? settings.getNodeId()
+                : UUID.randomUUID().toString();
+        this.ring = new ConsistentHashRing(List.of(nodeId), settings.getVirtualNodes());
+    }
+
+    @PostConstruct
+    public void join() {
+        if (settings.isEnabled()) {
+            heartbeat();
+            heartbeatScheduler = new ThreadPoolTaskScheduler();
+            heartbeatScheduler.setThreadNamePrefix("cluster-heartbeat-");
+            heartbeatScheduler.setDaemon(true);
+            heartbeatScheduler.initialize();
+            heartbeatScheduler.scheduleWithFixedDelay(this::heartbeat,
+                    Instant.now().plus(settings.getHeartbeatInterval()), settings.getHeartbeatInterval());
+        }
+    }
+
+    public void heartbeat() {
+        if (!settings.isEnabled()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiredBefore = now.minus(settings.getLeaseTtl());
+        clusterNodeRepository.save(new ClusterNode(nodeId, now));
+        clusterNodeRepository.deleteExpired(expiredBefore);
+
+        List<String> aliveNodes = new ArrayList<>(clusterNodeRepository.findAliveNodeIds(expiredBefore));
+        if (!aliveNodes.contains(nodeId)) {
+            aliveNodes.add(nodeId);
+        }
+        ConsistentHashRing updated = new ConsistentHashRing(aliveNodes, settings.getVirtualNodes());
+        boolean membershipChanged = !updated.getNodes().equals(ring.getNodes());
+        if (membershipChanged) {
+            ring = updated;
+            logger.info("Zmiana składu klastra, węzeł {} widzi węzły: {}", nodeId, updated.getNodes());
+        }
+        boolean leasesLost = renewLeases();
+        if (membershipChanged || leasesLost || !heldShards.keySet().containsAll(getDesiredShards())) {
+            eventPublisher.publishEvent(new OwnershipChangedEvent(updated.getNodes()));
+        }
+    }
+
+    /**
+     * Odnawia wszystkie dzierżawy węzła jednym UPDATE i porzuca te, które w międzyczasie wygasły
+     * lub zostały przejęte (inny {@code fencingToken}).
+     *
+     * @return {@code true}, jeśli węzeł utracił którąś dzierżawę
+     */
+    private synchronized boolean renewLeases() {
+        long renewedAt = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now();
+        shardLeaseRepository.renew(nodeId, now, now.plus(settings.getLeaseTtl()));
+        Map<Integer, Long> stored = findValidLeases();
+        boolean lost = heldShards.entrySet().removeIf(held -> !held.getValue().equals(stored.get(held.getKey())));
+        if (lost) {
+            logger.warn("Węzeł {} utracił dzierżawy części shardów.", nodeId);
+        }
+        // Dzierżawy zapisane pod tym samym identyfikatorem węzła przed restartem.
+        heldShards.putAll(stored);
+        leaseDeadline = renewedAt + settings.getLeaseTtl().toNanos();
+        return lost;
+    }
+
+    /**
+     * Przejmuje dzierżawę shardu, jeśli jest wolna lub wygasła.
+     *
+     * @return {@code true}, jeśli węzeł trzyma dzierżawę
+     */
+    public synchronized boolean acquireShard(int shard) {
+        if (heldShards.containsKey(shard)) {
+            return true;
+        }
+        long claimedAt = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now();
+        if (!shardLeaseRepository.existsById(shard)) {
+            try {
+                shardLeaseRepository.save(new ShardLease(shard, null, null, 0));
+            } catch (DataIntegrityViolationException e) {
+                // Inny węzeł utworzył wpis w tym samym momencie - o dzierżawie rozstrzyga UPDATE poniżej.
+            }
+        }
+        if (shardLeaseRepository.claim(shard, nodeId, now, now.plus(settings.getLeaseTtl())) == 0) {
+            return false;
+        }
+        long fencingToken = shardLeaseRepository.findById(shard).map(ShardLease::getFencingToken).orElseThrow();
+        if (heldShards.isEmpty()) {
+            leaseDeadline = claimedAt + settings.getLeaseTtl().toNanos();
+        }
+        heldShards.put(shard, fencingToken);
+        return true;
+    }
+
+    public synchronized void releaseShard(int shard) {
+        Long fencingToken = heldShards.remove(shard);
+        if (fencingToken != null) {
+            shardLeaseRepository.release(shard, nodeId, fencingToken);
+        }
+    }
+
+    /**
+     * Tokeny ważnych dzierżaw węzła (shard → {@code fencingToken}) odczytane z bazy, a nie z lokalnej kopii.
+     */
+    public Map<Integer, Long> findValidLeases() {
+        LocalDateTime now = LocalDateTime.now();
+        Map<Integer, Long> leases = new HashMap<>();
+        for (ShardLease lease : shardLeaseRepository.findByOwner(nodeId)) {
+            if (lease.getLeaseExpiry() != null && lease.getLeaseExpiry().isAfter(now)) {
+                leases.put(lease.getShard(), lease.getFencingToken());
+            }
+        }
+        return leases;
+    }
+
+    /**
+     * @return token dzierżawy shardu klucza albo pusty wynik, jeśli węzeł nie jest jego właścicielem;
+     * przy wyłączonym klastrze zawsze {@code 0}
+     */
+    public OptionalLong fencingTokenOf(String key) {
+        if (!settings.isEnabled()) {
+            return OptionalLong.of(0);
+        }
+        Long fencingToken = heldShards.get(shardOf(key));
+        return fencingToken != null && System.nanoTime() - leaseDeadline < 0
+                ? OptionalLong.of(fencingToken)
+                : OptionalLong.empty();
+    }
+
+    public boolean isEnabled() {
+        return settings.isEnabled();
+    }
+
+    public boolean isOwner(String key) {
+        return !settings.isEnabled()
+                || (heldShards.containsKey(shardOf(key)) && System.nanoTime() - leaseDeadline < 0);
+    }
+
+    public int shardOf(String key) {
+        return Math.floorMod(key.hashCode(), settings.getShards());
+    }
+
+    /**
+     * Shardy, które według pierścienia powinien trzymać ten węzeł.
+     */
+    public Set<Integer> getDesiredShards() {
+        Set<Integer> desired = new HashSet<>();
+        for (int shard = 0; shard < settings.getShards(); shard++) {
+            if (nodeId.equals(ring.ownerOf(SHARD_KEY_PREFIX + shard))) {
+                desired.add(shard);
+            }
+        }
+        return desired;
+    }
+
+    public Set<Integer> getHeldShards() {
+        return Set.copyOf(heldShards.keySet());
+    }
+
+    public List<String> getNodes() {
+        return ring.getNodes();
+    }
+
+    @PreDestroy
+    public void leave() {
+        if (heartbeatScheduler != null) {
+            heartbeatScheduler.shutdown();
+        }
+        if (settings.isEnabled()) {
+            getHeldShards().forEach(this::releaseShard);
+            clusterNodeRepository.deleteById(nodeId);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package org.example.filemonitoringapi.cluster;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+public class ClusterNode {
+    @Id
+    private String nodeId;
+    private LocalDateTime lastHeartbeat;
+}
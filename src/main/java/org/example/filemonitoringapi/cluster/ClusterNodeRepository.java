@@ -0,0 +1,21 @@
+package org.example.filemonitoringapi.cluster;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface ClusterNodeRepository extends JpaRepository<ClusterNode, String> {
+
+    @Query("select n.nodeId from ClusterNode n where n.lastHeartbeat > :since order by n.nodeId")
+    List<String> findAliveNodeIds(@Param("since") LocalDateTime since);
+
+    @Modifying
+    @Transactional
+    @Query("delete from ClusterNode n where n.lastHeartbeat <= :before")
+    int deleteExpired(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,12 @@
+package org.example.filemonitoringapi.cluster;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class OwnershipChangedEvent {
+    private final List<String> nodes;
+}
@@ -0,0 +1,27 @@
+package org.example.filemonitoringapi.cluster;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Dzierżawa jednego shardu plików. {@code fencingToken} rośnie przy każdym przejęciu shardu przez inny węzeł,
+ * więc węzeł, który utracił dzierżawę (np. po długiej pauzie), nie odnowi jej ani nie zwolni cudzej.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+public class ShardLease {
+    @Id
+    private Integer shard;
+    private String owner;
+    private LocalDateTime leaseExpiry;
+    private long fencingToken;
+}
@@ -0,0 +1,39 @@
+package org.example.filemonitoringapi.cluster;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface ShardLeaseRepository extends JpaRepository<ShardLease, Integer> {
+
+    List<ShardLease> findByOwner(String owner);
+
+    @Modifying
+    @Transactional
+    @Query("update ShardLease l set l.owner = :owner, l.leaseExpiry = :expiry, l.fencingToken = l.fencingToken + 1 " +
+            "where l.shard = :shard and (l.owner is null or l.leaseExpiry < :now)")
+    int claim(@Param("shard") Integer shard,
+              @Param("owner") String owner,
+              @Param("now") LocalDateTime now,
+              @Param("expiry") LocalDateTime expiry);
+
+    @Modifying
+    @Transactional
+    @Query("update ShardLease l set l.leaseExpiry = :expiry where l.owner = :owner and l.leaseExpiry >= :now")
+    int renew(@Param("owner") String owner,
+              @Param("now") LocalDateTime now,
+              @Param("expiry") LocalDateTime expiry);
+
+    @Modifying
+    @Transactional
+    @Query("update ShardLease l set l.owner = null, l.leaseExpiry = null " +
+            "where l.shard = :shard and l.owner = :owner and l.fencingToken = :fencingToken")
+    int release(@Param("shard") Integer shard,
+                @Param("owner") String owner,
+                @Param("fencingToken") long fencingToken);
+}
@@ -0,0 +1,118 @@
+package org.example.filemonitoringapi.cluster;
+
+import org.example.filemonitoringapi.config.FileMonitoringProperties;
+import org.example.filemonitoringapi.exception.FileWatcherRegistrationException;
+import org.example.filemonitoringapi.listener.FileWatcherService;
+import org.example.filemonitoringapi.subscription.SubscriptionRepository;
+import org.example.filemonitoringapi.subscription.model.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Uzgadnia obserwowane pliki z podziałem własności w klastrze: przejmuje subskrypcje plików,
+ * których węzeł stał się właścicielem (np. po awarii innego węzła), i zwalnia te, które przeszły
+ * do innych węzłów. Uruchamiany przy zmianie składu klastra i okresowo, żeby wyłapać subskrypcje
+ * utworzone na innych węzłach. Zmianę własności obsługuje na {@code processingExecutor}, żeby rejestracja
+ * obserwatorów nie zatrzymywała wątku odnawiającego dzierżawy, który publikuje {@link OwnershipChangedEvent}.
+ * <p>
+ * Dzierżawy shardów są przekazywane w kolejności, która nie dopuszcza dwóch obserwatorów jednego pliku:
+ * węzeł najpierw zatrzymuje obserwację plików shardu, który oddaje, a dopiero potem zwalnia jego dzierżawę.
+ * Nowy właściciel rejestruje obserwatorów dopiero po przejęciu dzierżawy - do tego czasu próbuje przy
+ * każdym uruchomieniu.
+ */
+@Component
+public class ShardRebalancer {
+    private final Logger logger = LoggerFactory.getLogger(ShardRebalancer.class);
+    private final SubscriptionRepository subscriptionRepository;
+    private final FileWatcherService fileWatcherService;
+    private final ClusterMembership clusterMembership;
+    private final FileMonitoringProperties properties;
+
+    public ShardRebalancer(SubscriptionRepository subscriptionRepository, FileWatcherService fileWatcherService,
+                           ClusterMembership clusterMembership, FileMonitoringProperties properties) {
+        this.subscriptionRepository = subscriptionRepository;
+        this.fileWatcherService = fileWatcherService;
+        this.clusterMembership = clusterMembership;
+        this.properties = properties;
+    }
+
+    @Async("processingExecutor")
+    @EventListener(OwnershipChangedEvent.class)
+    public void onOwnershipChanged() {
+        rebalance();
+    }
+
+    @Scheduled(fixedDelayString = "${file-monitoring.cluster.rebalance-interval:PT1M}")
+    public void scheduledRebalance() {
+        if (properties.getCluster().isEnabled()) {
+            rebalance();
+        }
+    }
+
+    public synchronized void rebalance() {
+        Set<Integer> leaving = new HashSet<>();
+        if (properties.getCluster().isEnabled()) {
+            Set<Integer> desired = clusterMembership.getDesiredShards();
+            for (Integer shard : clusterMembership.getHeldShards()) {
+                if (!desired.contains(shard)) {
+                    leaving.add(shard);
+                }
+            }
+            desired.forEach(clusterMembership::acquireShard);
+        }
+
+        Map<Long, Subscription> owned = new HashMap<>();
+        Set<String> subscribedFiles = new HashSet<>();
+        Pageable page = PageRequest.of(0, properties.getNotification().getPageSize());
+        Page<Subscription> subscriptions;
+        do {
+            subscriptions = subscriptionRepository.findByActive(true, page);
+            for (Subscription subscription : subscriptions) {
+                subscribedFiles.add(subscription.getTargetPath());
+                if (clusterMembership.isOwner(subscription.getTargetPath())
+                        && !leaving.contains(clusterMembership.shardOf(subscription.getTargetPath()))) {
+                    owned.put(subscription.getId(), subscription);
+                }
+            }
+            page = subscriptions.nextPageable();
+        } while (subscriptions.hasNext());
+
+        int released = 0;
+        for (Subscription registered : fileWatcherService.getRegisteredSubscriptions()) {
+            if (!owned.containsKey(registered.getId())) {
+                fileWatcherService.releaseFileWatcher(registered, subscribedFiles.contains(registered.getTargetPath()));
+                released++;
+            }
+        }
+        leaving.forEach(clusterMembership::releaseShard);
+
+        int acquired = 0;
+        for (Subscription subscription : owned.values()) {
+            if (fileWatcherService.isRegistered(subscription.getId())) {
+                continue;
+            }
+            try {
+                fileWatcherService.registerFileWatcher(subscription);
+                acquired++;
+            } catch (FileWatcherRegistrationException e) {
+                logger.error("Nie udało się przejąć obserwacji pliku: " + subscription.getTargetPath(), e);
+            }
+        }
+
+        if (released > 0 || acquired > 0) {
+            logger.info("Węzeł {} przejął {} i zwolnił {} subskrypcji.", clusterMembership.getNodeId(), acquired, released);
+        }
+    }
+}
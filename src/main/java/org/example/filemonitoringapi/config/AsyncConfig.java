@@ -1,16 +1,98 @@
 package org.example.filemonitoringapi.config;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.aop.interceptor.AsyncUncaughtExceptionHandler;
 import org.springframework.aop.interceptor.SimpleAsyncUncaughtExceptionHandler;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.AsyncConfigurer;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Nazwane pule wątków aplikacji. Każda pula ma ograniczoną kolejkę i politykę odrzucania
+ * z {@code file-monitoring.executors} oraz eksportuje metryki {@code filemonitoring.executor.*}
+ * z tagiem {@code name}: długość kolejki, aktywne wątki, czas oczekiwania i wykonania zadań.
+ * Pulę pętli obserwatorów ({@code watching}) tworzy {@code WatcherExecutors} poza kontekstem.
+ */
 @Configuration
 @EnableAsync
 public class AsyncConfig implements AsyncConfigurer {
+
+    private final FileMonitoringProperties.TaskExecutors settings;
+    private final MeterRegistry meterRegistry;
+
+    public AsyncConfig(FileMonitoringProperties properties, MeterRegistry meterRegistry) {
+        this.settings = properties.getExecutors();
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor processingExecutor() {
+        return createExecutor("processing", "file-processing-", settings.getProcessing(), true);
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor mailExecutor() {
+        return createExecutor("mail", "mail-", settings.getMail(), true);
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor streamExecutor() {
+        return createExecutor("stream", "change-stream-", settings.getStream(), false);
+    }
+
+    @Override
+    public Executor getAsyncExecutor() {
+        return mailExecutor();
+    }
+
     @Override
     public AsyncUncaughtExceptionHandler getAsyncUncaughtExceptionHandler() {
         return new SimpleAsyncUncaughtExceptionHandler();
     }
+
+    private ThreadPoolTaskExecutor createExecutor(String name, String threadNamePrefix,
+                                                  FileMonitoringProperties.Pool pool,
+                                                  boolean waitForTasksOnShutdown) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix(threadNamePrefix);
+        executor.setCorePoolSize(pool.getCorePoolSize());
+        executor.setMaxPoolSize(pool.getMaxPoolSize());
+        executor.setQueueCapacity(pool.getQueueCapacity());
+        executor.setKeepAliveSeconds((int) pool.getKeepAlive().toSeconds());
+        executor.setRejectedExecutionHandler(pool.getRejectionPolicy().toHandler());
+        executor.setWaitForTasksToCompleteOnShutdown(waitForTasksOnShutdown);
+        executor.setAwaitTerminationSeconds(30);
+
+        Timer waitTimer = Timer.builder("filemonitoring.executor.task.wait")
+                .tag("name", name)
+                .register(meterRegistry);
+        Timer executionTimer = Timer.builder("filemonitoring.executor.task.execution")
+                .tag("name", name)
+                .register(meterRegistry);
+        executor.setTaskDecorator(task -> {
+            long submittedAt = System.nanoTime();
+            return () -> {
+                waitTimer.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+                executionTimer.record(task);
+            };
+        });
+
+        Gauge.builder("filemonitoring.executor.queued", executor, ThreadPoolTaskExecutor::getQueueSize)
+                .tag("name", name)
+                .register(meterRegistry);
+        Gauge.builder("filemonitoring.executor.active", executor, ThreadPoolTaskExecutor::getActiveCount)
+                .tag("name", name)
+                .register(meterRegistry);
+        Gauge.builder("filemonitoring.executor.pool.size", executor, ThreadPoolTaskExecutor::getPoolSize)
+                .tag("name", name)
+                .register(meterRegistry);
+        return executor;
+    }
 }
@@ -0,0 +1,187 @@
+package org.example.filemonitoringapi.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "file-monitoring")
+public class FileMonitoringProperties {
+
+    private Reader reader = new Reader();
+    private Diff diff = new Diff();
+    private Watcher watcher = new Watcher();
+    private ChangeStorage changeStore = new ChangeStorage();
+    private TailStateCache tailStateCache = new TailStateCache();
+    private Writer writer = new Writer();
+    private Notification notification = new Notification();
+    private Mail mail = new Mail();
+    private TaskExecutors executors = new TaskExecutors();
+    private Stream stream = new Stream();
+    private Cluster cluster = new Cluster();
+    private Metrics metrics = new Metrics();
+    private SubscriptionBatch subscriptionBatch = new SubscriptionBatch();
+
+    @Getter
+    @Setter
+    public static class Reader {
+        private DataSize maxChunkSize = DataSize.ofMegabytes(8);
+        private DataSize mappedThreshold = DataSize.ofMegabytes(256);
+        private DataSize maxMappedChunkSize = DataSize.ofMegabytes(64);
+    }
+
+    @Getter
+    @Setter
+    public static class Diff {
+        private DataSize maxFileSize = DataSize.ofMegabytes(1);
+        private DataSize checksumWindow = DataSize.ofKilobytes(64);
+        private int maxFiles = 1000;
+        private int maxLinesPerFile = 20_000;
+    }
+
+    @Getter
+    @Setter
+    public static class Watcher {
+        private Duration coalesceWindow = Duration.ofMillis(200);
+        private boolean virtualThreads = false;
+        private Polling polling = new Polling();
+        private Bootstrap bootstrap = new Bootstrap();
+    }
+
+    @Getter
+    @Setter
+    public static class Bootstrap {
+        private int pageSize = 1000;
+        private int parallelism = Runtime.getRuntime().availableProcessors() * 2;
+    }
+
+    @Getter
+    @Setter
+    public static class Polling {
+        private Duration minInterval = Duration.ofMillis(500);
+        private Duration maxInterval = Duration.ofSeconds(30);
+        private List<String> pathPrefixes = new ArrayList<>();
+    }
+
+    @Getter
+    @Setter
+    public static class ChangeStorage {
+        private String type = "database";
+        private Path directory = Paths.get("data", "changes");
+        private DataSize maxSegmentSize = DataSize.ofMegabytes(64);
+        private Duration retention = Duration.ofDays(30);
+        private Duration retentionInterval = Duration.ofHours(1);
+    }
+
+    @Getter
+    @Setter
+    public static class TailStateCache {
+        private int maxSize = 10_000;
+    }
+
+    @Getter
+    @Setter
+    public static class Writer {
+        private int queueCapacity = 10_000;
+        private int batchSize = 50;
+        private Duration flushInterval = Duration.ofMillis(100);
+        private Duration shutdownTimeout = Duration.ofSeconds(30);
+        private int maxAttempts = 5;
+        private Duration initialBackoff = Duration.ofMillis(100);
+        private Duration maxBackoff = Duration.ofSeconds(30);
+    }
+
+    @Getter
+    @Setter
+    public static class Notification {
+        private int pageSize = 500;
+        private int maxBodyLength = 1_000_000;
+        private Duration immediateDelay = Duration.ofSeconds(30);
+    }
+
+    @Getter
+    @Setter
+    public static class Mail {
+        private int batchSize = 50;
+        private Duration dispatchInterval = Duration.ofSeconds(5);
+        private double maxMessagesPerSecond = 10;
+        private int maxAttempts = 5;
+        private Duration initialBackoff = Duration.ofSeconds(30);
+        private Duration maxBackoff = Duration.ofHours(1);
+        private Duration sentRetention = Duration.ofDays(7);
+        private Duration deadRetention = Duration.ofDays(30);
+        private Duration retentionInterval = Duration.ofHours(1);
+    }
+
+    @Getter
+    @Setter
+    public static class Stream {
+        private int clientBufferSize = 256;
+        private int replayPageSize = 500;
+        private Duration timeout = Duration.ofMinutes(30);
+        private Duration remotePollInterval = Duration.ofSeconds(2);
+        private int maxEventsPerTurn = 100;
+        private Duration sendTimeout = Duration.ofSeconds(10);
+    }
+
+    @Getter
+    @Setter
+    public static class Metrics {
+        private Duration backlogRefreshInterval = Duration.ofSeconds(30);
+    }
+
+    @Getter
+    @Setter
+    public static class SubscriptionBatch {
+        private int maxSize = 5000;
+    }
+
+    @Getter
+    @Setter
+    public static class Cluster {
+        private boolean enabled = false;
+        private String nodeId;
+        private Duration heartbeatInterval = Duration.ofSeconds(10);
+        private Duration leaseTtl = Duration.ofSeconds(30);
+        private Duration rebalanceInterval = Duration.ofMinutes(1);
+        private int virtualNodes = 128;
+        private int shards = 256;
+    }
+
+    @Getter
+    @Setter
+    public static class TaskExecutors {
+        private Pool watching = new Pool(2, 2, 0, RejectionPolicy.ABORT);
+        private Pool processing = new Pool(4, 4, 10_000, RejectionPolicy.CALLER_RUNS);
+        private Pool mail = new Pool(1, 1, 10, RejectionPolicy.DISCARD);
+        private Pool stream = new Pool(4, 4, 10_000, RejectionPolicy.ABORT);
+    }
+
+    @Getter
+    @Setter
+    public static class Pool {
+        private int corePoolSize;
+        private int maxPoolSize;
+        private int queueCapacity;
+        private Duration keepAlive = Duration.ofSeconds(60);
+        private RejectionPolicy rejectionPolicy;
+
+        public Pool() {
+        }
+
+        public Pool(int corePoolSize, int maxPoolSize, int queueCapacity, RejectionPolicy rejectionPolicy) {
+            this.corePoolSize = corePoolSize;
+            this.maxPoolSize = maxPoolSize;
+            this.queueCapacity = queueCapacity;
+            this.rejectionPolicy = rejectionPolicy;
+        }
+    }
+}
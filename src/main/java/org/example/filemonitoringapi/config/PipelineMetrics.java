@@ -0,0 +1,65 @@
+package org.example.filemonitoringapi.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.example.filemonitoringapi.email.OutboxMessageRepository;
+import org.example.filemonitoringapi.email.OutboxStatus;
+import org.example.filemonitoringapi.file.FileChangeRepository;
+import org.example.filemonitoringapi.listener.NativeWatchEngine;
+import org.example.filemonitoringapi.listener.WatchEngine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Wskaźniki potrzebne do doboru wielkości węzła: liczba obserwowanych plików i katalogów, otwarte
+ * {@link java.nio.file.WatchService} oraz zaległości zmian i wiadomości. Zaległości są liczone w bazie
+ * co {@code file-monitoring.metrics.backlog-refresh-interval}, a nie przy każdym odczycie metryk.
+ */
+@Component
+public class PipelineMetrics implements MeterBinder {
+    private final Logger logger = LoggerFactory.getLogger(PipelineMetrics.class);
+    private final List<WatchEngine> watchEngines;
+    private final NativeWatchEngine nativeWatchEngine;
+    private final FileChangeRepository fileChangeRepository;
+    private final OutboxMessageRepository outboxMessageRepository;
+    private final AtomicLong pendingChanges = new AtomicLong();
+    private final AtomicLong pendingMessages = new AtomicLong();
+
+    public PipelineMetrics(List<WatchEngine> watchEngines, NativeWatchEngine nativeWatchEngine,
+                           FileChangeRepository fileChangeRepository, OutboxMessageRepository outboxMessageRepository) {
+        this.watchEngines = watchEngines;
+        this.nativeWatchEngine = nativeWatchEngine;
+        this.fileChangeRepository = fileChangeRepository;
+        this.outboxMessageRepository = outboxMessageRepository;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        watchEngines.forEach(engine -> Gauge.builder("filemonitoring.watcher.files", engine, WatchEngine::getWatchedFileCount)
+                .tag("engine", engine.getType().name().toLowerCase())
+                .register(registry));
+        Gauge.builder("filemonitoring.watcher.directories", nativeWatchEngine, NativeWatchEngine::getWatchedDirectoryCount)
+                .register(registry);
+        Gauge.builder("filemonitoring.watcher.watch.services", nativeWatchEngine, NativeWatchEngine::getOpenWatchServiceCount)
+                .register(registry);
+        Gauge.builder("filemonitoring.changes.pending", pendingChanges, AtomicLong::get).register(registry);
+        Gauge.builder("filemonitoring.mail.outbox.pending", pendingMessages, AtomicLong::get).register(registry);
+    }
+
+    @Scheduled(fixedDelayString = "${file-monitoring.metrics.backlog-refresh-interval:PT30S}")
+    public void refreshBacklog() {
+        try {
+            pendingChanges.set(fileChangeRepository.countByLastNotificationSentIsNull());
+            pendingMessages.set(outboxMessageRepository.countByStatus(OutboxStatus.PENDING));
+        } catch (DataAccessException e) {
+            logger.warn("Nie udało się odświeżyć metryk zaległości: {}", e.getMessage());
+        }
+    }
+}
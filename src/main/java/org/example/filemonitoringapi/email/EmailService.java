@@ -1,31 +1,57 @@
 package org.example.filemonitoringapi.email;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.AllArgsConstructor;
 import org.example.filemonitoringapi.exception.EmailSendingException;
-import org.springframework.mail.MailException;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Wiadomości nie są wysyłane od razu - trafiają do tabeli outbox, z której wysyła je
+ * {@link OutboxDispatcher}. Zwrócony {@link CompletableFuture} kończy się, gdy wiadomość
+ * została trwale zapisana do wysłania - o wysłaniu powiadomień informuje {@link OutboxMessagesSentEvent}.
+ */
 @AllArgsConstructor
 @Service
 public class EmailService {
 
-    private JavaMailSender mailSender;
+    private OutboxMessageRepository outboxMessageRepository;
+    private MeterRegistry meterRegistry;
+
+    public CompletableFuture<Void> sendEmail(String to, String subject, String content)  {
+        return sendNotification(to, subject, content, null, null);
+    }
 
-    @Async
-    public void sendEmail(String to, String subject, String content)  {
+    /**
+     * @param subscriptionId subskrypcja, której dotyczy powiadomienie
+     * @param changeId       id ostatniej zmiany objętej powiadomieniem
+     */
+    public CompletableFuture<Void> sendNotification(String to, String subject, String content,
+                                                    Long subscriptionId, Long changeId) {
+        OutboxMessage message = new OutboxMessage(to, subject, content, LocalDateTime.now());
+        message.setSubscriptionId(subscriptionId);
+        message.setChangeId(changeId);
         try {
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setTo(to);
-            message.setSubject(subject);
-            message.setText(content);
-            mailSender.send(message);
-        } catch (MailException e) {
-            throw new EmailSendingException("Nie udało się wysłać emaila do: " + to, e);
+            outboxMessageRepository.save(message);
+            return CompletableFuture.completedFuture(null);
+        } catch (DataAccessException e) {
+            meterRegistry.counter("filemonitoring.mail.enqueue.failures").increment();
+            return CompletableFuture.failedFuture(new EmailSendingException("Nie udało się wysłać emaila do: " + to, e));
         }
     }
 
-}
+    /**
+     * @return subskrypcje spośród podanych, których powiadomienie czeka jeszcze w outboxie na wysłanie
+     */
+    public Set<Long> findSubscriptionsAwaitingDelivery(Collection<Long> subscriptionIds) {
+        return subscriptionIds.isEmpty()
+                ? Set.of()
+                : outboxMessageRepository.findSubscriptionIdsByStatus(subscriptionIds, OutboxStatus.PENDING);
+    }
 
+}
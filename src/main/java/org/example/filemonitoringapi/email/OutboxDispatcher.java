@@ -0,0 +1,217 @@
+package org.example.filemonitoringapi.email;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.example.filemonitoringapi.cluster.ClusterMembership;
+import org.example.filemonitoringapi.config.FileMonitoringProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Wysyła wiadomości z tabeli outbox partiami. {@link JavaMailSender#send(MimeMessage...)} wysyła całą
+ * partię przez jedno połączenie SMTP. Wiadomości, których nie udało się wysłać, wracają do kolejki
+ * z wykładniczo rosnącym opóźnieniem, a po {@code max-attempts} próbach trafiają do stanu DEAD.
+ * Wiadomości SENT i DEAD są usuwane po upływie {@code sent-retention} i {@code dead-retention}.
+ * Wysłane powiadomienia o zmianach są ogłaszane przez {@link OutboxMessagesSentEvent}.
+ */
+@Component
+public class OutboxDispatcher {
+    private static final int MAX_ERROR_LENGTH = 1000;
+    private static final String DISPATCHER_LEASE_KEY = "outbox-dispatcher";
+
+    private final Logger logger = LoggerFactory.getLogger(OutboxDispatcher.class);
+    private final JavaMailSender mailSender;
+    private final OutboxMessageRepository outboxMessageRepository;
+    private final ClusterMembership clusterMembership;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MeterRegistry meterRegistry;
+    private final FileMonitoringProperties.Mail settings;
+    private final AtomicBoolean dispatching = new AtomicBoolean();
+    private long nextPermitAt = System.nanoTime();
+
+    public OutboxDispatcher(JavaMailSender mailSender, OutboxMessageRepository outboxMessageRepository,
+                            ClusterMembership clusterMembership, ApplicationEventPublisher eventPublisher,
+                            FileMonitoringProperties properties, MeterRegistry meterRegistry) {
+        this.mailSender = mailSender;
+        this.outboxMessageRepository = outboxMessageRepository;
+        this.clusterMembership = clusterMembership;
+        this.eventPublisher = eventPublisher;
+        this.meterRegistry = meterRegistry;
+        this.settings = properties.getMail();
+    }
+
+    /**
+     * Uruchamiane przez harmonogram, ale wykonywane na puli {@code mailExecutor}, żeby wolny serwer SMTP
+     * i limit wysyłki nie blokowały wspólnego wątku zadań {@code @Scheduled}. W klastrze outbox obsługuje
+     * tylko jeden węzeł - właściciel klucza {@value #DISPATCHER_LEASE_KEY}.
+     */
+    @Async("mailExecutor")
+    @Scheduled(fixedDelayString = "${file-monitoring.mail.dispatch-interval:PT5S}")
+    public void dispatch() {
+        if (!clusterMembership.isOwner(DISPATCHER_LEASE_KEY) || !dispatching.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            dispatchDue();
+        } finally {
+            dispatching.set(false);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${file-monitoring.mail.retention-interval:PT1H}")
+    public void applyRetention() {
+        if (!clusterMembership.isOwner(DISPATCHER_LEASE_KEY)) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        int sent = outboxMessageRepository.deleteSentBefore(now.minus(settings.getSentRetention()));
+        int dead = outboxMessageRepository.deleteDeadBefore(now.minus(settings.getDeadRetention()));
+        if (sent > 0 || dead > 0) {
+            logger.info("Usunięto z outboxa {} wysłanych i {} martwych wiadomości", sent, dead);
+        }
+    }
+
+    private void dispatchDue() {
+        Pageable page = PageRequest.of(0, settings.getBatchSize());
+        List<OutboxMessage> batch;
+        do {
+            batch = outboxMessageRepository.findDue(OutboxStatus.PENDING, LocalDateTime.now(), page);
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                acquirePermits(batch.size());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            sendBatch(batch);
+            outboxMessageRepository.saveAll(batch);
+            List<OutboxMessage> sentNotifications = batch.stream()
+                    .filter(message -> message.getStatus() == OutboxStatus.SENT && message.getSubscriptionId() != null)
+                    .toList();
+            if (!sentNotifications.isEmpty()) {
+                eventPublisher.publishEvent(new OutboxMessagesSentEvent(sentNotifications));
+            }
+        } while (batch.size() == settings.getBatchSize());
+    }
+
+    private void sendBatch(List<OutboxMessage> batch) {
+        // Obie listy mają tę samą kolejność, a MimeMessage nie nadpisuje equals - błędy z MailSendException
+        // są więc przypisywane do wiadomości po tożsamości obiektu, niezależnie od kolejności wysyłki.
+        List<MimeMessage> mimeMessages = new ArrayList<>(batch.size());
+        List<OutboxMessage> outboxMessages = new ArrayList<>(batch.size());
+        for (OutboxMessage outboxMessage : batch) {
+            try {
+                mimeMessages.add(createMimeMessage(outboxMessage));
+                outboxMessages.add(outboxMessage);
+            } catch (MessagingException e) {
+                markFailed(outboxMessage, e);
+            }
+        }
+        if (mimeMessages.isEmpty()) {
+            return;
+        }
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            mailSender.send(mimeMessages.toArray(new MimeMessage[0]));
+            outboxMessages.forEach(this::markSent);
+        } catch (MailSendException e) {
+            Map<Object, Exception> failedMessages = e.getFailedMessages();
+            for (int i = 0; i < mimeMessages.size(); i++) {
+                Exception failure = failedMessages.isEmpty() ? e : failedMessages.get(mimeMessages.get(i));
+                if (failure == null) {
+                    markSent(outboxMessages.get(i));
+                } else {
+                    markFailed(outboxMessages.get(i), failure);
+                }
+            }
+        } catch (MailException e) {
+            outboxMessages.forEach(outboxMessage -> markFailed(outboxMessage, e));
+        } finally {
+            sample.stop(meterRegistry.timer("filemonitoring.mail.send.duration"));
+        }
+    }
+
+    private MimeMessage createMimeMessage(OutboxMessage outboxMessage) throws MessagingException {
+        MimeMessage mimeMessage = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, false, StandardCharsets.UTF_8.name());
+        helper.setTo(outboxMessage.getRecipient());
+        helper.setSubject(outboxMessage.getSubject());
+        helper.setText(outboxMessage.getContent());
+        return mimeMessage;
+    }
+
+    private void markSent(OutboxMessage outboxMessage) {
+        outboxMessage.setStatus(OutboxStatus.SENT);
+        outboxMessage.setSentAt(LocalDateTime.now());
+        outboxMessage.setLastError(null);
+        if (outboxMessage.getCreatedAt() != null) {
+            meterRegistry.timer("filemonitoring.mail.delivery.latency")
+                    .record(Duration.between(outboxMessage.getCreatedAt(), outboxMessage.getSentAt()));
+        }
+    }
+
+    private void markFailed(OutboxMessage outboxMessage, Exception failure) {
+        int attempts = outboxMessage.getAttempts() + 1;
+        outboxMessage.setAttempts(attempts);
+        outboxMessage.setLastError(truncate(String.valueOf(failure.getMessage())));
+        boolean dead = attempts >= settings.getMaxAttempts();
+        meterRegistry.counter("filemonitoring.mail.failures", "outcome", dead ? "dead" : "retry").increment();
+        if (dead) {
+            outboxMessage.setStatus(OutboxStatus.DEAD);
+            outboxMessage.setNextAttemptAt(LocalDateTime.now());
+            logger.error("Nie udało się wysłać emaila do: " + outboxMessage.getRecipient()
+                    + " po " + attempts + " próbach.", failure);
+            return;
+        }
+        outboxMessage.setNextAttemptAt(LocalDateTime.now().plus(backoff(attempts)));
+        logger.warn("Nie udało się wysłać emaila do: {} (próba {}), ponowienie o {}",
+                outboxMessage.getRecipient(), attempts, outboxMessage.getNextAttemptAt());
+    }
+
+    private Duration backoff(int attempts) {
+        Duration delay = settings.getInitialBackoff().multipliedBy(1L << Math.min(attempts - 1, 20));
+        return delay.compareTo(settings.getMaxBackoff()) > 0 ? settings.getMaxBackoff() : delay;
+    }
+
+    private void acquirePermits(int permits) throws InterruptedException {
+        double rate = settings.getMaxMessagesPerSecond();
+        if (rate <= 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        long waitNanos = nextPermitAt - now;
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+            now = nextPermitAt;
+        }
+        nextPermitAt = now + (long) (permits * 1_000_000_000L / rate);
+    }
+
+    private String truncate(String error) {
+        return error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+    }
+}
@@ -0,0 +1,51 @@
+package org.example.filemonitoringapi.email;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(indexes = {
+        @Index(name = "idx_outbox_message_due", columnList = "status, nextAttemptAt, id"),
+        @Index(name = "idx_outbox_message_sent", columnList = "status, sentAt"),
+        @Index(name = "idx_outbox_message_subscription", columnList = "subscriptionId, status")
+})
+public class OutboxMessage {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_message_seq")
+    @SequenceGenerator(name = "outbox_message_seq", sequenceName = "outbox_message_seq", allocationSize = 50)
+    private Long id;
+    private String recipient;
+    private String subject;
+    @Lob
+    private String content;
+    @Enumerated(EnumType.STRING)
+    private OutboxStatus status;
+    private int attempts;
+    private LocalDateTime createdAt;
+    private LocalDateTime nextAttemptAt;
+    private LocalDateTime sentAt;
+    @Column(length = 1000)
+    private String lastError;
+    private Long subscriptionId;
+    private Long changeId;
+
+
+    public OutboxMessage(String recipient, String subject, String content, LocalDateTime createdAt) {
+        this.recipient = recipient;
+        this.subject = subject;
+        this.content = content;
+        this.status = OutboxStatus.PENDING;
+        this.createdAt = createdAt;
+        this.nextAttemptAt = createdAt;
+    }
+}
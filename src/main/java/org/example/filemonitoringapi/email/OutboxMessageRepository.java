@@ -0,0 +1,43 @@
+package org.example.filemonitoringapi.email;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+public interface OutboxMessageRepository extends JpaRepository<OutboxMessage, Long> {
+
+    @Query("select m from OutboxMessage m where m.status = :status and m.nextAttemptAt <= :now order by m.id")
+    List<OutboxMessage> findDue(@Param("status") OutboxStatus status,
+                                @Param("now") LocalDateTime now,
+                                Pageable pageable);
+
+    long countByStatus(OutboxStatus status);
+
+    @Query("select distinct m.subscriptionId from OutboxMessage m " +
+            "where m.subscriptionId in :subscriptionIds and m.status = :status")
+    Set<Long> findSubscriptionIdsByStatus(@Param("subscriptionIds") Collection<Long> subscriptionIds,
+                                          @Param("status") OutboxStatus status);
+
+    @Modifying
+    @Transactional
+    @Query("delete from OutboxMessage m where m.status = org.example.filemonitoringapi.email.OutboxStatus.SENT " +
+            "and m.sentAt < :before")
+    int deleteSentBefore(@Param("before") LocalDateTime before);
+
+    /**
+     * Dla wiadomości DEAD {@code nextAttemptAt} to chwila ostatniej, nieudanej próby wysyłki.
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from OutboxMessage m where m.status = org.example.filemonitoringapi.email.OutboxStatus.DEAD " +
+            "and m.nextAttemptAt < :before")
+    int deleteDeadBefore(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,12 @@
+package org.example.filemonitoringapi.email;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class OutboxMessagesSentEvent {
+    private final List<OutboxMessage> messages;
+}
@@ -0,0 +1,7 @@
+package org.example.filemonitoringapi.email;
+
+public enum OutboxStatus {
+    PENDING,
+    SENT,
+    DEAD
+}
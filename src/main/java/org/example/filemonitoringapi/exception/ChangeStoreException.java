@@ -0,0 +1,7 @@
+package org.example.filemonitoringapi.exception;
+
+public class ChangeStoreException extends RuntimeException {
+    public ChangeStoreException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
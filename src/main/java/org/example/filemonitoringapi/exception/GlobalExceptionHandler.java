@@ -45,6 +45,11 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Błąd podczas tworzenia subskrypcji: " + ex.getMessage());
     }
 
+    @ExceptionHandler(SubscriptionBatchException.class)
+    public ResponseEntity<String> handleSubscriptionBatchException(SubscriptionBatchException ex) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Błąd partii subskrypcji: " + ex.getMessage());
+    }
+
     @ExceptionHandler(EmailSendingException.class)
     public ResponseEntity<String> handleEmailSendingException(EmailSendingException ex) {
         return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Nie udało się wysłać e-maila: " + ex.getMessage());
@@ -0,0 +1,7 @@
+package org.example.filemonitoringapi.exception;
+
+public class SubscriptionBatchException extends RuntimeException {
+    public SubscriptionBatchException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,19 @@
+package org.example.filemonitoringapi.file;
+
+import java.time.LocalDateTime;
+
+public interface ChangeStore {
+
+    /**
+     * Zapisuje treść zmiany i zwraca (jeszcze niezapisany) rekord {@link FileChange},
+     * który przechowuje treść albo odwołanie do niej.
+     */
+    FileChange append(String filePath, String content, LocalDateTime changeTime);
+
+    String loadContent(FileChange change);
+
+    /**
+     * Zwalnia zasoby i usuwa przechowywaną treść zmian pliku, który nie ma już subskrypcji.
+     */
+    void release(String filePath);
+}
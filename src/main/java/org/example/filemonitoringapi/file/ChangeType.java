@@ -0,0 +1,8 @@
+package org.example.filemonitoringapi.file;
+
+public enum ChangeType {
+    APPENDED,
+    EDITED,
+    TRUNCATED,
+    ROTATED
+}
@@ -0,0 +1,25 @@
+package org.example.filemonitoringapi.file;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+@ConditionalOnProperty(prefix = "file-monitoring.change-store", name = "type", havingValue = "database", matchIfMissing = true)
+@Component
+public class DatabaseChangeStore implements ChangeStore {
+
+    @Override
+    public FileChange append(String filePath, String content, LocalDateTime changeTime) {
+        return new FileChange(filePath, content, changeTime, null);
+    }
+
+    @Override
+    public String loadContent(FileChange change) {
+        return change.getContent();
+    }
+
+    @Override
+    public void release(String filePath) {
+    }
+}
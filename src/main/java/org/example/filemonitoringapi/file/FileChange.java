@@ -1,9 +1,15 @@
 package org.example.filemonitoringapi.file;
 
 import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Lob;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -17,14 +23,24 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_file_change_pending", columnList = "filePath, lastNotificationSent, id"),
+        @Index(name = "idx_file_change_path_id", columnList = "filePath, id")
+})
 public class FileChange {
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "file_change_seq")
+    @SequenceGenerator(name = "file_change_seq", sequenceName = "file_change_seq", allocationSize = 50)
     private Long id;
     private String filePath;
+    @Lob
     private String content;
     private LocalDateTime changeTime;
     private LocalDateTime lastNotificationSent;
+    private Long segmentId;
+    private Long segmentOffset;
+    @Enumerated(EnumType.STRING)
+    private ChangeType changeType;
 
 
 
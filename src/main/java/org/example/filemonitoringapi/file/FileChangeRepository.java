@@ -1,16 +1,55 @@
 package org.example.filemonitoringapi.file;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 public interface FileChangeRepository extends JpaRepository<FileChange, Long> {
-    Optional<FileChange> findTopByFilePathOrderByChangeTimeDesc(String filePath);
-    List<FileChange> findByLastNotificationSentIsNull();
+    @Query("select distinct c.filePath from FileChange c where c.lastNotificationSent is null")
+    List<String> findPendingFilePaths();
+
+    long countByLastNotificationSentIsNull();
+
+    @Query("select max(c.id) from FileChange c where c.filePath = :filePath")
+    Optional<Long> findMaxId(@Param("filePath") String filePath);
+
+    @Query("select max(c.id) from FileChange c where c.filePath = :filePath and c.lastNotificationSent is null")
+    Optional<Long> findMaxPendingId(@Param("filePath") String filePath);
+
+    @Query("select c from FileChange c where c.filePath = :filePath and c.lastNotificationSent is null " +
+            "and c.id > :afterId and c.id <= :maxId order by c.id")
+    List<FileChange> findPendingPage(@Param("filePath") String filePath,
+                                     @Param("afterId") Long afterId,
+                                     @Param("maxId") Long maxId,
+                                     Pageable pageable);
+
+    @Query("select c from FileChange c where c.filePath = :filePath and c.id > :afterId order by c.id")
+    List<FileChange> findByFilePathAfterId(@Param("filePath") String filePath,
+                                           @Param("afterId") Long afterId,
+                                           Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query("update FileChange c set c.lastNotificationSent = :sentAt " +
+            "where c.filePath = :filePath and c.lastNotificationSent is null and c.id <= :maxId")
+    int markNotified(@Param("filePath") String filePath,
+                     @Param("maxId") Long maxId,
+                     @Param("sentAt") LocalDateTime sentAt);
+
+    @Query("select min(c.segmentId) from FileChange c where c.filePath = :filePath and c.lastNotificationSent is null")
+    Optional<Long> findMinPendingSegmentId(@Param("filePath") String filePath);
+
+    @Modifying
+    @Transactional
+    @Query("delete from FileChange c where c.filePath = :filePath and c.segmentId = :segmentId and c.lastNotificationSent is not null")
+    int deleteNotifiedBySegment(@Param("filePath") String filePath, @Param("segmentId") Long segmentId);
 
 
 }
\ No newline at end of file
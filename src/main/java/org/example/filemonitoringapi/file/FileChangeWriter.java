@@ -0,0 +1,244 @@
+package org.example.filemonitoringapi.file;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.example.filemonitoringapi.cluster.ClusterMembership;
+import org.example.filemonitoringapi.config.FileMonitoringProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Zapis zmian w tle (write-behind). Wątki obserwatora wrzucają do ograniczonej kolejki odczytane zmiany
+ * razem z kopią stanu odczytu i blokują się, gdy kolejka jest pełna. Jeden wątek zapisujący zapisuje je
+ * partiami przez {@code saveAll}, co przy {@code hibernate.jdbc.batch_size} daje wsadowe INSERT-y.
+ * Offset pliku trafia do bazy w tej samej transakcji co zmiany, więc po awarii plik jest czytany
+ * od ostatniej zatwierdzonej partii.
+ * <p>
+ * Partia, której nie udało się zapisać, nie jest porzucana. Błędy przejściowe (brak połączenia, blokady)
+ * są ponawiane z wykładniczym opóźnieniem aż do skutku. Przy pozostałych błędach partia jest dzielona
+ * na połowy, żeby odizolować wadliwy zapis - tylko on jest odrzucany po {@code max-attempts} próbach.
+ * <p>
+ * W klastrze każdy zapis niesie token dzierżawy shardu ({@code fencingToken}) z chwili odczytu. W transakcji
+ * zapisu jest on porównywany z dzierżawą w bazie - zapisy węzła, który w międzyczasie utracił shard, są
+ * odrzucane, żeby nie nadpisały offsetu nowego właściciela.
+ */
+@Component
+public class FileChangeWriter {
+    private final Logger logger = LoggerFactory.getLogger(FileChangeWriter.class);
+    private final FileChangeRepository fileChangeRepository;
+    private final TailStateCache tailStateCache;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ClusterMembership clusterMembership;
+    private final MeterRegistry meterRegistry;
+    private final FileMonitoringProperties.Writer settings;
+    private final BlockingQueue<PendingWrite> queue;
+    private final Thread writerThread;
+    private volatile boolean running = true;
+
+    public FileChangeWriter(FileChangeRepository fileChangeRepository, TailStateCache tailStateCache,
+                            PlatformTransactionManager transactionManager, ApplicationEventPublisher eventPublisher,
+                            ClusterMembership clusterMembership, FileMonitoringProperties properties,
+                            MeterRegistry meterRegistry) {
+        this.fileChangeRepository = fileChangeRepository;
+        this.tailStateCache = tailStateCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.clusterMembership = clusterMembership;
+        this.meterRegistry = meterRegistry;
+        this.settings = properties.getWriter();
+        this.queue = new ArrayBlockingQueue<>(settings.getQueueCapacity());
+        Gauge.builder("filemonitoring.writer.queue.size", queue, BlockingQueue::size).register(meterRegistry);
+        this.writerThread = new Thread(this::writeChanges, "file-change-writer");
+    }
+
+    @PostConstruct
+    public void start() {
+        writerThread.start();
+    }
+
+    /**
+     * @param tailState    kopia stanu odczytu ({@link FileTailState#snapshot()}) po odczytaniu {@code changes}
+     * @param fencingToken token dzierżawy shardu pliku sprzed odczytu ({@link ClusterMembership#fencingTokenOf})
+     */
+    public void enqueue(Collection<FileChange> changes, FileTailState tailState, long fencingToken) {
+        PendingWrite write = new PendingWrite(List.copyOf(changes), tailState, fencingToken);
+        if (!running) {
+            flush(List.of(write));
+            return;
+        }
+        try {
+            queue.put(write);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            flush(List.of(write));
+        }
+    }
+
+    /**
+     * Usuwa z kolejki niezapisane zmiany i stany pliku, którego nikt już nie obserwuje. Partia zapisywana
+     * w tej chwili nie odtworzy usuniętego stanu - {@link TailStateCache#persist} pomija takie zapisy.
+     */
+    public void discard(String filePath) {
+        if (queue.removeIf(write -> filePath.equals(write.tailState().getFilePath()))) {
+            logger.info("Porzucono niezapisane zmiany pliku bez subskrypcji: {}", filePath);
+        }
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        writerThread.join(settings.getShutdownTimeout().toMillis());
+        List<PendingWrite> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            flush(remaining);
+        }
+    }
+
+    private void writeChanges() {
+        List<PendingWrite> batch = new ArrayList<>(settings.getBatchSize());
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingWrite first = queue.poll(settings.getFlushInterval().toMillis(), TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, settings.getBatchSize() - 1);
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<PendingWrite> batch) {
+        Duration backoff = settings.getInitialBackoff();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                write(batch);
+                return;
+            } catch (RuntimeException e) {
+                meterRegistry.counter("filemonitoring.persist.failures").increment();
+                boolean transientFailure = isTransient(e);
+                if (!transientFailure && batch.size() > 1) {
+                    // Jeden wadliwy wiersz nie może blokować pozostałych - szukamy go, dzieląc partię.
+                    flush(batch.subList(0, batch.size() / 2));
+                    flush(batch.subList(batch.size() / 2, batch.size()));
+                    return;
+                }
+                if ((!transientFailure || !running) && attempt >= settings.getMaxAttempts()) {
+                    drop(batch, e);
+                    return;
+                }
+                logger.warn("Nie udało się zapisać partii {} zapisów (próba {}), ponowienie za {} ms: {}",
+                        batch.size(), attempt, backoff.toMillis(), e.getMessage());
+                try {
+                    TimeUnit.MILLISECONDS.sleep(backoff.toMillis());
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    drop(batch, e);
+                    return;
+                }
+                backoff = backoff.multipliedBy(2);
+                if (backoff.compareTo(settings.getMaxBackoff()) > 0) {
+                    backoff = settings.getMaxBackoff();
+                }
+            }
+        }
+    }
+
+    private void write(List<PendingWrite> batch) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        List<FileChange> saved = transactionTemplate.execute(status -> {
+            List<FileChange> changes = new ArrayList<>();
+            Map<String, FileTailState> tailStates = new LinkedHashMap<>();
+            for (PendingWrite write : fence(batch)) {
+                changes.addAll(write.changes());
+                tailStates.put(write.tailState().getFilePath(), write.tailState());
+            }
+            List<FileChange> savedChanges = fileChangeRepository.saveAllAndFlush(changes);
+            savedChanges.forEach(change -> {
+                FileTailState tailState = tailStates.get(change.getFilePath());
+                if (tailState != null) {
+                    tailState.setLastChangeId(change.getId());
+                }
+            });
+            tailStates.values().forEach(tailStateCache::persist);
+            return savedChanges;
+        });
+        sample.stop(meterRegistry.timer("filemonitoring.persist.duration"));
+        meterRegistry.counter("filemonitoring.persist.changes").increment(saved.size());
+        if (!saved.isEmpty()) {
+            eventPublisher.publishEvent(new FileChangesPersistedEvent(saved));
+        }
+    }
+
+    private List<PendingWrite> fence(List<PendingWrite> batch) {
+        if (!clusterMembership.isEnabled()) {
+            return batch;
+        }
+        Map<Integer, Long> validLeases = clusterMembership.findValidLeases();
+        List<PendingWrite> accepted = new ArrayList<>(batch.size());
+        for (PendingWrite write : batch) {
+            String filePath = write.tailState().getFilePath();
+            Long fencingToken = validLeases.get(clusterMembership.shardOf(filePath));
+            if (fencingToken != null && fencingToken == write.fencingToken()) {
+                accepted.add(write);
+            } else {
+                meterRegistry.counter("filemonitoring.persist.fenced").increment(write.changes().size());
+                logger.warn("Odrzucono zmiany pliku {} - węzeł nie ma już dzierżawy jego shardu.", filePath);
+            }
+        }
+        return accepted;
+    }
+
+    /**
+     * Odrzucone zmiany nie wrócą: stan odczytu z tej partii też nie został zapisany, ale kolejna
+     * zatwierdzona partia tego pliku przesunie offset dalej.
+     */
+    private void drop(List<PendingWrite> batch, RuntimeException e) {
+        int changes = batch.stream().mapToInt(write -> write.changes().size()).sum();
+        meterRegistry.counter("filemonitoring.persist.dropped").increment(changes);
+        logger.error("Odrzucono partię " + changes + " zmian plików po nieudanych próbach zapisu.", e);
+    }
+
+    private boolean isTransient(RuntimeException e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException
+                || e instanceof TransactionException;
+    }
+
+    private record PendingWrite(List<FileChange> changes, FileTailState tailState, long fencingToken) {
+    }
+}
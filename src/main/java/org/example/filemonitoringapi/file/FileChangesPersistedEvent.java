@@ -0,0 +1,12 @@
+package org.example.filemonitoringapi.file;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class FileChangesPersistedEvent {
+    private final List<FileChange> changes;
+}
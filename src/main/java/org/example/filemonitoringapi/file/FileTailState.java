@@ -0,0 +1,81 @@
+package org.example.filemonitoringapi.file;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+
+/**
+ * Identyfikator jest nadawany ręcznie (ścieżka pliku), więc bez {@link Persistable#isNew()} każdy
+ * {@code save} byłby {@code merge} - SELECT przed INSERT-em. Aktualizacje idą przez
+ * {@link FileTailStateRepository#updateState}, czyli jeden UPDATE bez wczytywania wiersza.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(indexes = @Index(name = "idx_file_tail_state_file_key", columnList = "fileKey"))
+public class FileTailState implements Persistable<String> {
+    @Id
+    private String filePath;
+    private long byteOffset;
+    private String fileKey;
+    private long lastModified;
+    private long lastLineHash;
+    private long prefixChecksum;
+    private Long lastChangeId;
+    private LocalDateTime updatedAt;
+
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private boolean persisted;
+
+
+    public FileTailState(String filePath) {
+        this.filePath = filePath;
+    }
+
+    @Override
+    public String getId() {
+        return filePath;
+    }
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    /**
+     * Kopia do zapisu w tle - wątek obserwatora dalej zmienia oryginał, gdy kopia czeka w kolejce.
+     */
+    public FileTailState snapshot() {
+        FileTailState copy = new FileTailState(filePath);
+        copy.byteOffset = byteOffset;
+        copy.fileKey = fileKey;
+        copy.lastModified = lastModified;
+        copy.lastLineHash = lastLineHash;
+        copy.prefixChecksum = prefixChecksum;
+        copy.lastChangeId = lastChangeId;
+        copy.updatedAt = updatedAt;
+        copy.persisted = persisted;
+        return copy;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        persisted = true;
+    }
+}
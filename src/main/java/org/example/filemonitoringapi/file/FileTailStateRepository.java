@@ -0,0 +1,22 @@
+package org.example.filemonitoringapi.file;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+public interface FileTailStateRepository extends JpaRepository<FileTailState, String> {
+    List<FileTailState> findByFileKey(String fileKey);
+
+    @Modifying
+    @Transactional
+    @Query("update FileTailState s set s.byteOffset = :#{#state.byteOffset}, s.fileKey = :#{#state.fileKey}, " +
+            "s.lastModified = :#{#state.lastModified}, s.lastLineHash = :#{#state.lastLineHash}, " +
+            "s.prefixChecksum = :#{#state.prefixChecksum}, " +
+            "s.lastChangeId = :#{#state.lastChangeId}, s.updatedAt = :#{#state.updatedAt} " +
+            "where s.filePath = :#{#state.filePath}")
+    int updateState(@Param("state") FileTailState state);
+}
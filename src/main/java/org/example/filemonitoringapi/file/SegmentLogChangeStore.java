@@ -0,0 +1,351 @@
+package org.example.filemonitoringapi.file;
+
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import org.example.filemonitoringapi.config.FileMonitoringProperties;
+import org.example.filemonitoringapi.exception.ChangeStoreException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Przechowuje treść zmian w skompresowanych (Deflate), dopisywanych segmentach - osobno dla
+ * każdego pliku. Rekord w bazie zawiera tylko metadane i pozycję rekordu w segmencie.
+ * Obok segmentu {@code .seg} prowadzony jest indeks {@code .idx} z parami (offset, znacznik czasu).
+ */
+@ConditionalOnProperty(prefix = "file-monitoring.change-store", name = "type", havingValue = "segment")
+@AllArgsConstructor
+@Component
+public class SegmentLogChangeStore implements ChangeStore {
+    private static final int RECORD_HEADER_BYTES = Integer.BYTES * 2 + Long.BYTES;
+    private static final int INDEX_ENTRY_BYTES = Long.BYTES * 2;
+    private static final String SOURCE_FILE = "source";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String INDEX_SUFFIX = ".idx";
+
+    private final Logger logger = LoggerFactory.getLogger(SegmentLogChangeStore.class);
+    private final Map<String, SegmentCursor> cursors = new ConcurrentHashMap<>();
+    private FileMonitoringProperties properties;
+    private FileChangeRepository fileChangeRepository;
+
+    @Override
+    public FileChange append(String filePath, String content, LocalDateTime changeTime) {
+        byte[] raw = content.getBytes(StandardCharsets.UTF_8);
+        byte[] compressed = compress(raw);
+        long timestamp = changeTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        while (true) {
+            SegmentCursor cursor = cursors.computeIfAbsent(filePath, this::openCursor);
+            synchronized (cursor) {
+                if (cursor.closed) {
+                    continue;
+                }
+                try {
+                    if (cursor.size >= properties.getChangeStore().getMaxSegmentSize().toBytes()) {
+                        cursor.roll();
+                    }
+
+                    long offset = cursor.size;
+                    ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + compressed.length)
+                            .putInt(compressed.length)
+                            .putInt(raw.length)
+                            .putLong(timestamp)
+                            .put(compressed)
+                            .flip();
+                    ByteBuffer indexEntry = ByteBuffer.allocate(INDEX_ENTRY_BYTES)
+                            .putLong(offset)
+                            .putLong(timestamp)
+                            .flip();
+                    writeFully(cursor.segmentChannel, record);
+                    writeFully(cursor.indexChannel, indexEntry);
+                    cursor.size += record.limit();
+
+                    FileChange change = new FileChange(filePath, null, changeTime, null);
+                    change.setSegmentId(cursor.segmentId);
+                    change.setSegmentOffset(offset);
+                    return change;
+                } catch (IOException e) {
+                    throw new ChangeStoreException("Nie udało się zapisać zmiany w segmencie pliku: " + filePath, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Zamyka otwarte kanały segmentów pliku i usuwa wszystkie jego segmenty.
+     */
+    @Override
+    public void release(String filePath) {
+        SegmentCursor cursor = cursors.remove(filePath);
+        if (cursor != null) {
+            synchronized (cursor) {
+                cursor.close();
+            }
+        }
+        Path directory = directoryFor(filePath);
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(directory);
+            logger.info("Usunięto segmenty pliku bez subskrypcji: " + filePath);
+        } catch (IOException e) {
+            logger.error("Błąd podczas usuwania segmentów pliku: " + filePath, e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        cursors.values().forEach(cursor -> {
+            synchronized (cursor) {
+                cursor.close();
+            }
+        });
+        cursors.clear();
+    }
+
+    @Override
+    public String loadContent(FileChange change) {
+        if (change.getContent() != null || change.getSegmentId() == null) {
+            return change.getContent();
+        }
+        Path segment = segmentPath(directoryFor(change.getFilePath()), change.getSegmentId(), SEGMENT_SUFFIX);
+        if (!Files.exists(segment)) {
+            logger.warn("Segment zmiany został usunięty przez retencję: " + segment);
+            return "";
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            ByteBuffer header = readFully(channel, change.getSegmentOffset(), RECORD_HEADER_BYTES);
+            int compressedLength = header.getInt();
+            int rawLength = header.getInt();
+            ByteBuffer compressed = readFully(channel, change.getSegmentOffset() + RECORD_HEADER_BYTES, compressedLength);
+            return new String(decompress(compressed.array(), rawLength), StandardCharsets.UTF_8);
+        } catch (IOException | DataFormatException e) {
+            throw new ChangeStoreException("Nie udało się odczytać zmiany z segmentu: " + segment, e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${file-monitoring.change-store.retention-interval:PT1H}")
+    public void applyRetention() {
+        Path root = properties.getChangeStore().getDirectory();
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - properties.getChangeStore().getRetention().toMillis();
+        try (Stream<Path> directories = Files.list(root)) {
+            directories.filter(Files::isDirectory).forEach(directory -> applyRetention(directory, cutoff));
+        } catch (IOException e) {
+            logger.error("Błąd podczas przeglądania katalogu segmentów: " + root, e);
+        }
+    }
+
+    /**
+     * Usuwa zamknięte segmenty starsze niż retencja, ale nigdy segmentu, na który wskazuje jeszcze
+     * niewysłana zmiana - retencja zatrzymuje się na najniższym oczekującym segmencie pliku.
+     */
+    private void applyRetention(Path directory, long cutoff) {
+        try {
+            String filePath = Files.readString(directory.resolve(SOURCE_FILE));
+            long firstPendingSegmentId = fileChangeRepository.findMinPendingSegmentId(filePath).orElse(Long.MAX_VALUE);
+            List<Long> segmentIds = listSegmentIds(directory);
+            for (Long segmentId : segmentIds.subList(0, Math.max(0, segmentIds.size() - 1))) {
+                if (segmentId >= firstPendingSegmentId) {
+                    break;
+                }
+                Path index = segmentPath(directory, segmentId, INDEX_SUFFIX);
+                if (lastTimestamp(index) >= cutoff) {
+                    continue;
+                }
+                Files.deleteIfExists(segmentPath(directory, segmentId, SEGMENT_SUFFIX));
+                Files.deleteIfExists(index);
+                int removed = fileChangeRepository.deleteNotifiedBySegment(filePath, segmentId);
+                logger.info("Usunięto segment " + segmentId + " pliku " + filePath + " (" + removed + " rekordów zmian).");
+            }
+        } catch (IOException e) {
+            logger.error("Błąd podczas retencji segmentów w katalogu: " + directory, e);
+        }
+    }
+
+    private SegmentCursor openCursor(String filePath) {
+        Path directory = directoryFor(filePath);
+        try {
+            Files.createDirectories(directory);
+            Path source = directory.resolve(SOURCE_FILE);
+            if (!Files.exists(source)) {
+                Files.writeString(source, filePath);
+            }
+            List<Long> segmentIds = listSegmentIds(directory);
+            long segmentId = segmentIds.isEmpty() ? 0 : segmentIds.get(segmentIds.size() - 1);
+            SegmentCursor cursor = new SegmentCursor(directory);
+            cursor.open(segmentId);
+            return cursor;
+        } catch (IOException e) {
+            throw new ChangeStoreException("Nie udało się otworzyć segmentów pliku: " + filePath, e);
+        }
+    }
+
+    private Path directoryFor(String filePath) {
+        String name = UUID.nameUUIDFromBytes(filePath.getBytes(StandardCharsets.UTF_8)).toString();
+        return properties.getChangeStore().getDirectory().resolve(name);
+    }
+
+    private Path segmentPath(Path directory, long segmentId, String suffix) {
+        return directory.resolve(String.format("%020d%s", segmentId, suffix));
+    }
+
+    private List<Long> listSegmentIds(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private long lastTimestamp(Path index) throws IOException {
+        try (FileChannel channel = FileChannel.open(index, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < INDEX_ENTRY_BYTES) {
+                return Long.MIN_VALUE;
+            }
+            ByteBuffer entry = readFully(channel, size - INDEX_ENTRY_BYTES, INDEX_ENTRY_BYTES);
+            entry.getLong();
+            return entry.getLong();
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Nieoczekiwany koniec segmentu");
+            }
+        }
+        return buffer.flip();
+    }
+
+    private byte[] compress(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream output = new ByteArrayOutputStream(Math.max(64, raw.length / 2));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                output.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return output.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private byte[] decompress(byte[] compressed, int rawLength) throws DataFormatException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            byte[] raw = new byte[rawLength];
+            int inflated = 0;
+            while (inflated < rawLength && !inflater.finished()) {
+                int count = inflater.inflate(raw, inflated, rawLength - inflated);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new DataFormatException("Niekompletny rekord segmentu");
+                }
+                inflated += count;
+            }
+            return raw;
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Aktywny segment pliku - kanały {@code .seg} i {@code .idx} pozostają otwarte aż do zmiany
+     * segmentu albo zwolnienia pliku, więc dopisanie rekordu nie otwiera plików ponownie.
+     */
+    private class SegmentCursor {
+        private final Path directory;
+        private long segmentId;
+        private long size;
+        private FileChannel segmentChannel;
+        private FileChannel indexChannel;
+        private boolean closed;
+
+        private SegmentCursor(Path directory) {
+            this.directory = directory;
+        }
+
+        private void open(long segmentId) throws IOException {
+            FileChannel segment = FileChannel.open(segmentPath(directory, segmentId, SEGMENT_SUFFIX),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            try {
+                indexChannel = FileChannel.open(segmentPath(directory, segmentId, INDEX_SUFFIX),
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                segment.close();
+                throw e;
+            }
+            segmentChannel = segment;
+            size = segment.size();
+            this.segmentId = segmentId;
+        }
+
+        private void roll() throws IOException {
+            closeChannels();
+            open(segmentId + 1);
+        }
+
+        private void close() {
+            closed = true;
+            try {
+                closeChannels();
+            } catch (IOException e) {
+                logger.warn("Błąd podczas zamykania segmentu " + segmentId + " w katalogu: " + directory, e);
+            }
+        }
+
+        private void closeChannels() throws IOException {
+            FileChannel segment = segmentChannel;
+            FileChannel index = indexChannel;
+            segmentChannel = null;
+            indexChannel = null;
+            try {
+                if (segment != null) {
+                    segment.close();
+                }
+            } finally {
+                if (index != null) {
+                    index.close();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package org.example.filemonitoringapi.file;
+
+import org.example.filemonitoringapi.config.FileMonitoringProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Ograniczony (LRU) bufor stanów {@link FileTailState}. Stan jest ładowany z bazy przy
+ * pierwszym odwołaniu. Stan początkowy jest zapisywany od razu (write-through), a kolejne offsety
+ * zapisuje {@link FileChangeWriter} w tej samej transakcji co odczytane zmiany.
+ */
+@Component
+public class TailStateCache {
+    private final Logger logger = LoggerFactory.getLogger(TailStateCache.class);
+    private final Map<String, FileTailState> states;
+    private final FileTailStateRepository fileTailStateRepository;
+
+    public TailStateCache(FileTailStateRepository fileTailStateRepository, FileMonitoringProperties properties) {
+        this.fileTailStateRepository = fileTailStateRepository;
+        int maxSize = properties.getTailStateCache().getMaxSize();
+        this.states = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, FileTailState> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public Optional<FileTailState> get(String filePath) {
+        synchronized (states) {
+            FileTailState cached = states.get(filePath);
+            if (cached != null) {
+                return Optional.of(cached);
+            }
+        }
+        Optional<FileTailState> stored = fileTailStateRepository.findById(filePath);
+        stored.ifPresent(this::put);
+        return stored;
+    }
+
+    public void save(FileTailState tailState) {
+        persist(tailState);
+        put(tailState);
+    }
+
+    public void delete(String filePath) {
+        synchronized (states) {
+            states.remove(filePath);
+        }
+        fileTailStateRepository.deleteById(filePath);
+    }
+
+    /**
+     * Wczytuje stany wielu plików jednym zapytaniem, np. przed masową rejestracją obserwatorów.
+     */
+    public void preload(Collection<String> filePaths) {
+        fileTailStateRepository.findAllById(filePaths).forEach(this::put);
+    }
+
+    public void evict(String filePath) {
+        synchronized (states) {
+            states.remove(filePath);
+        }
+    }
+
+    @EventListener
+    public void onChangesPersisted(FileChangesPersistedEvent event) {
+        // Kopie stanów zapisane razem ze zmianami mają już lastChangeId - tu uzupełniamy stan w buforze.
+        synchronized (states) {
+            event.getChanges().forEach(change -> {
+                FileTailState cached = states.get(change.getFilePath());
+                if (cached != null) {
+                    cached.setLastChangeId(change.getId());
+                }
+            });
+        }
+    }
+
+    public int size() {
+        synchronized (states) {
+            return states.size();
+        }
+    }
+
+    /**
+     * Zapisuje stan tylko w bazie, bez podmiany wpisu w buforze - używane przez {@link FileChangeWriter}
+     * dla kopii stanu zapisywanej razem ze zmianami. Nowy stan jest wstawiany przez {@code save}, który dzięki
+     * {@link FileTailState#isNew()} robi INSERT bez SELECT-a, a znany aktualizowany jednym UPDATE.
+     * Jeśli UPDATE nie trafi w żaden wiersz, stan został usunięty przy anulowaniu subskrypcji - zapis jest
+     * pomijany, żeby spóźniona kopia nie odtworzyła starego offsetu dla kolejnej subskrypcji.
+     */
+    public void persist(FileTailState tailState) {
+        if (tailState.isNew()) {
+            fileTailStateRepository.save(tailState);
+        } else if (fileTailStateRepository.updateState(tailState) == 0) {
+            logger.debug("Pominięto zapis stanu usuniętego pliku: {}", tailState.getFilePath());
+        }
+    }
+
+    private void put(FileTailState tailState) {
+        synchronized (states) {
+            states.put(tailState.getFilePath(), tailState);
+        }
+    }
+}
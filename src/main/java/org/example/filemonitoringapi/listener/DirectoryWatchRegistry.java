@@ -0,0 +1,175 @@
+package org.example.filemonitoringapi.listener;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Rejestr katalogów obserwowanych przez jeden wspólny {@link WatchService}.
+ * Każdy katalog ma dokładnie jeden {@link WatchKey}, a zdarzenia są kierowane do plików
+ * na podstawie {@link WatchEvent#context()}. Klucz katalogu jest anulowany dopiero wtedy,
+ * gdy ostatnia subskrypcja pliku z tego katalogu zostanie usunięta.
+ */
+public class DirectoryWatchRegistry {
+
+    private final Logger logger = LoggerFactory.getLogger(DirectoryWatchRegistry.class);
+
+    private final Map<Path, WatchedDirectory> directories = new HashMap<>();
+    private final Map<WatchKey, WatchedDirectory> directoriesByKey = new ConcurrentHashMap<>();
+    private WatchService watchService;
+
+    public synchronized WatchService getWatchService() throws IOException {
+        if (watchService == null) {
+            watchService = FileSystems.getDefault().newWatchService();
+        }
+        return watchService;
+    }
+
+    /**
+     * @return {@code true}, jeśli plik nie był wcześniej obserwowany
+     */
+    public synchronized boolean register(String filePath) throws IOException {
+        Path file = Paths.get(filePath).toAbsolutePath().normalize();
+        Path directory = file.getParent();
+
+        WatchedDirectory watchedDirectory = directories.get(directory);
+        if (watchedDirectory == null) {
+            WatchKey key = directory.register(getWatchService(), StandardWatchEventKinds.ENTRY_MODIFY);
+            watchedDirectory = new WatchedDirectory(directory, key);
+            directories.put(directory, watchedDirectory);
+            directoriesByKey.put(key, watchedDirectory);
+        } else if (!watchedDirectory.key.isValid()) {
+            reregister(watchedDirectory);
+        }
+        return watchedDirectory.addFile(file.getFileName(), filePath);
+    }
+
+    /**
+     * @return {@code true}, jeśli była to ostatnia subskrypcja pliku
+     */
+    public synchronized boolean unregister(String filePath) {
+        Path file = Paths.get(filePath).toAbsolutePath().normalize();
+        Path directory = file.getParent();
+
+        WatchedDirectory watchedDirectory = directories.get(directory);
+        if (watchedDirectory == null) {
+            return false;
+        }
+        boolean removed = watchedDirectory.removeFile(file.getFileName());
+        if (watchedDirectory.isEmpty()) {
+            watchedDirectory.key.cancel();
+            directories.remove(directory);
+            directoriesByKey.remove(watchedDirectory.key);
+        }
+        return removed;
+    }
+
+    public Optional<String> findFilePath(WatchKey key, Path fileName) {
+        WatchedDirectory watchedDirectory = directoriesByKey.get(key);
+        if (watchedDirectory == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(watchedDirectory.filePaths.get(fileName));
+    }
+
+    public List<String> findFilePaths(WatchKey key) {
+        WatchedDirectory watchedDirectory = directoriesByKey.get(key);
+        if (watchedDirectory == null) {
+            return List.of();
+        }
+        return new ArrayList<>(watchedDirectory.filePaths.values());
+    }
+
+    /**
+     * Ponownie rejestruje katalog, którego klucz stał się nieważny. Liczniki subskrypcji są
+     * zachowywane także wtedy, gdy rejestracja się nie powiedzie, więc {@link #unregister(String)}
+     * nadal zwalnia pliki, a kolejna rejestracja pliku z tego katalogu ponawia próbę.
+     *
+     * @return ścieżki plików, dla których mogły zostać utracone zdarzenia
+     */
+    public synchronized List<String> invalidate(WatchKey key) {
+        WatchedDirectory watchedDirectory = directoriesByKey.get(key);
+        if (watchedDirectory == null || watchedDirectory.key != key) {
+            return List.of();
+        }
+        reregister(watchedDirectory);
+        return new ArrayList<>(watchedDirectory.filePaths.values());
+    }
+
+    private void reregister(WatchedDirectory watchedDirectory) {
+        directoriesByKey.remove(watchedDirectory.key);
+        watchedDirectory.key.cancel();
+        try {
+            watchedDirectory.key = watchedDirectory.directory.register(getWatchService(), StandardWatchEventKinds.ENTRY_MODIFY);
+            directoriesByKey.put(watchedDirectory.key, watchedDirectory);
+            logger.info("Ponownie zarejestrowano obserwację katalogu: {}", watchedDirectory.directory);
+        } catch (IOException | ClosedWatchServiceException e) {
+            logger.warn("Nie udało się ponownie zarejestrować obserwacji katalogu {}. Zmiany plików nie będą wykrywane do czasu kolejnej rejestracji.",
+                    watchedDirectory.directory, e);
+        }
+    }
+
+    public synchronized boolean isWatching(String filePath) {
+        Path file = Paths.get(filePath).toAbsolutePath().normalize();
+        WatchedDirectory watchedDirectory = directories.get(file.getParent());
+        return watchedDirectory != null && watchedDirectory.referenceCounts.containsKey(file.getFileName());
+    }
+
+    public synchronized int getWatchedFileCount() {
+        return directories.values().stream().mapToInt(directory -> directory.referenceCounts.size()).sum();
+    }
+
+    public synchronized int getWatchedDirectoryCount() {
+        return directories.size();
+    }
+
+    public synchronized int getOpenWatchServiceCount() {
+        return watchService != null ? 1 : 0;
+    }
+
+    public synchronized void close() throws IOException {
+        directories.clear();
+        directoriesByKey.clear();
+        if (watchService != null) {
+            watchService.close();
+            watchService = null;
+        }
+    }
+
+    private static class WatchedDirectory {
+        private final Path directory;
+        private WatchKey key;
+        private final Map<Path, String> filePaths = new ConcurrentHashMap<>();
+        private final Map<Path, Integer> referenceCounts = new HashMap<>();
+
+        private WatchedDirectory(Path directory, WatchKey key) {
+            this.directory = directory;
+            this.key = key;
+        }
+
+        private boolean addFile(Path fileName, String filePath) {
+            filePaths.putIfAbsent(fileName, filePath);
+            return referenceCounts.merge(fileName, 1, Integer::sum) == 1;
+        }
+
+        private boolean removeFile(Path fileName) {
+            if (!referenceCounts.containsKey(fileName)) {
+                return false;
+            }
+            Integer count = referenceCounts.computeIfPresent(fileName, (name, current) -> current > 1 ? current - 1 : null);
+            if (count == null) {
+                filePaths.remove(fileName);
+                return true;
+            }
+            return false;
+        }
+
+        private boolean isEmpty() {
+            return referenceCounts.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package org.example.filemonitoringapi.listener;
+
+import java.util.List;
+
+public interface FileEventListener {
+
+    void onFileModified(String filePath);
+
+    void onEventsLost(List<String> filePaths);
+}
@@ -0,0 +1,53 @@
+package org.example.filemonitoringapi.listener;
+
+import lombok.AllArgsConstructor;
+import org.example.filemonitoringapi.exception.FileReadException;
+import org.example.filemonitoringapi.file.FileTailState;
+import org.example.filemonitoringapi.file.FileTailStateRepository;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Objects;
+
+/**
+ * Sprowadza ścieżki różnych subskrypcji tego samego pliku do jednej postaci. {@code ./logs/a.log},
+ * {@code logs/a.log} i dowiązanie symboliczne dają tę samą ścieżkę z {@link java.nio.file.Path#toRealPath},
+ * a dowiązania twarde są rozpoznawane po {@code fileKey} już obserwowanego pliku.
+ * Dzięki temu jeden plik fizyczny ma jeden obserwator, jeden odczyt i jeden strumień zmian.
+ */
+@AllArgsConstructor
+@Component
+public class FilePathCanonicalizer {
+
+    private FileTailReader fileTailReader;
+    private FileTailStateRepository fileTailStateRepository;
+
+    public String canonicalize(String filePath) throws FileReadException {
+        String realPath;
+        try {
+            realPath = Paths.get(filePath).toRealPath().toString();
+        } catch (IOException e) {
+            throw new FileReadException("Nie udało się ustalić ścieżki pliku: " + filePath, e);
+        }
+
+        String fileKey = fileTailReader.currentFileKey(realPath);
+        if (fileKey == null) {
+            return realPath;
+        }
+        return fileTailStateRepository.findByFileKey(fileKey).stream()
+                .map(FileTailState::getFilePath)
+                .filter(watchedPath -> watchedPath.equals(realPath) || hasFileKey(watchedPath, fileKey))
+                .findFirst()
+                .orElse(realPath);
+    }
+
+    private boolean hasFileKey(String watchedPath, String fileKey) {
+        // Numery i-węzłów są używane ponownie po usunięciu pliku, więc stary stan mógł należeć do innego pliku.
+        try {
+            return Objects.equals(fileTailReader.currentFileKey(watchedPath), fileKey);
+        } catch (FileReadException e) {
+            return false;
+        }
+    }
+}
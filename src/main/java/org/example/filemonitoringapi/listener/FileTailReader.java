@@ -0,0 +1,249 @@
+package org.example.filemonitoringapi.listener;
+
+import lombok.AllArgsConstructor;
+import org.example.filemonitoringapi.config.FileMonitoringProperties;
+import org.example.filemonitoringapi.exception.FileReadException;
+import org.example.filemonitoringapi.file.ChangeType;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+import java.util.zip.CRC32;
+
+/**
+ * Czyta tylko bajty dopisane do pliku od zapamiętanego offsetu. Zmiana klucza pliku
+ * (rotacja) lub rozmiar mniejszy od offsetu (obcięcie) powodują czytanie od początku.
+ * Pliki powyżej progu {@code file-monitoring.reader.mapped-threshold} są czytane przez
+ * {@link FileChannel#map}, bez kopiowania dopisanego fragmentu do tablicy na stercie - linie są wyszukiwane
+ * bezpośrednio w buforze, a dekodowane są tylko ich zakresy.
+ * Powód czytania od początku jest zwracany w {@link TailChunk#getChangeType()}.
+ */
+@AllArgsConstructor
+@Component
+public class FileTailReader {
+
+    private static final int INITIAL_LINE_WINDOW = 1024;
+    private static final int MAX_LINE_WINDOW = 64 * 1024;
+
+    private FileMonitoringProperties properties;
+
+    public BasicFileAttributes readAttributes(String filePath) throws FileReadException {
+        try {
+            return Files.readAttributes(Paths.get(filePath), BasicFileAttributes.class);
+        } catch (IOException e) {
+            throw new FileReadException("Nie udało się odczytać atrybutów pliku: " + filePath, e);
+        }
+    }
+
+    public String currentFileKey(String filePath) throws FileReadException {
+        return fileKeyOf(readAttributes(filePath));
+    }
+
+    public long currentSize(String filePath) throws FileReadException {
+        try {
+            return Files.size(Paths.get(filePath));
+        } catch (IOException e) {
+            throw new FileReadException("Nie udało się odczytać rozmiaru pliku: " + filePath, e);
+        }
+    }
+
+    /**
+     * Suma kontrolna CRC32 bajtów pliku z zakresu [{@code start}, {@code end}) - pozwala zauważyć zmianę
+     * już odczytanej części, nie tylko w linii kończącej się na offsecie.
+     */
+    public long checksum(String filePath, long start, long end) throws FileReadException {
+        CRC32 crc = new CRC32();
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(Math.max(end - start, 1), MAX_LINE_WINDOW));
+            long position = start;
+            while (position < end) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    break;
+                }
+                crc.update(buffer.flip());
+                position += read;
+            }
+        } catch (IOException e) {
+            throw new FileReadException("Nie udało się odczytać zawartości pliku z: " + filePath, e);
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * @return ostatnia pełna linia kończąca się przed {@code offset} (bez znaku końca linii) albo {@code null},
+     * jeśli jest dłuższa niż {@value #MAX_LINE_WINDOW} bajtów
+     */
+    public String readLineBefore(String filePath, long offset) throws FileReadException {
+        if (offset <= 0) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            long end = Math.min(offset, channel.size());
+            for (int window = INITIAL_LINE_WINDOW; ; window *= 4) {
+                int length = (int) Math.min(end, window);
+                ByteBuffer buffer = readBuffer(channel, end - length, length);
+                int lineEnd = buffer.limit();
+                if (lineEnd > 0 && buffer.get(lineEnd - 1) == '\n') {
+                    lineEnd--;
+                }
+                if (lineEnd > 0 && buffer.get(lineEnd - 1) == '\r') {
+                    lineEnd--;
+                }
+                int lineStart = lineEnd;
+                while (lineStart > 0 && buffer.get(lineStart - 1) != '\n') {
+                    lineStart--;
+                }
+                if (lineStart > 0 || length == end) {
+                    return StandardCharsets.UTF_8.decode(buffer.limit(lineEnd).position(lineStart)).toString();
+                }
+                if (window >= MAX_LINE_WINDOW) {
+                    return null;
+                }
+            }
+        } catch (IOException e) {
+            throw new FileReadException("Nie udało się odczytać zawartości pliku z: " + filePath, e);
+        }
+    }
+
+    /**
+     * Czyta wszystkie pełne linie pliku od początku - używane, gdy plik został zmieniony w środku.
+     */
+    public TailChunk readAll(String filePath) throws FileReadException {
+        Path path = Paths.get(filePath);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            int length = (int) Math.min(channel.size(), Integer.MAX_VALUE);
+            ByteBuffer buffer = readBuffer(channel, 0, length);
+            int end = completeLinesEnd(buffer, false);
+            return new TailChunk(toContent(buffer.limit(end)), end, fileKeyOf(attributes),
+                    attributes.lastModifiedTime().toMillis(), false, ChangeType.EDITED);
+        } catch (IOException e) {
+            throw new FileReadException("Nie udało się odczytać zawartości pliku z: " + filePath, e);
+        }
+    }
+
+    public TailChunk readAppended(String filePath, long offset, String fileKey) throws FileReadException {
+        Path path = Paths.get(filePath);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            String currentFileKey = fileKeyOf(attributes);
+            long lastModified = attributes.lastModifiedTime().toMillis();
+            long size = channel.size();
+            long position = offset;
+            ChangeType changeType = ChangeType.APPENDED;
+            if (fileKey != null && !Objects.equals(fileKey, currentFileKey)) {
+                changeType = ChangeType.ROTATED;
+                position = 0;
+            } else if (size < position) {
+                changeType = ChangeType.TRUNCATED;
+                position = 0;
+            }
+
+            long available = size - position;
+            if (available <= 0) {
+                return new TailChunk("", position, currentFileKey, lastModified, false, changeType);
+            }
+
+            FileMonitoringProperties.Reader reader = properties.getReader();
+            boolean mapped = available >= reader.getMappedThreshold().toBytes();
+            long maxChunkSize = mapped ? reader.getMaxMappedChunkSize().toBytes() : reader.getMaxChunkSize().toBytes();
+            int length = (int) Math.min(available, Math.min(maxChunkSize, Integer.MAX_VALUE));
+            ByteBuffer buffer = mapped ? channel.map(FileChannel.MapMode.READ_ONLY, position, length) : readBuffer(channel, position, length);
+
+            int end = completeLinesEnd(buffer, length == maxChunkSize);
+            String content = toContent(buffer.limit(end));
+            long newOffset = position + end;
+            return new TailChunk(content, newOffset, currentFileKey, lastModified, newOffset < size && end > 0,
+                    changeType);
+        } catch (IOException e) {
+            throw new FileReadException("Nie udało się odczytać zawartości pliku z: " + filePath, e);
+        }
+    }
+
+    private ByteBuffer readBuffer(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                break;
+            }
+        }
+        return buffer.flip();
+    }
+
+    private int completeLinesEnd(ByteBuffer buffer, boolean fullChunk) {
+        for (int i = buffer.limit() - 1; i >= 0; i--) {
+            if (buffer.get(i) == '\n') {
+                return i + 1;
+            }
+        }
+        return fullChunk ? characterBoundary(buffer, buffer.limit()) : 0;
+    }
+
+    /**
+     * Cofa koniec pełnego fragmentu bez znaku końca linii do początku znaku UTF-8, który nie mieści się
+     * w całości - jego dalsze bajty zostaną odczytane razem z resztą linii.
+     */
+    private int characterBoundary(ByteBuffer buffer, int end) {
+        int start = end - 1;
+        while (start > 0 && end - start < 4 && (buffer.get(start) & 0xC0) == 0x80) {
+            start--;
+        }
+        if (start < 0) {
+            return end;
+        }
+        int lead = buffer.get(start) & 0xFF;
+        int width = lead >= 0xF0 ? 4 : lead >= 0xE0 ? 3 : lead >= 0xC0 ? 2 : 1;
+        return start > 0 && start + width > end ? start : end;
+    }
+
+    /**
+     * Dekoduje kolejne linie wprost z bufora (również zmapowanego) do jednego bufora znaków, pomijając
+     * {@code \r} przed {@code \n} i końcowy znak nowej linii.
+     */
+    private String toContent(ByteBuffer buffer) {
+        int end = buffer.limit();
+        if (end > 0 && buffer.get(end - 1) == '\n') {
+            end--;
+            if (end > 0 && buffer.get(end - 1) == '\r') {
+                end--;
+            }
+        }
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        CharBuffer content = CharBuffer.allocate(end);
+        int lineStart = 0;
+        while (lineStart <= end) {
+            int lineEnd = lineStart;
+            while (lineEnd < end && buffer.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            int textEnd = lineEnd < end && lineEnd > lineStart && buffer.get(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+            decoder.reset().decode(buffer.duplicate().limit(textEnd).position(lineStart), content, true);
+            decoder.flush(content);
+            if (lineEnd < end) {
+                content.put('\n');
+            }
+            lineStart = lineEnd + 1;
+        }
+        return content.flip().toString();
+    }
+
+    public String fileKeyOf(BasicFileAttributes attributes) {
+        Object fileKey = attributes.fileKey();
+        return fileKey != null ? fileKey.toString() : null;
+    }
+}
@@ -1,200 +1,480 @@
 package org.example.filemonitoringapi.listener;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.AllArgsConstructor;
-import org.example.filemonitoringapi.email.EmailService;
+import org.example.filemonitoringapi.cluster.ClusterMembership;
+import org.example.filemonitoringapi.config.FileMonitoringProperties;
 import org.example.filemonitoringapi.exception.FileReadException;
 import org.example.filemonitoringapi.exception.FileWatcherRegistrationException;
+import org.example.filemonitoringapi.file.ChangeStore;
+import org.example.filemonitoringapi.file.ChangeType;
 import org.example.filemonitoringapi.file.FileChange;
-import org.example.filemonitoringapi.file.FileChangeRepository;
+import org.example.filemonitoringapi.file.FileChangeWriter;
+import org.example.filemonitoringapi.file.FileTailState;
+import org.example.filemonitoringapi.file.TailStateCache;
 import org.example.filemonitoringapi.subscription.SubscriptionRepository;
 import org.example.filemonitoringapi.subscription.model.Subscription;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.scheduling.annotation.Async;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.io.BufferedReader;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
 
 @AllArgsConstructor
 @Service
-public class FileWatcherService {
+public class FileWatcherService implements FileEventListener {
     private final Logger logger = LoggerFactory.getLogger(FileWatcherService.class);
-    private final ExecutorService executor = Executors.newCachedThreadPool();
-    private final Map<String, WatchService> watchServices = new ConcurrentHashMap<>();
-    private EmailService emailService;
+    private final Map<String, ReentrantLock> fileLocks = new ConcurrentHashMap<>();
+    private final Map<Long, Subscription> registeredSubscriptions = new ConcurrentHashMap<>();
+    private final Map<String, Long> eventSeenAt = new ConcurrentHashMap<>();
     private SubscriptionRepository subscriptionRepository;
-    private FileChangeRepository fileChangeRepository;
-
-
+    private TailStateCache tailStateCache;
+    private FileChangeWriter fileChangeWriter;
+    private FileTailReader fileTailReader;
+    private ModificationCoalescer modificationCoalescer;
+    private MeterRegistry meterRegistry;
+    private List<WatchEngine> watchEngines;
+    private FileMonitoringProperties properties;
+    private ChangeStore changeStore;
+    private ClusterMembership clusterMembership;
+    private LineDiffEngine lineDiffEngine;
+    private LineHashCache lineHashCache;
+
+
+    /**
+     * Plik jest obserwowany tylko przez węzeł, który jest jego właścicielem w klastrze. Pozostałe węzły
+     * zapisują jedynie początkowy stan odczytu, żeby właściciel nadrobił zmiany od chwili subskrypcji.
+     */
     public void registerFileWatcher(Subscription subscription) throws FileWatcherRegistrationException {
-        String filePath = subscription.getFilePath();
-        Path path = Paths.get(filePath).getParent();
-        if (!watchServices.containsKey(filePath)) {
-            try {
-                WatchService watchService = FileSystems.getDefault().newWatchService();
-                path.register(watchService, StandardWatchEventKinds.ENTRY_MODIFY);
-                watchServices.put(filePath, watchService);
-
-                executor.submit(() -> watchFileChanges(filePath, watchService));
-                subscriptionRepository.save(subscription);
-                String initialContent = readFileContent(filePath);
-
-                FileChange initialChange = new FileChange(filePath, initialContent, LocalDateTime.now(), LocalDateTime.now());
-                fileChangeRepository.save(initialChange);
+        String filePath = subscription.getTargetPath();
+        try {
+            if (!clusterMembership.isOwner(filePath)) {
+                ensureTailState(filePath);
+                return;
+            }
+            if (subscription.getId() != null && registeredSubscriptions.putIfAbsent(subscription.getId(), subscription) != null) {
+                return;
+            }
+        } catch (FileReadException e) {
+            throw new FileWatcherRegistrationException("Błąd podczas odczytu pliku: " + filePath, e);
+        }
 
-            } catch (IOException e) {
-                throw new FileWatcherRegistrationException("Błąd podczas rejestracji FileWatcher dla: " + filePath, e);
-            } catch (FileReadException e) {
-                throw new FileWatcherRegistrationException("Błąd podczas odczytu pliku: " + filePath, e);
+        WatchEngine watchEngine = selectEngine(subscription);
+        try {
+            if (watchEngine.register(filePath)) {
+                watchEngine.start(this);
+                initializeTailState(filePath);
             }
+        } catch (IOException e) {
+            forget(subscription);
+            throw new FileWatcherRegistrationException("Błąd podczas rejestracji FileWatcher dla: " + filePath, e);
+        } catch (FileReadException e) {
+            forget(subscription);
+            watchEngine.unregister(filePath);
+            throw new FileWatcherRegistrationException("Błąd podczas odczytu pliku: " + filePath, e);
         }
     }
 
 
     public void unregisterFileWatcher(Subscription subscription) {
         if (subscription != null) {
-            String filePath = subscription.getFilePath();
-
-            WatchService watchService = watchServices.get(filePath);
-            if (watchService != null) {
-                try {
-                    watchService.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-                watchServices.remove(filePath);
+            if (subscription.getId() == null || registeredSubscriptions.remove(subscription.getId()) != null) {
+                release(subscription, true);
             }
-
             subscriptionRepository.delete(subscription);
         }
     }
-    @Async
-    public void watchFileChanges(String filePath, WatchService watchService) {
-        while (!Thread.currentThread().isInterrupted()) {
-            WatchKey key;
-            try {
-                key = watchService.take();
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                logger.info("Wątek monitorujący zmiany plików został przerwany.");
-                return;
-            } catch (ClosedWatchServiceException e) {
-                logger.info("Serwis WatchService został zamknięty.");
-                return;
-            }
 
-            for (WatchEvent<?> event : key.pollEvents()) {
-                WatchEvent.Kind<?> kind = event.kind();
+    /**
+     * Przestaje obserwować plik subskrypcji bez jej usuwania - np. gdy plik przejął inny węzeł klastra.
+     */
+    public void releaseFileWatcher(Subscription subscription, boolean stillSubscribed) {
+        if (registeredSubscriptions.remove(subscription.getId()) != null) {
+            release(subscription, !stillSubscribed);
+        }
+    }
+
+    public Collection<Subscription> getRegisteredSubscriptions() {
+        return List.copyOf(registeredSubscriptions.values());
+    }
 
-                if (kind == StandardWatchEventKinds.OVERFLOW) {
-                    continue;
-                }
+    public boolean isRegistered(Long subscriptionId) {
+        return registeredSubscriptions.containsKey(subscriptionId);
+    }
 
-                try {
-                    if (kind == StandardWatchEventKinds.ENTRY_MODIFY) {
-                        handleFileModification(filePath);
-                    }
-                } catch (Exception e) {
-                    logger.error("Błąd podczas przetwarzania zmiany pliku: " + filePath, e);
-                }
+    private void release(Subscription subscription, boolean deleteTailState) {
+        String filePath = subscription.getTargetPath();
+        if (selectEngine(subscription).unregister(filePath)
+                && watchEngines.stream().noneMatch(engine -> engine.isWatching(filePath))) {
+            fileLocks.remove(filePath);
+            lineHashCache.remove(filePath);
+            if (deleteTailState) {
+                fileChangeWriter.discard(filePath);
+                tailStateCache.delete(filePath);
+                changeStore.release(filePath);
+            } else {
+                tailStateCache.evict(filePath);
             }
+        }
+    }
 
-            boolean valid = key.reset();
-            if (!valid) {
-                logger.info("Klucz WatchService stał się nieważny.");
-                break;
-            }
+    private void forget(Subscription subscription) {
+        if (subscription.getId() != null) {
+            registeredSubscriptions.remove(subscription.getId());
+        }
+    }
+
+    @Override
+    public void onFileModified(String filePath) {
+        eventSeenAt.putIfAbsent(filePath, System.currentTimeMillis());
+        modificationCoalescer.submit(filePath, this::handleFileModification);
+    }
+
+    @Override
+    public void onEventsLost(List<String> filePaths) {
+        reconcileAfterOverflow(filePaths);
+    }
+
+    private WatchEngine selectEngine(Subscription subscription) {
+        WatchEngineType type = subscription.getWatchEngine();
+        if (type == null) {
+            String absolutePath = Paths.get(subscription.getTargetPath()).toAbsolutePath().normalize().toString();
+            boolean polled = properties.getWatcher().getPolling().getPathPrefixes().stream()
+                    .anyMatch(absolutePath::startsWith);
+            type = polled ? WatchEngineType.POLLING : WatchEngineType.NATIVE;
+        }
+        WatchEngineType selectedType = type;
+        return watchEngines.stream()
+                .filter(engine -> engine.getType() == selectedType)
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("Brak silnika obserwacji typu: " + selectedType));
+    }
+
+
+    private void initializeTailState(String filePath) throws FileReadException {
+        Optional<FileTailState> tailState = tailStateCache.get(filePath);
+        if (tailState.isPresent()) {
+            handleFileModification(filePath);
+            return;
+        }
+        saveInitialTailState(filePath);
+        seedLineHashes(filePath);
+    }
+
+    private void ensureTailState(String filePath) throws FileReadException {
+        if (tailStateCache.get(filePath).isEmpty()) {
+            saveInitialTailState(filePath);
         }
+        // Stan należy do właściciela pliku - nie trzymamy jego kopii, która mogłaby się zestarzeć.
+        tailStateCache.evict(filePath);
     }
 
+    private void saveInitialTailState(String filePath) throws FileReadException {
+        BasicFileAttributes attributes = fileTailReader.readAttributes(filePath);
+        FileTailState initialState = new FileTailState(filePath);
+        initialState.setByteOffset(attributes.size());
+        initialState.setFileKey(fileTailReader.currentFileKey(filePath));
+        initialState.setLastModified(attributes.lastModifiedTime().toMillis());
+        initialState.setLastLineHash(lineHash(fileTailReader.readLineBefore(filePath, attributes.size())));
+        updatePrefixChecksum(initialState);
+        initialState.setUpdatedAt(LocalDateTime.now());
+        tailStateCache.save(initialState);
+    }
+
+    /**
+     * Zapamiętuje skróty linii małych plików, żeby pierwszą zmianę w środku pliku dało się opisać różnicą.
+     */
+    private void seedLineHashes(String filePath) throws FileReadException {
+        if (fileTailReader.currentSize(filePath) > properties.getDiff().getMaxFileSize().toBytes()) {
+            return;
+        }
+        TailChunk chunk = fileTailReader.readAll(filePath);
+        if (chunk.getOffset() == tailStateCache.get(filePath).map(FileTailState::getByteOffset).orElse(-1L)) {
+            lineHashCache.replace(filePath, lineDiffEngine.hashLines(linesOf(chunk, 0)));
+        }
+    }
 
     private void handleFileModification(String filePath) {
+        ReentrantLock lock = lockFor(filePath);
+        lock.lock();
         try {
-            String currentContent = readFileContent(filePath);
-            Optional<FileChange> lastChange = fileChangeRepository.findTopByFilePathOrderByChangeTimeDesc(filePath);
-            String lastKnownChangeContent = lastChange.map(FileChange::getContent).orElse("");
-
-            String newChanges = extractNewChanges(lastKnownChangeContent, currentContent);
-            if (!newChanges.isEmpty()) {
-                LocalDateTime now = LocalDateTime.now();
-                FileChange change = new FileChange(filePath, newChanges, now, null);
-                fileChangeRepository.save(change);
+            Optional<FileTailState> storedState = tailStateCache.get(filePath);
+            if (storedState.isEmpty()) {
+                return;
+            }
+            // Token sprzed odczytu - zapis zostanie odrzucony, jeśli w międzyczasie shard przejmie inny węzeł.
+            OptionalLong fencingToken = clusterMembership.fencingTokenOf(filePath);
+            if (fencingToken.isEmpty()) {
+                logger.debug("Pominięto zmianę pliku, którego węzeł nie jest już właścicielem: {}", filePath);
+                return;
+            }
+            FileTailState tailState = storedState.get();
+            Long seenAt = eventSeenAt.remove(filePath);
+            long previousLastModified = tailState.getLastModified();
+            List<FileChange> changes = new ArrayList<>();
+            try {
+                readNewChanges(tailState, changes::add);
+            } finally {
+                // Offset jest przesuwany po każdym odczytanym fragmencie, więc zmiany sprzed błędu
+                // są spójne ze stanem i trafiają do zapisu razem z nim.
+                fileChangeWriter.enqueue(changes, tailState.snapshot(), fencingToken.getAsLong());
+            }
+            if (seenAt != null && tailState.getLastModified() != previousLastModified) {
+                recordDetectionLatency(seenAt, tailState.getLastModified());
             }
         } catch (FileReadException e) {
             logger.error("Błąd podczas obsługi modyfikacji pliku: " + filePath, e);
+        } finally {
+            lock.unlock();
         }
     }
 
+    private void reconcileAfterOverflow(List<String> affectedFilePaths) {
+        meterRegistry.counter("filemonitoring.watcher.overflows").increment();
+        List<String> filePaths = affectedFilePaths.stream().sorted().toList();
+        List<ReentrantLock> locks = filePaths.stream().map(this::lockFor).toList();
+        locks.forEach(ReentrantLock::lock);
+        try {
+            int reconciledFiles = 0;
+            long recoveredBytes = 0;
 
-    @Scheduled(cron = "0 0 12 * * ?")
-    public void sendPendingNotifications() {
-        List<FileChange> pendingChanges = fileChangeRepository.findByLastNotificationSentIsNull();
-        Map<String, List<FileChange>> changesByFilePath = pendingChanges.stream()
-                .collect(Collectors.groupingBy(FileChange::getFilePath));
-
-        changesByFilePath.forEach((filePath, changes) -> {
-            List<Subscription> activeSubscriptions = subscriptionRepository.findByFilePathAndActive(filePath, true);
+            for (String filePath : filePaths) {
+                Optional<FileTailState> storedState = tailStateCache.get(filePath);
+                if (storedState.isEmpty()) {
+                    continue;
+                }
+                OptionalLong fencingToken = clusterMembership.fencingTokenOf(filePath);
+                if (fencingToken.isEmpty()) {
+                    continue;
+                }
+                FileTailState tailState = storedState.get();
+                try {
+                    BasicFileAttributes attributes = fileTailReader.readAttributes(filePath);
+                    if (attributes.size() == tailState.getByteOffset()
+                            && attributes.lastModifiedTime().toMillis() == tailState.getLastModified()) {
+                        continue;
+                    }
+                    long previousOffset = tailState.getByteOffset();
+                    List<FileChange> recoveredChanges = new ArrayList<>();
+                    try {
+                        readNewChanges(tailState, recoveredChanges::add);
+                    } finally {
+                        fileChangeWriter.enqueue(recoveredChanges, tailState.snapshot(), fencingToken.getAsLong());
+                    }
+                    reconciledFiles++;
+                    long currentOffset = tailState.getByteOffset();
+                    recoveredBytes += currentOffset >= previousOffset ? currentOffset - previousOffset : currentOffset;
+                } catch (FileReadException e) {
+                    logger.error("Błąd podczas uzgadniania pliku po przepełnieniu kolejki: " + filePath, e);
+                }
+            }
 
-            activeSubscriptions.forEach(subscription -> {
-                String changesContent = changes.stream()
-                        .map(FileChange::getContent)
-                        .collect(Collectors.joining("\n"));
-                String emailBody = generateEmailBody(filePath, changesContent);
-                emailService.sendEmail(subscription.getEmail(), "Zmiana w pliku: " + filePath, emailBody);
+            meterRegistry.counter("filemonitoring.watcher.overflow.recovered.bytes").increment(recoveredBytes);
+            logger.warn("Przepełnienie kolejki zdarzeń, uzgodniono " + reconciledFiles + " plików ("
+                    + recoveredBytes + " bajtów).");
+        } finally {
+            locks.forEach(ReentrantLock::unlock);
+        }
+    }
 
-                changes.forEach(change -> {
-                    change.setLastNotificationSent(LocalDateTime.now());
-                    fileChangeRepository.save(change);
-                });
+    private void readNewChanges(FileTailState tailState, Consumer<FileChange> sink) throws FileReadException {
+        if (isEditedInPlace(tailState)) {
+            readEditedFile(tailState, sink);
+            return;
+        }
+        String filePath = tailState.getFilePath();
+        long startOffset = tailState.getByteOffset();
+        boolean rewound = false;
+        TailChunk chunk;
+        do {
+            long position = tailState.getByteOffset();
+            Timer.Sample readSample = Timer.start(meterRegistry);
+            chunk = fileTailReader.readAppended(filePath, position, tailState.getFileKey());
+            readSample.stop(meterRegistry.timer("filemonitoring.read.duration", "type", "appended"));
+            meterRegistry.summary("filemonitoring.read.bytes").record(
+                    chunk.getChangeType() == ChangeType.APPENDED ? chunk.getOffset() - position : chunk.getOffset());
+            if (chunk.getChangeType() != ChangeType.APPENDED) {
+                rewound = true;
+                lineHashCache.replace(filePath, lineDiffEngine.hashLines(linesOf(chunk, 0)));
+                tailState.setLastLineHash(0);
+            } else {
+                List<String> lines = linesOf(chunk, position);
+                if (!lines.isEmpty()) {
+                    lineHashCache.append(filePath, lineDiffEngine.hashLines(lines));
+                }
+            }
+            if (!chunk.isEmpty()) {
+                FileChange change = changeStore.append(filePath, chunk.getContent(), LocalDateTime.now());
+                change.setChangeType(chunk.getChangeType());
+                sink.accept(change);
+                tailState.setLastLineHash(lastLineHash(filePath, chunk));
+            }
+            tailState.setByteOffset(chunk.getOffset());
+            tailState.setFileKey(chunk.getFileKey());
+            tailState.setLastModified(chunk.getLastModified());
+        } while (chunk.isHasMore());
+        if (rewound || tailState.getByteOffset() != startOffset) {
+            updatePrefixChecksum(tailState);
+        }
+        tailState.setUpdatedAt(LocalDateTime.now());
+    }
 
-            });
-        });
+    /**
+     * Plik zmieniony w środku ma ten sam klucz i rozmiar nie mniejszy od offsetu, ale inną treść już odczytanej
+     * części. Porównujemy sumę kontrolną ostatnich {@code diff.checksum-window} bajtów przed offsetem, więc zmiana
+     * w tym oknie jest wykrywana także wtedy, gdy plik jednocześnie urósł, a koszt zdarzenia nie zależy od rozmiaru
+     * pliku. Stany bez sumy kontrolnej sprawdzają tylko linię kończącą się na zapamiętanym offsecie.
+     */
+    private boolean isEditedInPlace(FileTailState tailState) throws FileReadException {
+        if (tailState.getByteOffset() <= 0) {
+            return false;
+        }
+        String filePath = tailState.getFilePath();
+        BasicFileAttributes attributes = fileTailReader.readAttributes(filePath);
+        if (attributes.size() < tailState.getByteOffset()
+                || (tailState.getFileKey() != null && !Objects.equals(tailState.getFileKey(), fileTailReader.fileKeyOf(attributes)))) {
+            return false;
+        }
+        if (tailState.getPrefixChecksum() != 0) {
+            return prefixChecksum(filePath, tailState.getByteOffset()) != tailState.getPrefixChecksum();
+        }
+        if (tailState.getLastLineHash() == 0) {
+            return false;
+        }
+        String anchorLine = fileTailReader.readLineBefore(filePath, tailState.getByteOffset());
+        return anchorLine != null && lineHash(anchorLine) != tailState.getLastLineHash();
     }
 
+    private void readEditedFile(FileTailState tailState, Consumer<FileChange> sink) throws FileReadException {
+        String filePath = tailState.getFilePath();
+        long maxFileSize = properties.getDiff().getMaxFileSize().toBytes();
+        String content;
+        BasicFileAttributes attributes = fileTailReader.readAttributes(filePath);
+        if (attributes.size() > maxFileSize) {
+            tailState.setByteOffset(attributes.size());
+            tailState.setFileKey(fileTailReader.fileKeyOf(attributes));
+            tailState.setLastModified(attributes.lastModifiedTime().toMillis());
+            tailState.setLastLineHash(lineHash(fileTailReader.readLineBefore(filePath, attributes.size())));
+            updatePrefixChecksum(tailState);
+            lineHashCache.remove(filePath);
+            content = "[plik zmieniony w środku, pominięto porównanie - rozmiar przekracza " + maxFileSize + " bajtów]";
+        } else {
+            Timer.Sample readSample = Timer.start(meterRegistry);
+            TailChunk chunk = fileTailReader.readAll(filePath);
+            readSample.stop(meterRegistry.timer("filemonitoring.read.duration", "type", "full"));
+            meterRegistry.summary("filemonitoring.read.bytes").record(chunk.getOffset());
+            List<String> lines = linesOf(chunk, 0);
+            long[] lineHashes = lineDiffEngine.hashLines(lines);
+            Timer diffTimer = meterRegistry.timer("filemonitoring.diff.duration");
+            content = lineHashCache.get(filePath)
+                    .map(previous -> render(diffTimer.record(() -> lineDiffEngine.diff(previous, lineHashes, lines))))
+                    .orElse(chunk.getContent());
+            lineHashCache.replace(filePath, lineHashes);
+            tailState.setByteOffset(chunk.getOffset());
+            tailState.setFileKey(chunk.getFileKey());
+            tailState.setLastModified(chunk.getLastModified());
+            tailState.setLastLineHash(lines.isEmpty() ? 0 : lineHash(lines.get(lines.size() - 1)));
+            updatePrefixChecksum(tailState);
+        }
+        if (!content.isEmpty()) {
+            FileChange change = changeStore.append(filePath, content, LocalDateTime.now());
+            change.setChangeType(ChangeType.EDITED);
+            sink.accept(change);
+        }
+        tailState.setUpdatedAt(LocalDateTime.now());
+    }
 
-    private String readFileContent(String filePath) throws FileReadException {
-        try (BufferedReader reader = Files.newBufferedReader(Paths.get(filePath))) {
-            return reader.lines()
-                    .collect(Collectors.joining(System.lineSeparator()));
-        } catch (IOException e) {
-            throw new FileReadException("Nie udało się odczytać zawartości pliku z: " + filePath, e);
+    /**
+     * Czas od modyfikacji pliku (mtime) do zdarzenia zgłoszonego przez silnik obserwacji. Przy silniku
+     * odpytującym obejmuje też odstęp między odczytami.
+     */
+    private void recordDetectionLatency(long seenAt, long lastModified) {
+        long latency = seenAt - lastModified;
+        if (latency >= 0) {
+            meterRegistry.timer("filemonitoring.detection.latency").record(latency, TimeUnit.MILLISECONDS);
         }
     }
 
-    private String extractNewChanges(String lastKnownChangeContent, String currentContent) {
-        List<String> lastLines = Arrays.asList(lastKnownChangeContent.split("\\r?\\n"));
-        List<String> currentLines = Arrays.asList(currentContent.split("\\r?\\n"));
+    private String render(List<LineDelta> deltas) {
+        StringBuilder content = new StringBuilder();
+        for (LineDelta delta : deltas) {
+            if (!content.isEmpty()) {
+                content.append('\n');
+            }
+            if (delta.getType() == LineDelta.Type.DELETED) {
+                content.append("[usunięto ").append(delta.getLineCount()).append(" linii od linii ")
+                        .append(delta.getOldIndex() + 1).append(']');
+            } else {
+                content.append("[wstawiono ").append(delta.getLineCount()).append(" linii od linii ")
+                        .append(delta.getNewIndex() + 1).append(']');
+                delta.getLines().forEach(line -> content.append('\n').append(line));
+            }
+        }
+        return content.toString();
+    }
 
-        int lastLineIndex = -1;
-        if (!lastLines.isEmpty()) {
-            String lastLine = lastLines.get(lastLines.size() - 1);
-            lastLineIndex = currentLines.lastIndexOf(lastLine);
+    /**
+     * Linie fragmentu zaczynającego się w bajcie {@code start}. Treść fragmentu nie ma końcowego znaku nowej linii,
+     * więc {@code split} zwraca dokładnie tyle elementów, ile linii odczytano - także dla samej pustej linii,
+     * której treść jest pusta. Dzięki temu skróty dopisywane fragment po fragmencie zgadzają się z {@code readAll}.
+     */
+    private List<String> linesOf(TailChunk chunk, long start) {
+        if (chunk.getOffset() <= start) {
+            return List.of();
         }
+        return List.of(chunk.getContent().split("\n", -1));
+    }
+
+    private void updatePrefixChecksum(FileTailState tailState) throws FileReadException {
+        long offset = tailState.getByteOffset();
+        tailState.setPrefixChecksum(offset > 0 ? prefixChecksum(tailState.getFilePath(), offset) : 0);
+    }
 
-        List<String> newLines = (lastLineIndex == -1) ? currentLines : currentLines.subList(lastLineIndex + 1, currentLines.size());
+    private long prefixChecksum(String filePath, long offset) throws FileReadException {
+        long window = properties.getDiff().getChecksumWindow().toBytes();
+        return fileTailReader.checksum(filePath, Math.max(0, offset - window), offset);
+    }
 
-        return String.join("\n", newLines);
+    /**
+     * Fragment bez znaku nowej linii mógł zaczynać się w środku linii - wtedy pełną linię czytamy z pliku.
+     */
+    private long lastLineHash(String filePath, TailChunk chunk) throws FileReadException {
+        String content = chunk.getContent();
+        int lastLineStart = content.lastIndexOf('\n') + 1;
+        if (lastLineStart > 0) {
+            return lineHash(content.substring(lastLineStart));
+        }
+        return lineHash(fileTailReader.readLineBefore(filePath, chunk.getOffset()));
     }
 
+    private long lineHash(String line) {
+        if (line == null) {
+            return 0;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(line.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
 
-    private String generateEmailBody(String filePath, String changes) {
-        LocalDateTime now = LocalDateTime.now();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-        return "Dnia " + now.format(formatter) + " zmieniono plik " + filePath + " dopisano do niego:\n" + changes;
+    private ReentrantLock lockFor(String filePath) {
+        return fileLocks.computeIfAbsent(filePath, key -> new ReentrantLock());
     }
 
 }
-
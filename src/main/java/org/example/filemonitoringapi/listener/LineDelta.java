@@ -0,0 +1,21 @@
+package org.example.filemonitoringapi.listener;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class LineDelta {
+    public enum Type {
+        INSERTED,
+        DELETED
+    }
+
+    private final Type type;
+    private final int oldIndex;
+    private final int newIndex;
+    private final int lineCount;
+    private final List<String> lines;
+}
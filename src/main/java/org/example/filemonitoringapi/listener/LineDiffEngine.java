@@ -0,0 +1,185 @@
+package org.example.filemonitoringapi.listener;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Porównuje poprzednią zawartość pliku (zapamiętaną jako 64-bitowe skróty linii) z bieżącą.
+ * Po odcięciu wspólnego początku i końca środek jest dopasowywany blokami po {@value #BLOCK_SIZE} linie:
+ * kroczący skrót bloku pozwala w czasie liniowym znaleźć bloki występujące dokładnie raz w obu wersjach,
+ * a najdłuższy rosnący podciąg tych kotwic (O(k log k)) wyznacza dopasowane fragmenty.
+ * Reszta to wstawione i usunięte linie.
+ */
+@Component
+public class LineDiffEngine {
+    private static final int BLOCK_SIZE = 4;
+    private static final long BLOCK_BASE = 0x100000001B3L;
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    public long[] hashLines(List<String> lines) {
+        long[] hashes = new long[lines.size()];
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = hashLine(lines.get(i));
+        }
+        return hashes;
+    }
+
+    public List<LineDelta> diff(long[] oldHashes, List<String> newLines) {
+        return diff(oldHashes, hashLines(newLines), newLines);
+    }
+
+    public List<LineDelta> diff(long[] oldHashes, long[] newHashes, List<String> newLines) {
+        int oldEnd = oldHashes.length;
+        int newEnd = newHashes.length;
+
+        int prefix = 0;
+        while (prefix < oldEnd && prefix < newEnd && oldHashes[prefix] == newHashes[prefix]) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < oldEnd - prefix && suffix < newEnd - prefix
+                && oldHashes[oldEnd - 1 - suffix] == newHashes[newEnd - 1 - suffix]) {
+            suffix++;
+        }
+
+        List<LineDelta> deltas = new ArrayList<>();
+        diffRegion(oldHashes, prefix, oldEnd - suffix, newHashes, newLines, prefix, newEnd - suffix, deltas);
+        return deltas;
+    }
+
+    private void diffRegion(long[] oldHashes, int oldFrom, int oldTo, long[] newHashes, List<String> newLines,
+                            int newFrom, int newTo, List<LineDelta> deltas) {
+        if (oldFrom == oldTo || newFrom == newTo) {
+            emitGap(oldFrom, oldTo, newLines, newFrom, newTo, deltas);
+            return;
+        }
+
+        int oldCursor = oldFrom;
+        int newCursor = newFrom;
+        for (int[] anchor : findAnchors(oldHashes, oldFrom, oldTo, newHashes, newFrom, newTo)) {
+            int oldIndex = anchor[0];
+            int newIndex = anchor[1];
+            if (oldIndex < oldCursor || newIndex < newCursor) {
+                continue;
+            }
+            while (oldIndex > oldCursor && newIndex > newCursor && oldHashes[oldIndex - 1] == newHashes[newIndex - 1]) {
+                oldIndex--;
+                newIndex--;
+            }
+            emitGap(oldCursor, oldIndex, newLines, newCursor, newIndex, deltas);
+            while (oldIndex < oldTo && newIndex < newTo && oldHashes[oldIndex] == newHashes[newIndex]) {
+                oldIndex++;
+                newIndex++;
+            }
+            oldCursor = oldIndex;
+            newCursor = newIndex;
+        }
+        emitGap(oldCursor, oldTo, newLines, newCursor, newTo, deltas);
+    }
+
+    /**
+     * @return pary (indeks w starej wersji, indeks w nowej) bloków unikalnych w obu wersjach,
+     * rosnące w obu współrzędnych
+     */
+    private List<int[]> findAnchors(long[] oldHashes, int oldFrom, int oldTo,
+                                    long[] newHashes, int newFrom, int newTo) {
+        int block = Math.min(BLOCK_SIZE, Math.min(oldTo - oldFrom, newTo - newFrom));
+        Map<Long, Integer> oldBlocks = new HashMap<>();
+        forEachBlock(oldHashes, oldFrom, oldTo, block, (hash, position) ->
+                oldBlocks.merge(hash, position, (previous, current) -> -1));
+        Map<Long, Integer> newBlockCounts = new HashMap<>();
+        forEachBlock(newHashes, newFrom, newTo, block, (hash, position) ->
+                newBlockCounts.merge(hash, 1, Integer::sum));
+
+        List<int[]> candidates = new ArrayList<>();
+        forEachBlock(newHashes, newFrom, newTo, block, (hash, position) -> {
+            Integer oldPosition = oldBlocks.get(hash);
+            if (oldPosition != null && oldPosition >= 0 && newBlockCounts.get(hash) == 1
+                    && Arrays.equals(oldHashes, oldPosition, oldPosition + block, newHashes, position, position + block)) {
+                candidates.add(new int[]{oldPosition, position});
+            }
+        });
+        return longestIncreasing(candidates);
+    }
+
+    private void forEachBlock(long[] hashes, int from, int to, int block, BlockConsumer consumer) {
+        if (to - from < block) {
+            return;
+        }
+        long power = 1;
+        for (int i = 1; i < block; i++) {
+            power *= BLOCK_BASE;
+        }
+        long hash = 0;
+        for (int i = from; i < from + block; i++) {
+            hash = hash * BLOCK_BASE + hashes[i];
+        }
+        consumer.accept(hash, from);
+        for (int start = from + 1; start + block <= to; start++) {
+            hash = (hash - hashes[start - 1] * power) * BLOCK_BASE + hashes[start + block - 1];
+            consumer.accept(hash, start);
+        }
+    }
+
+    /**
+     * Kandydaci są uporządkowani po indeksie w nowej wersji - wybiera najdłuższy podciąg rosnący
+     * po indeksie w starej wersji (sortowanie cierpliwościowe).
+     */
+    private List<int[]> longestIncreasing(List<int[]> candidates) {
+        int[] tails = new int[candidates.size()];
+        int[] previous = new int[candidates.size()];
+        int length = 0;
+        for (int i = 0; i < candidates.size(); i++) {
+            int oldIndex = candidates.get(i)[0];
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (candidates.get(tails[middle])[0] < oldIndex) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            previous[i] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = i;
+            length = Math.max(length, low + 1);
+        }
+
+        int[][] chain = new int[length][];
+        for (int i = length - 1, index = length > 0 ? tails[length - 1] : -1; i >= 0; i--, index = previous[index]) {
+            chain[i] = candidates.get(index);
+        }
+        return Arrays.asList(chain);
+    }
+
+    private void emitGap(int oldFrom, int oldTo, List<String> newLines, int newFrom, int newTo, List<LineDelta> deltas) {
+        if (oldTo > oldFrom) {
+            deltas.add(new LineDelta(LineDelta.Type.DELETED, oldFrom, newFrom, oldTo - oldFrom, List.of()));
+        }
+        if (newTo > newFrom) {
+            deltas.add(new LineDelta(LineDelta.Type.INSERTED, oldTo, newFrom, newTo - newFrom,
+                    List.copyOf(newLines.subList(newFrom, newTo))));
+        }
+    }
+
+    static long hashLine(String line) {
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < line.length(); i++) {
+            hash ^= line.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    @FunctionalInterface
+    private interface BlockConsumer {
+        void accept(long hash, int position);
+    }
+}
@@ -0,0 +1,69 @@
+package org.example.filemonitoringapi.listener;
+
+import org.example.filemonitoringapi.config.FileMonitoringProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Ograniczony (LRU) bufor skrótów linii ostatnio widzianej zawartości plików, potrzebny
+ * {@link LineDiffEngine} do wyznaczenia zmian w środku pliku. Pliki dłuższe niż
+ * {@code file-monitoring.diff.max-lines-per-file} nie są buforowane.
+ */
+@Component
+public class LineHashCache {
+    private final Map<String, long[]> hashes;
+    private final int maxLinesPerFile;
+
+    public LineHashCache(FileMonitoringProperties properties) {
+        int maxFiles = properties.getDiff().getMaxFiles();
+        this.maxLinesPerFile = properties.getDiff().getMaxLinesPerFile();
+        this.hashes = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, long[]> eldest) {
+                return size() > maxFiles;
+            }
+        };
+    }
+
+    public synchronized Optional<long[]> get(String filePath) {
+        return Optional.ofNullable(hashes.get(filePath));
+    }
+
+    public synchronized void replace(String filePath, long[] lineHashes) {
+        if (lineHashes.length > maxLinesPerFile) {
+            hashes.remove(filePath);
+        } else {
+            hashes.put(filePath, lineHashes);
+        }
+    }
+
+    /**
+     * Dopisuje skróty nowych linii. Jeśli plik nie był buforowany, bufor pozostaje pusty -
+     * bez początku pliku skróty i tak nie nadawałyby się do porównania.
+     */
+    public synchronized void append(String filePath, long[] lineHashes) {
+        long[] current = hashes.get(filePath);
+        if (current == null) {
+            return;
+        }
+        if (current.length + lineHashes.length > maxLinesPerFile) {
+            hashes.remove(filePath);
+            return;
+        }
+        long[] merged = Arrays.copyOf(current, current.length + lineHashes.length);
+        System.arraycopy(lineHashes, 0, merged, current.length, lineHashes.length);
+        hashes.put(filePath, merged);
+    }
+
+    public synchronized void remove(String filePath) {
+        hashes.remove(filePath);
+    }
+
+    public synchronized int size() {
+        return hashes.size();
+    }
+}
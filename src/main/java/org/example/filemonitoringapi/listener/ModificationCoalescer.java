@@ -0,0 +1,49 @@
+package org.example.filemonitoringapi.listener;
+
+import lombok.AllArgsConstructor;
+import org.example.filemonitoringapi.config.FileMonitoringProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Skleja serię zdarzeń ENTRY_MODIFY dla jednego pliku w jedno przetworzenie.
+ * Zdarzenia, które przyjdą w oknie {@code file-monitoring.watcher.coalesce-window}
+ * od pierwszego zdarzenia, nie planują kolejnego przebiegu. Przebieg planuje
+ * {@link WatcherExecutors#getCoalesceScheduler()}, a wykonuje pula przetwarzająca z {@link WatcherExecutors}.
+ */
+@AllArgsConstructor
+@Component
+public class ModificationCoalescer {
+    private final Logger logger = LoggerFactory.getLogger(ModificationCoalescer.class);
+    private final Set<String> pendingFiles = ConcurrentHashMap.newKeySet();
+    private FileMonitoringProperties properties;
+    private WatcherExecutors watcherExecutors;
+
+    public void submit(String filePath, Consumer<String> handler) {
+        long windowMillis = properties.getWatcher().getCoalesceWindow().toMillis();
+        if (windowMillis <= 0) {
+            process(filePath, handler);
+            return;
+        }
+        if (pendingFiles.add(filePath)) {
+            watcherExecutors.getCoalesceScheduler().schedule(() -> {
+                pendingFiles.remove(filePath);
+                watcherExecutors.getProcessingExecutor().execute(() -> process(filePath, handler));
+            }, Instant.now().plusMillis(windowMillis));
+        }
+    }
+
+    private void process(String filePath, Consumer<String> handler) {
+        try {
+            handler.accept(filePath);
+        } catch (Exception e) {
+            logger.error("Błąd podczas przetwarzania zmiany pliku: " + filePath, e);
+        }
+    }
+}
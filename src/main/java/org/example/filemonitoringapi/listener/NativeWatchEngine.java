@@ -0,0 +1,110 @@
+package org.example.filemonitoringapi.listener;
+
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@AllArgsConstructor
+@Component
+public class NativeWatchEngine implements WatchEngine {
+    private final Logger logger = LoggerFactory.getLogger(NativeWatchEngine.class);
+    private final DirectoryWatchRegistry watchRegistry = new DirectoryWatchRegistry();
+    private final AtomicBoolean started = new AtomicBoolean();
+    private WatcherExecutors watcherExecutors;
+
+    @Override
+    public WatchEngineType getType() {
+        return WatchEngineType.NATIVE;
+    }
+
+    @Override
+    public void start(FileEventListener listener) throws IOException {
+        if (started.compareAndSet(false, true)) {
+            WatchService watchService = watchRegistry.getWatchService();
+            watcherExecutors.getPollerExecutor().execute(() -> watchFileChanges(watchService, listener));
+        }
+    }
+
+    @Override
+    public boolean register(String filePath) throws IOException {
+        return watchRegistry.register(filePath);
+    }
+
+    @Override
+    public boolean unregister(String filePath) {
+        return watchRegistry.unregister(filePath);
+    }
+
+    @Override
+    public boolean isWatching(String filePath) {
+        return watchRegistry.isWatching(filePath);
+    }
+
+    @Override
+    public int getWatchedFileCount() {
+        return watchRegistry.getWatchedFileCount();
+    }
+
+    public int getWatchedDirectoryCount() {
+        return watchRegistry.getWatchedDirectoryCount();
+    }
+
+    public int getOpenWatchServiceCount() {
+        return watchRegistry.getOpenWatchServiceCount();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        try {
+            watchRegistry.close();
+        } catch (IOException e) {
+            logger.error("Błąd podczas zamykania WatchService.", e);
+        }
+    }
+
+    private void watchFileChanges(WatchService watchService, FileEventListener listener) {
+        while (!Thread.currentThread().isInterrupted()) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.info("Wątek monitorujący zmiany plików został przerwany.");
+                return;
+            } catch (ClosedWatchServiceException e) {
+                logger.info("Serwis WatchService został zamknięty.");
+                return;
+            }
+
+            for (WatchEvent<?> event : key.pollEvents()) {
+                WatchEvent.Kind<?> kind = event.kind();
+
+                if (kind == StandardWatchEventKinds.OVERFLOW) {
+                    listener.onEventsLost(watchRegistry.findFilePaths(key));
+                    continue;
+                }
+
+                if (kind == StandardWatchEventKinds.ENTRY_MODIFY) {
+                    Path fileName = (Path) event.context();
+                    watchRegistry.findFilePath(key, fileName).ifPresent(listener::onFileModified);
+                }
+            }
+
+            boolean valid = key.reset();
+            if (!valid) {
+                logger.info("Klucz WatchService stał się nieważny.");
+                List<String> affectedFilePaths = watchRegistry.invalidate(key);
+                if (!affectedFilePaths.isEmpty()) {
+                    listener.onEventsLost(affectedFilePaths);
+                }
+            }
+        }
+    }
+}
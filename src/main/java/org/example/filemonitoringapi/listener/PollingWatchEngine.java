@@ -0,0 +1,236 @@
+package org.example.filemonitoringapi.listener;
+
+import lombok.AllArgsConstructor;
+import org.example.filemonitoringapi.config.FileMonitoringProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Silnik dla systemów plików bez inotify (NFS, overlay). Jeden wątek sprawdza atrybuty
+ * plików, których termin minął, w jednej partii. Plik, który się zmienił, wraca do
+ * minimalnego interwału, a bezczynny ma interwał podwajany aż do maksimum.
+ */
+@AllArgsConstructor
+@Component
+public class PollingWatchEngine implements WatchEngine {
+    private final Logger logger = LoggerFactory.getLogger(PollingWatchEngine.class);
+    private final Map<String, PolledFile> polledFiles = new HashMap<>();
+    private final PriorityQueue<PolledFile> schedule = new PriorityQueue<>(Comparator.comparingLong(file -> file.nextPollAt));
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition scheduleChanged = lock.newCondition();
+    private final AtomicBoolean started = new AtomicBoolean();
+    private FileMonitoringProperties properties;
+    private WatcherExecutors watcherExecutors;
+
+    @Override
+    public WatchEngineType getType() {
+        return WatchEngineType.POLLING;
+    }
+
+    @Override
+    public void start(FileEventListener listener) {
+        if (started.compareAndSet(false, true)) {
+            watcherExecutors.getPollerExecutor().execute(() -> pollFileChanges(listener));
+        }
+    }
+
+    @Override
+    public boolean register(String filePath) throws IOException {
+        lock.lock();
+        try {
+            PolledFile polledFile = polledFiles.get(filePath);
+            if (polledFile != null) {
+                polledFile.references++;
+                return false;
+            }
+            polledFile = new PolledFile(filePath, Paths.get(filePath));
+            polledFile.update(Files.readAttributes(polledFile.path, BasicFileAttributes.class));
+            polledFile.interval = minIntervalNanos();
+            polledFile.nextPollAt = System.nanoTime() + polledFile.interval;
+            polledFiles.put(filePath, polledFile);
+            schedule.add(polledFile);
+            scheduleChanged.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean unregister(String filePath) {
+        lock.lock();
+        try {
+            PolledFile polledFile = polledFiles.get(filePath);
+            if (polledFile == null || --polledFile.references > 0) {
+                return false;
+            }
+            polledFiles.remove(filePath);
+            polledFile.removed = true;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isWatching(String filePath) {
+        lock.lock();
+        try {
+            return polledFiles.containsKey(filePath);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int getWatchedFileCount() {
+        lock.lock();
+        try {
+            return polledFiles.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Bieżący interwał odpytywania pliku.
+     */
+    public Optional<Duration> getPollInterval(String filePath) {
+        lock.lock();
+        try {
+            return Optional.ofNullable(polledFiles.get(filePath)).map(polledFile -> Duration.ofNanos(polledFile.interval));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void pollFileChanges(FileEventListener listener) {
+        while (!Thread.currentThread().isInterrupted()) {
+            List<PolledFile> dueFiles;
+            try {
+                dueFiles = awaitDueFiles();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.info("Wątek odpytujący pliki został przerwany.");
+                return;
+            }
+
+            for (PolledFile polledFile : dueFiles) {
+                boolean changed = poll(polledFile);
+                polledFile.interval = changed ? minIntervalNanos() : Math.min(polledFile.interval * 2, maxIntervalNanos());
+                if (changed) {
+                    listener.onFileModified(polledFile.filePath);
+                }
+            }
+
+            lock.lock();
+            try {
+                long now = System.nanoTime();
+                for (PolledFile polledFile : dueFiles) {
+                    if (!polledFile.removed) {
+                        polledFile.nextPollAt = now + polledFile.interval;
+                        schedule.add(polledFile);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private List<PolledFile> awaitDueFiles() throws InterruptedException {
+        lock.lock();
+        try {
+            while (true) {
+                PolledFile next = schedule.peek();
+                if (next == null) {
+                    scheduleChanged.await();
+                    continue;
+                }
+                long delay = next.nextPollAt - System.nanoTime();
+                if (delay > 0) {
+                    scheduleChanged.awaitNanos(delay);
+                    continue;
+                }
+                List<PolledFile> dueFiles = new ArrayList<>();
+                long now = System.nanoTime();
+                while (!schedule.isEmpty() && schedule.peek().nextPollAt <= now) {
+                    PolledFile polledFile = schedule.poll();
+                    if (!polledFile.removed) {
+                        dueFiles.add(polledFile);
+                    }
+                }
+                return dueFiles;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean poll(PolledFile polledFile) {
+        try {
+            return polledFile.update(Files.readAttributes(polledFile.path, BasicFileAttributes.class));
+        } catch (NoSuchFileException e) {
+            return polledFile.markMissing();
+        } catch (IOException e) {
+            logger.warn("Nie udało się odczytać atrybutów pliku: " + polledFile.filePath, e);
+            return false;
+        }
+    }
+
+    private long minIntervalNanos() {
+        return properties.getWatcher().getPolling().getMinInterval().toNanos();
+    }
+
+    private long maxIntervalNanos() {
+        return properties.getWatcher().getPolling().getMaxInterval().toNanos();
+    }
+
+    private static class PolledFile {
+        private final String filePath;
+        private final Path path;
+        private int references = 1;
+        private boolean removed;
+        private long size = -1;
+        private long lastModified = -1;
+        private Object fileKey;
+        private volatile long interval;
+        private long nextPollAt;
+
+        private PolledFile(String filePath, Path path) {
+            this.filePath = filePath;
+            this.path = path;
+        }
+
+        private boolean update(BasicFileAttributes attributes) {
+            long currentLastModified = attributes.lastModifiedTime().toMillis();
+            boolean changed = attributes.size() != size || currentLastModified != lastModified
+                    || !Objects.equals(attributes.fileKey(), fileKey);
+            size = attributes.size();
+            lastModified = currentLastModified;
+            fileKey = attributes.fileKey();
+            return changed;
+        }
+
+        private boolean markMissing() {
+            boolean changed = size != -1;
+            size = -1;
+            lastModified = -1;
+            fileKey = null;
+            return changed;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package org.example.filemonitoringapi.listener;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.example.filemonitoringapi.file.ChangeType;
+
+@Getter
+@AllArgsConstructor
+public class TailChunk {
+    private final String content;
+    private final long offset;
+    private final String fileKey;
+    private final long lastModified;
+    private final boolean hasMore;
+    private final ChangeType changeType;
+
+    public boolean isEmpty() {
+        return content.isEmpty();
+    }
+}
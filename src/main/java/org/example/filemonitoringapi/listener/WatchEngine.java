@@ -0,0 +1,24 @@
+package org.example.filemonitoringapi.listener;
+
+import java.io.IOException;
+
+public interface WatchEngine {
+
+    WatchEngineType getType();
+
+    void start(FileEventListener listener) throws IOException;
+
+    /**
+     * @return {@code true}, jeśli plik nie był wcześniej obserwowany przez ten silnik
+     */
+    boolean register(String filePath) throws IOException;
+
+    /**
+     * @return {@code true}, jeśli była to ostatnia subskrypcja pliku w tym silniku
+     */
+    boolean unregister(String filePath);
+
+    boolean isWatching(String filePath);
+
+    int getWatchedFileCount();
+}
@@ -0,0 +1,6 @@
+package org.example.filemonitoringapi.listener;
+
+public enum WatchEngineType {
+    NATIVE,
+    POLLING
+}
@@ -0,0 +1,116 @@
+package org.example.filemonitoringapi.listener;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import org.example.filemonitoringapi.cluster.ClusterMembership;
+import org.example.filemonitoringapi.config.FileMonitoringProperties;
+import org.example.filemonitoringapi.exception.FileWatcherRegistrationException;
+import org.example.filemonitoringapi.file.TailStateCache;
+import org.example.filemonitoringapi.subscription.SubscriptionRepository;
+import org.example.filemonitoringapi.subscription.model.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Po restarcie przywraca obserwację plików dla aktywnych subskrypcji zapisanych w bazie.
+ * Subskrypcje są czytane stronami (keyset po id), stany odczytu strony są ładowane jednym zapytaniem,
+ * a rejestracja - wraz z nadrobieniem zmian od zapisanego offsetu - odbywa się równolegle.
+ * Działa przy {@link ApplicationStartedEvent}, więc aplikacja zgłasza gotowość
+ * ({@code ReadinessState.ACCEPTING_TRAFFIC}) dopiero po zakończeniu rejestracji.
+ */
+@Component
+public class WatcherBootstrap {
+    private final Logger logger = LoggerFactory.getLogger(WatcherBootstrap.class);
+    private final SubscriptionRepository subscriptionRepository;
+    private final FileWatcherService fileWatcherService;
+    private final TailStateCache tailStateCache;
+    private final ClusterMembership clusterMembership;
+    private final MeterRegistry meterRegistry;
+    private final FileMonitoringProperties.Bootstrap settings;
+    private final AtomicLong timeToFullyWatching = new AtomicLong();
+
+    public WatcherBootstrap(SubscriptionRepository subscriptionRepository, FileWatcherService fileWatcherService,
+                            TailStateCache tailStateCache, ClusterMembership clusterMembership,
+                            MeterRegistry meterRegistry, FileMonitoringProperties properties) {
+        this.subscriptionRepository = subscriptionRepository;
+        this.fileWatcherService = fileWatcherService;
+        this.tailStateCache = tailStateCache;
+        this.clusterMembership = clusterMembership;
+        this.meterRegistry = meterRegistry;
+        this.settings = properties.getWatcher().getBootstrap();
+        TimeGauge.builder("filemonitoring.watcher.time.to.fully.watching", timeToFullyWatching,
+                        TimeUnit.MILLISECONDS, AtomicLong::get)
+                .description("Czas od startu JVM do zakończenia przywracania obserwacji")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationStartedEvent.class)
+    public void restoreWatchers() {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        AtomicInteger registered = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(settings.getParallelism(),
+                new CustomizableThreadFactory("watcher-bootstrap-"));
+        try {
+            Pageable page = PageRequest.of(0, settings.getPageSize());
+            long afterId = 0L;
+            List<Subscription> subscriptions;
+            do {
+                subscriptions = subscriptionRepository.findActiveAfter(afterId, page);
+                if (subscriptions.isEmpty()) {
+                    break;
+                }
+                afterId = subscriptions.get(subscriptions.size() - 1).getId();
+                restorePage(subscriptions, executor, registered, failed);
+            } while (subscriptions.size() == settings.getPageSize());
+        } finally {
+            executor.shutdown();
+        }
+
+        long elapsedNanos = sample.stop(meterRegistry.timer("filemonitoring.watcher.bootstrap.duration"));
+        timeToFullyWatching.set(ManagementFactory.getRuntimeMXBean().getUptime());
+        meterRegistry.counter("filemonitoring.watcher.bootstrap.failures").increment(failed.get());
+        logger.info("Przywrócono obserwację {} subskrypcji w {} ms ({} błędów).",
+                registered.get(), elapsedNanos / 1_000_000, failed.get());
+    }
+
+    private void restorePage(List<Subscription> subscriptions, ExecutorService executor,
+                             AtomicInteger registered, AtomicInteger failed) {
+        // Subskrypcje jednego pliku są rejestrowane po kolei, żeby nie nadrabiać tego samego pliku równolegle.
+        Map<String, List<Subscription>> byFile = subscriptions.stream()
+                .filter(subscription -> clusterMembership.isOwner(subscription.getTargetPath()))
+                .collect(Collectors.groupingBy(Subscription::getTargetPath));
+        tailStateCache.preload(byFile.keySet());
+
+        CompletableFuture<?>[] tasks = byFile.values().stream()
+                .map(fileSubscriptions -> CompletableFuture.runAsync(() -> fileSubscriptions.forEach(subscription -> {
+                    try {
+                        fileWatcherService.registerFileWatcher(subscription);
+                        registered.incrementAndGet();
+                    } catch (FileWatcherRegistrationException | RuntimeException e) {
+                        failed.incrementAndGet();
+                        logger.error("Nie udało się przywrócić obserwacji pliku: " + subscription.getTargetPath(), e);
+                    }
+                }), executor))
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(tasks).join();
+    }
+}
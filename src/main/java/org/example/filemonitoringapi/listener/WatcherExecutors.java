@@ -0,0 +1,116 @@
+package org.example.filemonitoringapi.listener;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import org.example.filemonitoringapi.config.FileMonitoringProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Wątki obserwatora plików: pętle każdego {@link WatchEngine} działają na puli {@code file-watcher-*}
+ * ({@code file-monitoring.executors.watching}), a przetwarzanie zmian na {@code processingExecutor}.
+ * Pętle blokują się w {@code WatchService.take()} albo czekają na termin odpytania, więc ich pula
+ * składa się z wątków demonów i nie jest beanem - pula-bean czekałaby przy zatrzymywaniu kontekstu
+ * na zadania, które same się nie kończą. Pętle przerywa {@link #shutdown()}. Przy {@code file-monitoring.watcher.virtual-threads: true}
+ * (Java 21+) oba zadania działają na wątkach wirtualnych zamiast na pulach. Opóźnione przebiegi
+ * {@link ModificationCoalescer} planuje jednowątkowy {@code coalesceScheduler} ({@code file-coalesce-*},
+ * metryki {@code filemonitoring.executor.*} z tagiem {@code name=coalesce}). Nie jest on beanem, żeby nie
+ * zastąpił harmonogramu zadań {@code @Scheduled}.
+ */
+@Component
+public class WatcherExecutors {
+    private final Logger logger = LoggerFactory.getLogger(WatcherExecutors.class);
+    @Getter
+    private final Executor pollerExecutor;
+    @Getter
+    private final Executor processingExecutor;
+    @Getter
+    private final ThreadPoolTaskScheduler coalesceScheduler;
+    private final ThreadPoolTaskExecutor watchingExecutor;
+    private final ExecutorService virtualExecutor;
+
+    public WatcherExecutors(FileMonitoringProperties properties,
+                            @Qualifier("processingExecutor") ThreadPoolTaskExecutor processingExecutor,
+                            MeterRegistry meterRegistry) {
+        this.coalesceScheduler = newCoalesceScheduler(meterRegistry);
+        this.virtualExecutor = properties.getWatcher().isVirtualThreads() ? newVirtualThreadExecutor() : null;
+        if (virtualExecutor != null) {
+            this.watchingExecutor = null;
+            this.pollerExecutor = virtualExecutor;
+            this.processingExecutor = virtualExecutor;
+        } else {
+            this.watchingExecutor = newWatchingExecutor(properties.getExecutors().getWatching(), meterRegistry);
+            this.pollerExecutor = watchingExecutor;
+            this.processingExecutor = processingExecutor;
+        }
+    }
+
+    private ThreadPoolTaskExecutor newWatchingExecutor(FileMonitoringProperties.Pool pool, MeterRegistry meterRegistry) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("file-watcher-");
+        executor.setDaemon(true);
+        executor.setCorePoolSize(pool.getCorePoolSize());
+        executor.setMaxPoolSize(pool.getMaxPoolSize());
+        executor.setQueueCapacity(pool.getQueueCapacity());
+        executor.setKeepAliveSeconds((int) pool.getKeepAlive().toSeconds());
+        executor.setRejectedExecutionHandler(pool.getRejectionPolicy().toHandler());
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+
+        Gauge.builder("filemonitoring.executor.active", executor, ThreadPoolTaskExecutor::getActiveCount)
+                .tag("name", "watching")
+                .register(meterRegistry);
+        Gauge.builder("filemonitoring.executor.pool.size", executor, ThreadPoolTaskExecutor::getPoolSize)
+                .tag("name", "watching")
+                .register(meterRegistry);
+        return executor;
+    }
+
+    private ThreadPoolTaskScheduler newCoalesceScheduler(MeterRegistry meterRegistry) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setThreadNamePrefix("file-coalesce-");
+        // Zaplanowane przebiegi wykonują się przy zamykaniu, żeby nie zgubić zmian z ostatniego okna.
+        scheduler.setWaitForTasksToCompleteOnShutdown(true);
+        scheduler.setAwaitTerminationSeconds(30);
+        scheduler.initialize();
+
+        Gauge.builder("filemonitoring.executor.queued", scheduler,
+                        taskScheduler -> taskScheduler.getScheduledThreadPoolExecutor().getQueue().size())
+                .tag("name", "coalesce")
+                .register(meterRegistry);
+        Gauge.builder("filemonitoring.executor.active", scheduler, ThreadPoolTaskScheduler::getActiveCount)
+                .tag("name", "coalesce")
+                .register(meterRegistry);
+        return scheduler;
+    }
+
+    private ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            logger.warn("Wątki wirtualne są niedostępne w tej wersji Javy, używam ograniczonej puli wątków.");
+            return null;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        coalesceScheduler.shutdown();
+        if (watchingExecutor != null) {
+            watchingExecutor.shutdown();
+        }
+        if (virtualExecutor != null) {
+            virtualExecutor.shutdownNow();
+        }
+    }
+}
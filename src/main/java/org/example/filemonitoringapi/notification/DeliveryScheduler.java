@@ -0,0 +1,288 @@
+package org.example.filemonitoringapi.notification;
+
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.example.filemonitoringapi.cluster.ClusterMembership;
+import org.example.filemonitoringapi.config.FileMonitoringProperties;
+import org.example.filemonitoringapi.email.OutboxMessage;
+import org.example.filemonitoringapi.email.OutboxMessagesSentEvent;
+import org.example.filemonitoringapi.file.FileChange;
+import org.example.filemonitoringapi.file.FileChangesPersistedEvent;
+import org.example.filemonitoringapi.subscription.SubscriptionRepository;
+import org.example.filemonitoringapi.subscription.model.DeliveryPolicy;
+import org.example.filemonitoringapi.subscription.model.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Harmonogram powiadomień oparty na kolejce priorytetowej uporządkowanej po terminie doręczenia.
+ * Każda subskrypcja ma własny termin ({@link Subscription#getNextDeliveryAt()}), więc wysyłka
+ * rozkłada się w ciągu doby zamiast jednego zadania cron. Subskrypcje {@link DeliveryPolicy#IMMEDIATE}
+ * są planowane po zapisaniu nowych zmian pliku, z krótkim opóźnieniem łączącym serie zmian.
+ */
+@Component
+public class DeliveryScheduler {
+    private final Logger logger = LoggerFactory.getLogger(DeliveryScheduler.class);
+    private final SubscriptionRepository subscriptionRepository;
+    private final NotificationService notificationService;
+    private final ClusterMembership clusterMembership;
+    private final FileMonitoringProperties.Notification settings;
+
+    private final PriorityQueue<ScheduledDelivery> queue =
+            new PriorityQueue<>(Comparator.comparing(ScheduledDelivery::getDueAt));
+    private final Map<Long, ScheduledDelivery> scheduled = new HashMap<>();
+    private final Map<String, Set<Long>> immediateByFile = new HashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Thread schedulerThread;
+    private volatile boolean running = true;
+
+    public DeliveryScheduler(SubscriptionRepository subscriptionRepository, NotificationService notificationService,
+                             ClusterMembership clusterMembership, FileMonitoringProperties properties) {
+        this.subscriptionRepository = subscriptionRepository;
+        this.notificationService = notificationService;
+        this.clusterMembership = clusterMembership;
+        this.settings = properties.getNotification();
+        this.schedulerThread = new Thread(this::runDeliveries, "notification-scheduler");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        Pageable page = PageRequest.of(0, settings.getPageSize());
+        Page<Subscription> subscriptions;
+        do {
+            subscriptions = subscriptionRepository.findByActive(true, page);
+            subscriptions.forEach(this::schedule);
+            page = subscriptions.nextPageable();
+        } while (subscriptions.hasNext());
+        schedulerThread.start();
+    }
+
+    public void schedule(Subscription subscription) {
+        if (!subscription.isActive()) {
+            unschedule(subscription);
+            return;
+        }
+        lock.lock();
+        try {
+            if (policyOf(subscription) == DeliveryPolicy.IMMEDIATE) {
+                immediateByFile.computeIfAbsent(subscription.getTargetPath(), path -> new HashSet<>())
+                        .add(subscription.getId());
+                // Zmiany mogły czekać, gdy aplikacja nie działała - doręcz je od razu.
+                scheduleAt(subscription.getId(), LocalDateTime.now());
+            } else {
+                LocalDateTime dueAt = subscription.getNextDeliveryAt() != null
+                        ? subscription.getNextDeliveryAt()
+                        : nextDeliveryAt(subscription, LocalDateTime.now());
+                scheduleAt(subscription.getId(), dueAt);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void unschedule(Subscription subscription) {
+        lock.lock();
+        try {
+            scheduled.remove(subscription.getId());
+            Set<Long> immediate = immediateByFile.get(subscription.getTargetPath());
+            if (immediate != null) {
+                immediate.remove(subscription.getId());
+                if (immediate.isEmpty()) {
+                    immediateByFile.remove(subscription.getTargetPath());
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public static LocalDateTime nextDeliveryAt(Subscription subscription, LocalDateTime from) {
+        DeliveryPolicy policy = policyOf(subscription);
+        if (policy == DeliveryPolicy.IMMEDIATE) {
+            return null;
+        }
+        return from.plus(policy.interval(subscription.getDeliveryIntervalMinutes()));
+    }
+
+    @EventListener
+    public void onChangesPersisted(FileChangesPersistedEvent event) {
+        Set<String> filePaths = event.getChanges().stream()
+                .map(FileChange::getFilePath)
+                .collect(Collectors.toSet());
+        LocalDateTime dueAt = LocalDateTime.now().plus(settings.getImmediateDelay());
+        lock.lock();
+        try {
+            for (String filePath : filePaths) {
+                immediateByFile.getOrDefault(filePath, Set.of()).forEach(subscriptionId -> {
+                    ScheduledDelivery current = scheduled.get(subscriptionId);
+                    if (current == null || current.getDueAt().isAfter(dueAt)) {
+                        scheduleAt(subscriptionId, dueAt);
+                    }
+                });
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Zmiany zapisane, gdy poprzednie powiadomienie czekało w outboxie, nie zostały jeszcze wysłane -
+     * subskrypcje {@link DeliveryPolicy#IMMEDIATE} są sprawdzane ponownie po jego wysłaniu.
+     */
+    @EventListener
+    public void onMessagesSent(OutboxMessagesSentEvent event) {
+        Set<Long> subscriptionIds = event.getMessages().stream()
+                .map(OutboxMessage::getSubscriptionId)
+                .collect(Collectors.toSet());
+        LocalDateTime dueAt = LocalDateTime.now().plus(settings.getImmediateDelay());
+        lock.lock();
+        try {
+            immediateByFile.values().forEach(immediate -> immediate.stream()
+                    .filter(subscriptionIds::contains)
+                    .filter(subscriptionId -> scheduled.get(subscriptionId) == null
+                            || scheduled.get(subscriptionId).getDueAt().isAfter(dueAt))
+                    .forEach(subscriptionId -> scheduleAt(subscriptionId, dueAt)));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getScheduledCount() {
+        lock.lock();
+        try {
+            return scheduled.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        schedulerThread.interrupt();
+        schedulerThread.join(TimeUnit.SECONDS.toMillis(30));
+    }
+
+    private void scheduleAt(Long subscriptionId, LocalDateTime dueAt) {
+        ScheduledDelivery delivery = new ScheduledDelivery(subscriptionId, dueAt);
+        scheduled.put(subscriptionId, delivery);
+        queue.add(delivery);
+        changed.signal();
+    }
+
+    private void runDeliveries() {
+        while (running) {
+            try {
+                List<Long> due = awaitDue();
+                if (!due.isEmpty()) {
+                    deliver(due);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                logger.error("Błąd podczas wysyłania zaplanowanych powiadomień.", e);
+            }
+        }
+    }
+
+    private List<Long> awaitDue() throws InterruptedException {
+        lock.lock();
+        try {
+            ScheduledDelivery head = queue.peek();
+            if (head == null) {
+                changed.await();
+                return List.of();
+            }
+            long waitMillis = Duration.between(LocalDateTime.now(), head.getDueAt()).toMillis();
+            if (waitMillis > 0) {
+                changed.await(waitMillis, TimeUnit.MILLISECONDS);
+                return List.of();
+            }
+
+            List<Long> due = new ArrayList<>();
+            LocalDateTime now = LocalDateTime.now();
+            while (!queue.isEmpty() && !queue.peek().getDueAt().isAfter(now) && due.size() < settings.getPageSize()) {
+                ScheduledDelivery delivery = queue.poll();
+                // Wpisy zastąpione nowszym terminem lub anulowane są pomijane.
+                if (scheduled.get(delivery.getSubscriptionId()) == delivery) {
+                    scheduled.remove(delivery.getSubscriptionId());
+                    due.add(delivery.getSubscriptionId());
+                }
+            }
+            return due;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void deliver(List<Long> subscriptionIds) {
+        Map<Boolean, List<Subscription>> byOwnership = subscriptionRepository.findAllById(subscriptionIds).stream()
+                .collect(Collectors.partitioningBy(subscription -> clusterMembership.isOwner(subscription.getTargetPath())));
+        byOwnership.get(false).forEach(this::scheduleForOwner);
+
+        List<Subscription> subscriptions = byOwnership.get(true);
+        try {
+            notificationService.deliver(subscriptions);
+        } finally {
+            LocalDateTime now = LocalDateTime.now();
+            Map<LocalDateTime, List<Long>> idsByNextDelivery = new HashMap<>();
+            for (Subscription subscription : subscriptions) {
+                LocalDateTime next = nextDeliveryAt(subscription, now);
+                subscription.setNextDeliveryAt(next);
+                if (next != null) {
+                    idsByNextDelivery.computeIfAbsent(next, time -> new ArrayList<>()).add(subscription.getId());
+                    schedule(subscription);
+                }
+            }
+            idsByNextDelivery.forEach((next, ids) -> subscriptionRepository.updateNextDeliveryAt(ids, next));
+        }
+    }
+
+    /**
+     * Powiadomienia o pliku wysyła tylko jego właściciel w klastrze. Pozostałe węzły sprawdzają ponownie
+     * w terminie zapisanym przez właściciela - na wypadek, gdyby to one przejęły plik.
+     */
+    private void scheduleForOwner(Subscription subscription) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime ownerDueAt = subscription.getNextDeliveryAt();
+        lock.lock();
+        try {
+            if (!subscription.isActive() || policyOf(subscription) == DeliveryPolicy.IMMEDIATE) {
+                return;
+            }
+            scheduleAt(subscription.getId(), ownerDueAt != null && ownerDueAt.isAfter(now)
+                    ? ownerDueAt
+                    : now.plus(settings.getImmediateDelay()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static DeliveryPolicy policyOf(Subscription subscription) {
+        return subscription.getDeliveryPolicy() != null ? subscription.getDeliveryPolicy() : DeliveryPolicy.DAILY;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static final class ScheduledDelivery {
+        private final Long subscriptionId;
+        private final LocalDateTime dueAt;
+    }
+}
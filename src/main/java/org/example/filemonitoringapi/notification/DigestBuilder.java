@@ -0,0 +1,61 @@
+package org.example.filemonitoringapi.notification;
+
+/**
+ * Buduje treść e-maila przyrostowo, z limitem długości. Linie, które się nie zmieściły,
+ * są tylko liczone i zgłaszane na końcu treści.
+ */
+public class DigestBuilder {
+    private final StringBuilder body;
+    private final int maxLength;
+    private boolean empty = true;
+    private long omittedLines;
+
+    public DigestBuilder(String header, int maxLength) {
+        this.body = new StringBuilder(header);
+        this.maxLength = maxLength;
+    }
+
+    public void append(String content) {
+        if (content == null || content.isEmpty()) {
+            return;
+        }
+        String separator = empty ? "" : "\n";
+        empty = false;
+        if (omittedLines > 0) {
+            omittedLines += countLines(content, 0);
+            return;
+        }
+
+        int remaining = maxLength - body.length() - separator.length();
+        if (content.length() <= remaining) {
+            body.append(separator).append(content);
+            return;
+        }
+        int cut = remaining > 0 ? content.lastIndexOf('\n', remaining) : -1;
+        if (cut > 0) {
+            body.append(separator).append(content, 0, cut);
+            omittedLines += countLines(content, cut + 1);
+        } else {
+            omittedLines += countLines(content, 0);
+        }
+    }
+
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    public String build() {
+        if (omittedLines == 0) {
+            return body.toString();
+        }
+        return body + "\n... (treść obcięta, pominięto jeszcze " + omittedLines + " linii)";
+    }
+
+    private long countLines(String content, int from) {
+        long lines = 1;
+        for (int i = content.indexOf('\n', from); i >= 0; i = content.indexOf('\n', i + 1)) {
+            lines++;
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,145 @@
+package org.example.filemonitoringapi.notification;
+
+import lombok.AllArgsConstructor;
+import org.example.filemonitoringapi.config.FileMonitoringProperties;
+import org.example.filemonitoringapi.email.EmailService;
+import org.example.filemonitoringapi.email.OutboxMessagesSentEvent;
+import org.example.filemonitoringapi.file.ChangeStore;
+import org.example.filemonitoringapi.file.FileChange;
+import org.example.filemonitoringapi.file.FileChangeRepository;
+import org.example.filemonitoringapi.subscription.SubscriptionRepository;
+import org.example.filemonitoringapi.subscription.model.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
+
+@AllArgsConstructor
+@Service
+public class NotificationService {
+
+    private final Logger logger = LoggerFactory.getLogger(NotificationService.class);
+    private EmailService emailService;
+    private SubscriptionRepository subscriptionRepository;
+    private FileChangeRepository fileChangeRepository;
+    private ChangeStore changeStore;
+    private FileMonitoringProperties properties;
+
+
+    /**
+     * Doręcza zaległe zmiany podanym subskrypcjom. Wywoływane przez {@link DeliveryScheduler},
+     * gdy nadejdzie termin wynikający z {@link org.example.filemonitoringapi.subscription.model.DeliveryPolicy}.
+     */
+    public void deliver(List<Subscription> subscriptions) {
+        subscriptions.stream()
+                .filter(Subscription::isActive)
+                .collect(Collectors.groupingBy(Subscription::getTargetPath))
+                .forEach((filePath, fileSubscriptions) -> fileChangeRepository.findMaxPendingId(filePath)
+                        .ifPresent(maxId -> deliver(filePath, fileSubscriptions, maxId)));
+    }
+
+    /**
+     * Wysyła każdemu subskrybentowi zmiany od jego ostatniego potwierdzonego doręczenia do {@code maxId}.
+     * Kursor przesuwa dopiero {@link #onMessagesSent} po wysłaniu wiadomości z outboxa - wiadomość DEAD
+     * go nie przesuwa, więc jej zmiany trafią do kolejnego powiadomienia. Subskrypcja, której poprzednie
+     * powiadomienie czeka jeszcze na wysłanie, jest pomijana, żeby nie dostała tych samych zmian dwa razy.
+     */
+    private void deliver(String filePath, List<Subscription> dueSubscriptions, Long maxId) {
+        Set<Long> awaitingDelivery = emailService.findSubscriptionsAwaitingDelivery(
+                dueSubscriptions.stream().map(Subscription::getId).toList());
+        Map<Long, List<Subscription>> subscriptionsByCursor = dueSubscriptions.stream()
+                .filter(subscription -> !awaitingDelivery.contains(subscription.getId()))
+                .collect(Collectors.groupingBy(this::deliveryCursor));
+
+        Map<Subscription, CompletableFuture<Void>> deliveries = new LinkedHashMap<>();
+        subscriptionsByCursor.forEach((cursor, subscriptions) -> {
+            if (cursor >= maxId) {
+                return;
+            }
+            String emailBody = buildDigest(filePath, cursor, maxId);
+            subscriptions.forEach(subscription -> deliveries.put(subscription, emailService.sendNotification(
+                    subscription.getEmail(), "Zmiana w pliku: " + filePath, emailBody, subscription.getId(), maxId)));
+        });
+
+        deliveries.forEach((subscription, delivery) -> {
+            try {
+                delivery.join();
+            } catch (CompletionException | CancellationException e) {
+                logger.error("Nie udało się doręczyć powiadomienia o pliku {} do: {}", filePath, subscription.getEmail(), e);
+            }
+        });
+    }
+
+    /**
+     * Przesuwa kursory subskrypcji do ostatniej zmiany z wysłanych powiadomień i oznacza zmiany jako
+     * wysłane, gdy dotarły do wszystkich aktywnych subskrybentów pliku.
+     */
+    @EventListener
+    public void onMessagesSent(OutboxMessagesSentEvent event) {
+        Map<Long, Long> changeIdBySubscription = new HashMap<>();
+        event.getMessages().stream()
+                .filter(message -> message.getSubscriptionId() != null && message.getChangeId() != null)
+                .forEach(message -> changeIdBySubscription.merge(message.getSubscriptionId(), message.getChangeId(), Math::max));
+        if (changeIdBySubscription.isEmpty()) {
+            return;
+        }
+        changeIdBySubscription.entrySet().stream()
+                .collect(Collectors.groupingBy(Map.Entry::getValue,
+                        Collectors.mapping(Map.Entry::getKey, Collectors.toList())))
+                .forEach((changeId, subscriptionIds) ->
+                        subscriptionRepository.updateLastDeliveredChangeId(subscriptionIds, changeId));
+
+        LocalDateTime now = LocalDateTime.now();
+        subscriptionRepository.findAllById(changeIdBySubscription.keySet()).stream()
+                .map(Subscription::getTargetPath)
+                .distinct()
+                .forEach(filePath -> {
+                    Long deliveredToAll = subscriptionRepository.findMinDeliveredChangeId(filePath);
+                    if (deliveredToAll != null && deliveredToAll > 0) {
+                        fileChangeRepository.markNotified(filePath, deliveredToAll, now);
+                    }
+                });
+    }
+
+    private long deliveryCursor(Subscription subscription) {
+        Long cursor = subscription.getLastDeliveredChangeId();
+        return cursor != null ? cursor : 0L;
+    }
+
+    private String buildDigest(String filePath, Long afterId, Long maxId) {
+        FileMonitoringProperties.Notification settings = properties.getNotification();
+        DigestBuilder digest = new DigestBuilder(generateEmailHeader(filePath), settings.getMaxBodyLength());
+        Pageable page = PageRequest.of(0, settings.getPageSize());
+
+        List<FileChange> changes = fileChangeRepository.findPendingPage(filePath, afterId, maxId, page);
+        while (!changes.isEmpty()) {
+            changes.forEach(change -> digest.append(changeStore.loadContent(change)));
+            if (changes.size() < settings.getPageSize()) {
+                break;
+            }
+            Long lastId = changes.get(changes.size() - 1).getId();
+            changes = fileChangeRepository.findPendingPage(filePath, lastId, maxId, page);
+        }
+        return digest.build();
+    }
+
+    private String generateEmailHeader(String filePath) {
+        LocalDateTime now = LocalDateTime.now();
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        return "Dnia " + now.format(formatter) + " zmieniono plik " + filePath + " dopisano do niego:\n";
+    }
+}
@@ -0,0 +1,15 @@
+package org.example.filemonitoringapi.stream;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+@Getter
+@AllArgsConstructor
+public class ChangeEvent {
+    private final Long id;
+    private final String filePath;
+    private final LocalDateTime changeTime;
+    private final String content;
+}
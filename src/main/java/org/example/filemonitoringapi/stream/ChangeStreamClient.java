@@ -0,0 +1,50 @@
+package org.example.filemonitoringapi.stream;
+
+import lombok.Getter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Jeden podłączony klient strumienia. Zdarzenia czekają w ograniczonej kolejce, a wysyła je
+ * najwyżej jedno zadanie naraz ({@link #draining}), więc kolejność zdarzeń jest zachowana.
+ * Dopóki trwa powtórka z bazy ({@link #replaying}), nowe zdarzenia nie trafiają do kolejki -
+ * powtórka i tak je odczyta.
+ */
+@Getter
+class ChangeStreamClient {
+    private final String filePath;
+    private final SseEmitter emitter;
+    private final BlockingQueue<ChangeEvent> queue;
+    private final AtomicBoolean draining = new AtomicBoolean(true);
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final AtomicBoolean timedOut = new AtomicBoolean();
+    private final AtomicBoolean skippedDuringReplay = new AtomicBoolean();
+    private volatile long lastSentId;
+    private volatile boolean replaying;
+    /**
+     * {@link System#nanoTime()} początku trwającego wysyłania albo {@code 0}.
+     */
+    private volatile long sendStartedAt;
+
+    ChangeStreamClient(String filePath, SseEmitter emitter, int bufferSize, long lastSentId) {
+        this.filePath = filePath;
+        this.emitter = emitter;
+        this.queue = new ArrayBlockingQueue<>(bufferSize);
+        this.lastSentId = lastSentId;
+    }
+
+    void setLastSentId(long lastSentId) {
+        this.lastSentId = lastSentId;
+    }
+
+    void setReplaying(boolean replaying) {
+        this.replaying = replaying;
+    }
+
+    void setSendStartedAt(long sendStartedAt) {
+        this.sendStartedAt = sendStartedAt;
+    }
+}
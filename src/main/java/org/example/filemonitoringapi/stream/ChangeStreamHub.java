@@ -0,0 +1,301 @@
+package org.example.filemonitoringapi.stream;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.filemonitoringapi.cluster.ClusterMembership;
+import org.example.filemonitoringapi.config.FileMonitoringProperties;
+import org.example.filemonitoringapi.file.ChangeStore;
+import org.example.filemonitoringapi.file.FileChange;
+import org.example.filemonitoringapi.file.FileChangeRepository;
+import org.example.filemonitoringapi.file.FileChangesPersistedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+
+/**
+ * Rozsyła zapisane zmiany plików do klientów podłączonych przez Server-Sent Events.
+ * Identyfikatorem zdarzenia jest id {@link FileChange}, więc klient wznawiający połączenie
+ * z nagłówkiem {@code Last-Event-ID} dostaje brakujące zmiany z bazy. Klient, którego kolejka
+ * się zapełni, jest rozłączany - po ponownym połączeniu nadrobi zmiany w ten sam sposób.
+ * <p>
+ * W klastrze zdarzenie {@link FileChangesPersistedEvent} powstaje tylko na węźle, który obserwuje plik.
+ * Klienci podłączeni do innych węzłów dostają zmiany z bazy: co {@code stream.remote-poll-interval}
+ * hub doczytuje zmiany po ostatnio wysłanym id dla plików, których ten węzeł nie jest właścicielem.
+ * <p>
+ * Podczas powtórki nowe zdarzenia nie trafiają do kolejki klienta (są już w bazie, więc powtórka je odczyta),
+ * dzięki temu długa powtórka nie przepełnia bufora. Klient dostaje wątek puli {@code streamExecutor} na jedną
+ * turę: stronę powtórki albo {@code max-events-per-turn} zdarzeń, po czym wraca na koniec kolejki puli.
+ * Klient, którego pojedyncze wysyłanie trwa dłużej niż {@code send-timeout}, jest rozłączany.
+ */
+@Component
+public class ChangeStreamHub {
+    private final Logger logger = LoggerFactory.getLogger(ChangeStreamHub.class);
+    private final Map<String, Set<ChangeStreamClient>> clients = new ConcurrentHashMap<>();
+    private final FileChangeRepository fileChangeRepository;
+    private final ChangeStore changeStore;
+    private final ThreadPoolTaskExecutor streamExecutor;
+    private final ClusterMembership clusterMembership;
+    private final FileMonitoringProperties.Stream settings;
+    private final boolean clustered;
+    private final Counter slowConsumerCounter;
+
+    public ChangeStreamHub(FileChangeRepository fileChangeRepository, ChangeStore changeStore,
+                           @Qualifier("streamExecutor") ThreadPoolTaskExecutor streamExecutor,
+                           ClusterMembership clusterMembership, FileMonitoringProperties properties,
+                           MeterRegistry meterRegistry) {
+        this.fileChangeRepository = fileChangeRepository;
+        this.changeStore = changeStore;
+        this.streamExecutor = streamExecutor;
+        this.clusterMembership = clusterMembership;
+        this.settings = properties.getStream();
+        this.clustered = properties.getCluster().isEnabled();
+        this.slowConsumerCounter = meterRegistry.counter("filemonitoring.stream.slow.consumers");
+        Gauge.builder("filemonitoring.stream.clients", clients,
+                        map -> map.values().stream().mapToInt(Set::size).sum())
+                .register(meterRegistry);
+    }
+
+    public SseEmitter subscribe(String filePath, Long lastEventId) {
+        SseEmitter emitter = new SseEmitter(settings.getTimeout().toMillis());
+        long startId = lastEventId != null ? lastEventId
+                : clustered ? fileChangeRepository.findMaxId(filePath).orElse(0L) : 0L;
+        ChangeStreamClient client = new ChangeStreamClient(filePath, emitter, settings.getClientBufferSize(), startId);
+        client.setReplaying(lastEventId != null);
+        emitter.onCompletion(() -> remove(client));
+        emitter.onTimeout(() -> close(client));
+        emitter.onError(error -> remove(client));
+
+        clients.computeIfAbsent(filePath, path -> ConcurrentHashMap.newKeySet()).add(client);
+        // Klient startuje z ustawioną flagą draining - pierwsza tura wykonuje powtórkę albo wysyła kolejkę.
+        execute(client, () -> stream(client));
+        return emitter;
+    }
+
+    @EventListener
+    public void onChangesPersisted(FileChangesPersistedEvent event) {
+        Map<String, List<FileChange>> changesByFile = event.getChanges().stream()
+                .filter(change -> clients.containsKey(change.getFilePath()))
+                .collect(Collectors.groupingBy(FileChange::getFilePath));
+
+        changesByFile.forEach((filePath, changes) -> {
+            Set<ChangeStreamClient> fileClients = clients.get(filePath);
+            if (fileClients == null || fileClients.isEmpty()) {
+                return;
+            }
+            List<ChangeEvent> events = changes.stream().map(this::toEvent).toList();
+            fileClients.forEach(client -> offer(client, events));
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${file-monitoring.stream.remote-poll-interval:PT2S}")
+    public void pollRemoteChanges() {
+        if (!clustered) {
+            return;
+        }
+        clients.forEach((filePath, fileClients) -> {
+            if (!clusterMembership.isOwner(filePath)) {
+                fileClients.forEach(this::scheduleCatchUp);
+            }
+        });
+    }
+
+    /**
+     * Zablokowanego zapisu nie da się przerwać - {@link SseEmitter#complete()} czekałoby na jego koniec.
+     * Klient przestaje więc dostawać tury i zdarzenia, a emiter zamyka wątek wysyłający, gdy zapis się zakończy.
+     */
+    @Scheduled(fixedDelayString = "${file-monitoring.stream.send-timeout:PT10S}")
+    public void closeStalledClients() {
+        long now = System.nanoTime();
+        long timeout = settings.getSendTimeout().toNanos();
+        clients.values().forEach(fileClients -> fileClients.forEach(client -> {
+            long sendStartedAt = client.getSendStartedAt();
+            if (sendStartedAt != 0 && now - sendStartedAt > timeout && client.getTimedOut().compareAndSet(false, true)) {
+                remove(client);
+                slowConsumerCounter.increment();
+                logger.warn("Wysyłanie do klienta strumienia pliku {} przekroczyło limit czasu, rozłączam.",
+                        client.getFilePath());
+            }
+        }));
+    }
+
+    public int getClientCount(String filePath) {
+        Set<ChangeStreamClient> fileClients = clients.get(filePath);
+        return fileClients != null ? fileClients.size() : 0;
+    }
+
+    private void offer(ChangeStreamClient client, List<ChangeEvent> events) {
+        if (client.isReplaying()) {
+            client.getSkippedDuringReplay().set(true);
+            // Ponowne sprawdzenie: jeśli powtórka właśnie się skończyła, zdarzenia idą do kolejki.
+            if (client.isReplaying()) {
+                return;
+            }
+        }
+        for (ChangeEvent event : events) {
+            if (!client.getQueue().offer(event)) {
+                slowConsumerCounter.increment();
+                logger.warn("Klient strumienia pliku {} nie nadąża z odbiorem zmian, rozłączam.", client.getFilePath());
+                close(client);
+                return;
+            }
+        }
+        scheduleStream(client);
+    }
+
+    private void scheduleStream(ChangeStreamClient client) {
+        if (client.getDraining().compareAndSet(false, true)) {
+            execute(client, () -> stream(client));
+        }
+    }
+
+    private void scheduleCatchUp(ChangeStreamClient client) {
+        if (client.getDraining().compareAndSet(false, true)) {
+            client.setReplaying(true);
+            execute(client, () -> stream(client));
+        }
+    }
+
+    private void execute(ChangeStreamClient client, Runnable task) {
+        try {
+            streamExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            logger.warn("Brak wolnych wątków strumienia, rozłączam klienta pliku {}.", client.getFilePath());
+            close(client);
+        }
+    }
+
+    /**
+     * Jedna tura klienta. Pozostała praca jest planowana od nowa, więc klient z dużą zaległością
+     * nie zajmuje wątku kosztem pozostałych.
+     */
+    private void stream(ChangeStreamClient client) {
+        boolean pending = false;
+        try {
+            pending = client.isReplaying() ? replayPage(client) : drain(client);
+        } catch (RuntimeException e) {
+            logger.warn("Błąd strumienia zmian pliku " + client.getFilePath() + ", rozłączam klienta.", e);
+            close(client);
+        } finally {
+            client.getDraining().set(false);
+        }
+        if ((pending || !client.getQueue().isEmpty()) && !client.getClosed().get()) {
+            scheduleStream(client);
+        }
+    }
+
+    /**
+     * @return {@code true}, jeśli powtórka nie doszła jeszcze do końca zmian w bazie
+     */
+    private boolean replayPage(ChangeStreamClient client) {
+        List<FileChange> changes = findAfterLastSent(client);
+        if (!sendAll(client, changes) || changes.size() == settings.getReplayPageSize()) {
+            return !client.getClosed().get();
+        }
+        // Zdarzenia pominięte przed wyłączeniem powtórki są już w bazie, a późniejsze trafiają do kolejki
+        // (drain odrzuca te, które zostały wysłane tutaj).
+        client.setReplaying(false);
+        if (!client.getSkippedDuringReplay().getAndSet(false)) {
+            return false;
+        }
+        do {
+            changes = findAfterLastSent(client);
+        } while (sendAll(client, changes) && changes.size() == settings.getReplayPageSize());
+        return false;
+    }
+
+    private List<FileChange> findAfterLastSent(ChangeStreamClient client) {
+        Pageable page = PageRequest.of(0, settings.getReplayPageSize());
+        return fileChangeRepository.findByFilePathAfterId(client.getFilePath(), client.getLastSentId(), page);
+    }
+
+    private boolean sendAll(ChangeStreamClient client, List<FileChange> changes) {
+        for (FileChange change : changes) {
+            if (!send(client, toEvent(change))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return {@code true}, jeśli w kolejce zostały zdarzenia ponad limit tury
+     */
+    private boolean drain(ChangeStreamClient client) {
+        int sent = 0;
+        ChangeEvent event;
+        while (!client.getClosed().get() && (event = client.getQueue().peek()) != null) {
+            if (sent == settings.getMaxEventsPerTurn()) {
+                return true;
+            }
+            client.getQueue().poll();
+            if (event.getId() <= client.getLastSentId()) {
+                continue;
+            }
+            if (!send(client, event)) {
+                return false;
+            }
+            sent++;
+        }
+        return false;
+    }
+
+    private boolean send(ChangeStreamClient client, ChangeEvent event) {
+        client.setSendStartedAt(System.nanoTime());
+        try {
+            client.getEmitter().send(SseEmitter.event()
+                    .id(String.valueOf(event.getId()))
+                    .name("change")
+                    .data(event));
+        } catch (IOException | IllegalStateException e) {
+            remove(client);
+            return false;
+        } finally {
+            client.setSendStartedAt(0);
+        }
+        if (client.getTimedOut().get()) {
+            client.getEmitter().complete();
+            return false;
+        }
+        client.setLastSentId(event.getId());
+        return true;
+    }
+
+    private ChangeEvent toEvent(FileChange change) {
+        return new ChangeEvent(change.getId(), change.getFilePath(), change.getChangeTime(),
+                changeStore.loadContent(change));
+    }
+
+    private void close(ChangeStreamClient client) {
+        if (remove(client)) {
+            client.getEmitter().complete();
+        }
+    }
+
+    private boolean remove(ChangeStreamClient client) {
+        if (!client.getClosed().compareAndSet(false, true)) {
+            return false;
+        }
+        client.getQueue().clear();
+        clients.computeIfPresent(client.getFilePath(), (path, fileClients) -> {
+            fileClients.remove(client);
+            return fileClients.isEmpty() ? null : fileClients;
+        });
+        return true;
+    }
+}
@@ -3,13 +3,19 @@ package org.example.filemonitoringapi.subscription;
 import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
 import org.example.filemonitoringapi.subscription.model.CreateSubscriptionCommand;
+import org.example.filemonitoringapi.subscription.model.SubscriptionBatchResult;
 import org.example.filemonitoringapi.subscription.model.SubscriptionDto;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+
 @AllArgsConstructor
 @RestController
 @RequestMapping("/api/subscriptions")
@@ -24,6 +30,22 @@ public class SubscriptionController {
         return subscriptionService.createSubscription(command);
     }
 
+    /**
+     * Pozycje są walidowane w serwisie, żeby jedna błędna nie odrzuciła całej partii.
+     */
+    @PreAuthorize("hasRole('USER')")
+    @PostMapping("/follow/batch")
+    @ResponseStatus(HttpStatus.OK)
+    public List<SubscriptionBatchResult> followFiles(@RequestBody List<CreateSubscriptionCommand> commands) {
+        return subscriptionService.createSubscriptions(commands);
+    }
+
+    @DeleteMapping("/unfollow/batch")
+    @ResponseStatus(HttpStatus.OK)
+    public List<SubscriptionBatchResult> unfollowFiles(@RequestBody List<String> jobIds) {
+        return subscriptionService.cancelSubscriptions(jobIds);
+    }
+
     @DeleteMapping("{jobId}/unfollow")
     @ResponseStatus(HttpStatus.OK)
     public void unfollowFile(@PathVariable String jobId) {
@@ -35,6 +57,13 @@ public class SubscriptionController {
     public boolean getSubscriptionStatus(@PathVariable String jobId) {
         return subscriptionService.getSubscriptionStatusByJobId(jobId);
     }
+
+    @GetMapping(path = "{jobId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(@PathVariable String jobId,
+                                    @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        return subscriptionService.openChangeStream(jobId, lastEventId);
+    }
+
     @GetMapping
     @ResponseStatus(HttpStatus.OK)
     public Page<SubscriptionDto> getAllSubscriptions(@PageableDefault(page = 0, size = 10) Pageable pageable) {
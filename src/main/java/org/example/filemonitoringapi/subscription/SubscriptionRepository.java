@@ -1,9 +1,16 @@
 package org.example.filemonitoringapi.subscription;
 
 import org.example.filemonitoringapi.subscription.model.Subscription;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,8 +20,33 @@ public interface SubscriptionRepository extends JpaRepository<Subscription, Long
 
     Optional<Subscription> findByJobId(String jobId);
 
+    List<Subscription> findByJobIdIn(Collection<String> jobIds);
+
+    @Query("select s.active from Subscription s where s.jobId = :jobId")
+    Optional<Boolean> findActiveByJobId(@Param("jobId") String jobId);
+
     List<Subscription> findByFilePathAndActive(String filePath, boolean active);
 
+    Page<Subscription> findByActive(boolean active, Pageable pageable);
+
+    @Query("select s from Subscription s where s.active = true and s.id > :afterId order by s.id")
+    List<Subscription> findActiveAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("select min(coalesce(s.lastDeliveredChangeId, 0)) from Subscription s where s.active = true " +
+            "and (s.watchedPath = :filePath or (s.watchedPath is null and s.filePath = :filePath))")
+    Long findMinDeliveredChangeId(@Param("filePath") String filePath);
+
+    @Modifying
+    @Transactional
+    @Query("update Subscription s set s.nextDeliveryAt = :nextDeliveryAt where s.id in :ids")
+    int updateNextDeliveryAt(@Param("ids") Collection<Long> ids, @Param("nextDeliveryAt") LocalDateTime nextDeliveryAt);
+
+    @Modifying
+    @Transactional
+    @Query("update Subscription s set s.lastDeliveredChangeId = :changeId where s.id in :ids " +
+            "and (s.lastDeliveredChangeId is null or s.lastDeliveredChangeId < :changeId)")
+    int updateLastDeliveredChangeId(@Param("ids") Collection<Long> ids, @Param("changeId") Long changeId);
+
 
 
 }
@@ -1,64 +1,275 @@
 package org.example.filemonitoringapi.subscription;
 
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.AllArgsConstructor;
+import org.example.filemonitoringapi.config.FileMonitoringProperties;
 import org.example.filemonitoringapi.exception.FileReadException;
 import org.example.filemonitoringapi.exception.FileWatcherRegistrationException;
+import org.example.filemonitoringapi.exception.SubscriptionBatchException;
 import org.example.filemonitoringapi.exception.SubscriptionCreationException;
 import org.example.filemonitoringapi.exception.SubscriptionNotFoundException;
+import org.example.filemonitoringapi.listener.FilePathCanonicalizer;
 import org.example.filemonitoringapi.listener.FileWatcherService;
+import org.example.filemonitoringapi.listener.WatcherExecutors;
+import org.example.filemonitoringapi.notification.DeliveryScheduler;
+import org.example.filemonitoringapi.stream.ChangeStreamHub;
 import org.example.filemonitoringapi.subscription.model.CreateSubscriptionCommand;
+import org.example.filemonitoringapi.subscription.model.DeliveryPolicy;
 import org.example.filemonitoringapi.subscription.model.Subscription;
+import org.example.filemonitoringapi.subscription.model.SubscriptionBatchResult;
 import org.example.filemonitoringapi.subscription.model.SubscriptionDto;
 import org.example.filemonitoringapi.subscription.model.SubscriptionMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.IOException;
-import java.util.UUID;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @AllArgsConstructor
 @Service
 public class SubscriptionService {
+    static final String STATUS_CACHE = "subscriptionStatus";
 
+    private final Logger logger = LoggerFactory.getLogger(SubscriptionService.class);
     private final SubscriptionRepository subscriptionRepository;
     private final FileWatcherService fileWatcherService;
     private final SubscriptionMapper subscriptionMapper;
+    private final ChangeStreamHub changeStreamHub;
+    private final DeliveryScheduler deliveryScheduler;
+    private final FilePathCanonicalizer filePathCanonicalizer;
+    private final Validator validator;
+    private final CacheManager cacheManager;
+    private final FileMonitoringProperties properties;
+    private final WatcherExecutors watcherExecutors;
 
 
-    @Transactional
+    /**
+     * Metoda nie jest transakcyjna: {@code save} repozytorium zatwierdza zapis, zanim plik zacznie być
+     * obserwowany, więc obserwator nigdy nie dotyczy wycofanej subskrypcji. Gdy rejestracja się nie powiedzie,
+     * subskrypcja jest usuwana.
+     */
     public SubscriptionDto createSubscription(CreateSubscriptionCommand command) {
+        Subscription subscription = newSubscription(command);
+
+        try {
+            subscription.setWatchedPath(filePathCanonicalizer.canonicalize(subscription.getFilePath()));
+            subscriptionRepository.save(subscription);
+            startWatching(subscription);
+        } catch (FileReadException | FileWatcherRegistrationException e) {
+            throw new SubscriptionCreationException("Nie udało się utworzyć subskrypcji", e);
+        }
+
+        return subscriptionMapper.toDTO(subscription);
+    }
+
+    /**
+     * Tworzy subskrypcje partią. Każda pozycja jest walidowana osobno, poprawne są zapisywane jednym
+     * {@code saveAll} (wsadowe INSERT-y przy {@code hibernate.jdbc.batch_size}) we własnej transakcji repozytorium.
+     * Obserwatorzy są rejestrowani dopiero po jej zatwierdzeniu, na puli {@code processingExecutor} - jedno zadanie
+     * na katalog - a wynik jest budowany po zakończeniu rejestracji. Subskrypcja, której nie udało się zarejestrować,
+     * jest usuwana. Błąd pozycji trafia do jej wyniku i nie przerywa reszty partii.
+     */
+    public List<SubscriptionBatchResult> createSubscriptions(List<CreateSubscriptionCommand> commands) {
+        checkBatchSize(commands);
+        Map<Integer, SubscriptionBatchResult> failures = new HashMap<>();
+        Map<Integer, Subscription> prepared = new LinkedHashMap<>();
+        for (int index = 0; index < commands.size(); index++) {
+            CreateSubscriptionCommand command = commands.get(index);
+            String filePath = command != null ? command.getFilePath() : null;
+            try {
+                validate(command);
+                Subscription subscription = newSubscription(command);
+                subscription.setWatchedPath(filePathCanonicalizer.canonicalize(subscription.getFilePath()));
+                prepared.put(index, subscription);
+            } catch (FileReadException | SubscriptionCreationException e) {
+                failures.put(index, failure(index, null, filePath, e.getMessage()));
+            }
+        }
+        subscriptionRepository.saveAll(prepared.values());
+
+        Map<Subscription, String> registrationErrors = registerFileWatchers(prepared.values());
+        List<SubscriptionBatchResult> results = new ArrayList<>(commands.size());
+        for (int index = 0; index < commands.size(); index++) {
+            Subscription subscription = prepared.get(index);
+            if (subscription == null) {
+                results.add(failures.get(index));
+            } else if (registrationErrors.containsKey(subscription)) {
+                results.add(failure(index, null, subscription.getFilePath(), registrationErrors.get(subscription)));
+            } else {
+                results.add(success(index, subscription));
+            }
+        }
+        return results;
+    }
+
+    private Subscription newSubscription(CreateSubscriptionCommand command) {
         Subscription subscription = subscriptionMapper.fromCreateCommand(command);
         subscription.setJobId(UUID.randomUUID().toString());
         subscription.setActive(true);
+        applyDeliveryPolicy(subscription);
+        return subscription;
+    }
+
+    private void validate(CreateSubscriptionCommand command) {
+        if (command == null) {
+            throw new SubscriptionCreationException("Pusta pozycja partii");
+        }
+        Set<ConstraintViolation<CreateSubscriptionCommand>> violations = validator.validate(command);
+        if (!violations.isEmpty()) {
+            throw new SubscriptionCreationException(violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining("; ")));
+        }
+    }
+
+    /**
+     * Pliki jednego katalogu są rejestrowane po kolei: dzielą {@link java.nio.file.WatchKey},
+     * a kilka subskrypcji tego samego pliku nie nadrabia go równolegle.
+     *
+     * @return komunikaty błędów subskrypcji, których nie udało się zarejestrować
+     */
+    private Map<Subscription, String> registerFileWatchers(Collection<Subscription> subscriptions) {
+        Map<Subscription, String> errors = new ConcurrentHashMap<>();
+        Map<String, List<Subscription>> byDirectory = subscriptions.stream()
+                .collect(Collectors.groupingBy(subscription ->
+                        String.valueOf(Paths.get(subscription.getTargetPath()).getParent())));
+        CompletableFuture<?>[] tasks = byDirectory.values().stream()
+                .map(directorySubscriptions -> CompletableFuture.runAsync(() -> directorySubscriptions.forEach(subscription -> {
+                    try {
+                        startWatching(subscription);
+                    } catch (FileWatcherRegistrationException | RuntimeException e) {
+                        errors.put(subscription, String.valueOf(e.getMessage()));
+                    }
+                }), watcherExecutors.getProcessingExecutor()))
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(tasks).join();
+        return errors;
+    }
 
+    /**
+     * Uruchamia obserwację i harmonogram wysyłki już zapisanej subskrypcji. Przy błędzie usuwa subskrypcję
+     * własną transakcją repozytorium i przekazuje wyjątek dalej.
+     */
+    private void startWatching(Subscription subscription) throws FileWatcherRegistrationException {
         try {
-            subscriptionRepository.save(subscription);
             fileWatcherService.registerFileWatcher(subscription);
-        } catch (FileWatcherRegistrationException e) {
-            throw new SubscriptionCreationException("Nie udało się utworzyć subskrypcji", e);
+            deliveryScheduler.schedule(subscription);
+        } catch (FileWatcherRegistrationException | RuntimeException e) {
+            logger.error("Nie udało się zarejestrować obserwacji pliku: " + subscription.getTargetPath(), e);
+            subscriptionRepository.delete(subscription);
+            throw e;
+        }
+    }
 
 
+    private void applyDeliveryPolicy(Subscription subscription) {
+        if (subscription.getDeliveryPolicy() == null) {
+            subscription.setDeliveryPolicy(DeliveryPolicy.DAILY);
         }
-
-        return subscriptionMapper.toDTO(subscription);
+        if (subscription.getDeliveryPolicy() == DeliveryPolicy.EVERY_N_MINUTES
+                && subscription.getDeliveryIntervalMinutes() == null) {
+            throw new SubscriptionCreationException("Polityka EVERY_N_MINUTES wymaga podania deliveryIntervalMinutes");
+        }
+        subscription.setNextDeliveryAt(DeliveryScheduler.nextDeliveryAt(subscription, LocalDateTime.now()));
     }
 
 
+    @CacheEvict(cacheNames = STATUS_CACHE, key = "#jobId")
     @Transactional
     public boolean cancelSubscription(String jobId) {
         Subscription subscription = subscriptionRepository.findByJobId(jobId)
                 .orElseThrow(() -> new SubscriptionNotFoundException("Nie ma takiej subskrypcji o id: " + jobId));
 
         fileWatcherService.unregisterFileWatcher(subscription);
+        deliveryScheduler.unschedule(subscription);
         subscriptionRepository.delete(subscription);
         return true;
     }
 
+    /**
+     * Anuluje subskrypcje partią: jedno zapytanie po {@code jobId}, jedno usunięcie po id
+     * i usunięcie statusów z bufora. Nieznane {@code jobId} dają błąd tylko swojej pozycji.
+     */
+    @Transactional
+    public List<SubscriptionBatchResult> cancelSubscriptions(List<String> jobIds) {
+        checkBatchSize(jobIds);
+        Map<String, Subscription> found = subscriptionRepository.findByJobIdIn(jobIds.stream()
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(Subscription::getJobId, Function.identity()));
+
+        List<SubscriptionBatchResult> results = new ArrayList<>(jobIds.size());
+        List<Subscription> cancelled = new ArrayList<>();
+        for (int index = 0; index < jobIds.size(); index++) {
+            String jobId = jobIds.get(index);
+            Subscription subscription = jobId != null ? found.remove(jobId) : null;
+            if (subscription == null) {
+                results.add(failure(index, jobId, null, "Nie ma takiej subskrypcji o id: " + jobId));
+                continue;
+            }
+            fileWatcherService.releaseFileWatcher(subscription, false);
+            deliveryScheduler.unschedule(subscription);
+            cancelled.add(subscription);
+            results.add(success(index, subscription));
+        }
+
+        subscriptionRepository.deleteAllByIdInBatch(cancelled.stream().map(Subscription::getId).toList());
+        Cache statusCache = cacheManager.getCache(STATUS_CACHE);
+        if (statusCache != null) {
+            cancelled.forEach(subscription -> statusCache.evict(subscription.getJobId()));
+        }
+        return results;
+    }
+
+    private void checkBatchSize(List<?> items) {
+        int maxSize = properties.getSubscriptionBatch().getMaxSize();
+        if (items == null || items.isEmpty()) {
+            throw new SubscriptionBatchException("Partia nie może być pusta");
+        }
+        if (items.size() > maxSize) {
+            throw new SubscriptionBatchException("Partia może zawierać najwyżej " + maxSize + " pozycji");
+        }
+    }
+
+    private SubscriptionBatchResult success(int index, Subscription subscription) {
+        return SubscriptionBatchResult.builder()
+                .index(index)
+                .jobId(subscription.getJobId())
+                .filePath(subscription.getFilePath())
+                .success(true)
+                .subscription(subscriptionMapper.toDTO(subscription))
+                .build();
+    }
+
+    private SubscriptionBatchResult failure(int index, String jobId, String filePath, String error) {
+        return SubscriptionBatchResult.builder()
+                .index(index)
+                .jobId(jobId)
+                .filePath(filePath)
+                .success(false)
+                .error(error)
+                .build();
+    }
+
     @Transactional(readOnly = true)
     public SubscriptionDto getSubscriptionByJobId(String jobId) {
         Subscription subscription = subscriptionRepository.findByJobId(jobId)
@@ -66,11 +277,23 @@ public class SubscriptionService {
         return subscriptionMapper.toDTO(subscription);
     }
 
+    /**
+     * Status jest czytany projekcją bez ładowania encji i buforowany (Caffeine, {@code spring.cache.caffeine.spec}).
+     * Nieistniejące subskrypcje nie trafiają do bufora, bo kończą się wyjątkiem.
+     */
+    @Cacheable(cacheNames = STATUS_CACHE, key = "#jobId")
     @Transactional(readOnly = true)
     public boolean getSubscriptionStatusByJobId(String jobId) {
+        return subscriptionRepository.findActiveByJobId(jobId)
+                .orElseThrow(() -> new SubscriptionNotFoundException("Nie ma takiej subskrypcji o id: " + jobId));
+    }
+
+    @Transactional(readOnly = true)
+    public SseEmitter openChangeStream(String jobId, Long lastEventId) {
         Subscription subscription = subscriptionRepository.findByJobId(jobId)
+                .filter(Subscription::isActive)
                 .orElseThrow(() -> new SubscriptionNotFoundException("Nie ma takiej subskrypcji o id: " + jobId));
-        return subscription.isActive();
+        return changeStreamHub.subscribe(subscription.getTargetPath(), lastEventId);
     }
 
     @Transactional(readOnly = true)
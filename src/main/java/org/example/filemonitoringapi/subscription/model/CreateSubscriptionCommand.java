@@ -1,11 +1,13 @@
 package org.example.filemonitoringapi.subscription.model;
 
 import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.example.filemonitoringapi.listener.WatchEngineType;
 
 @Builder
 @AllArgsConstructor
@@ -19,4 +21,11 @@ public class CreateSubscriptionCommand {
     @NotBlank(message = "Adres email nie może być pusty")
     private String email;
 
+    private WatchEngineType watchEngine;
+
+    private DeliveryPolicy deliveryPolicy;
+
+    @Min(value = 1, message = "Interwał powiadomień musi wynosić co najmniej 1 minutę")
+    private Integer deliveryIntervalMinutes;
+
 }
@@ -0,0 +1,19 @@
+package org.example.filemonitoringapi.subscription.model;
+
+import java.time.Duration;
+
+public enum DeliveryPolicy {
+    IMMEDIATE,
+    EVERY_N_MINUTES,
+    HOURLY,
+    DAILY;
+
+    public Duration interval(Integer intervalMinutes) {
+        return switch (this) {
+            case IMMEDIATE -> Duration.ZERO;
+            case EVERY_N_MINUTES -> Duration.ofMinutes(intervalMinutes);
+            case HOURLY -> Duration.ofHours(1);
+            case DAILY -> Duration.ofDays(1);
+        };
+    }
+}
@@ -2,6 +2,7 @@ package org.example.filemonitoringapi.subscription.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.example.filemonitoringapi.listener.WatchEngineType;
 
 import java.time.LocalDateTime;
 
@@ -11,19 +12,42 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_subscription_job_id", columnNames = "jobId"),
+        indexes = {
+                @Index(name = "idx_subscription_watched_path_active", columnList = "watchedPath, active"),
+                @Index(name = "idx_subscription_file_path_active", columnList = "filePath, active"),
+                @Index(name = "idx_subscription_active_id", columnList = "active, id")
+        })
 public class Subscription {
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
     private Long id;
 
     private String filePath;
+    private String watchedPath;
     private String email;
     private String jobId;
     private boolean active;
 
-    @Version
-    private Long version;
+    @Enumerated(EnumType.STRING)
+    private WatchEngineType watchEngine;
+
+    private Long lastDeliveredChangeId;
+
+    @Enumerated(EnumType.STRING)
+    private DeliveryPolicy deliveryPolicy;
 
+    private Integer deliveryIntervalMinutes;
 
+    private LocalDateTime nextDeliveryAt;
+
+    @Version
+    private Long version;
 
+    /**
+     * Ścieżka faktycznie obserwowanego pliku. Subskrypcje sprzed kanonizacji ścieżek nie mają {@code watchedPath}.
+     */
+    public String getTargetPath() {
+        return watchedPath != null ? watchedPath : filePath;
+    }
 }
@@ -0,0 +1,20 @@
+package org.example.filemonitoringapi.subscription.model;
+
+import lombok.*;
+
+/**
+ * Wynik jednej pozycji partii - {@code index} odpowiada pozycji w żądaniu.
+ */
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Builder
+public class SubscriptionBatchResult {
+    private int index;
+    private String jobId;
+    private String filePath;
+    private boolean success;
+    private String error;
+    private SubscriptionDto subscription;
+}
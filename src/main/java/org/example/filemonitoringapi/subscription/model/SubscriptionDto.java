@@ -1,6 +1,9 @@
 package org.example.filemonitoringapi.subscription.model;
 
 import lombok.*;
+import org.example.filemonitoringapi.listener.WatchEngineType;
+
+import java.time.LocalDateTime;
 
 @Setter
 @NoArgsConstructor
@@ -9,7 +12,12 @@ import lombok.*;
 @Builder
 public class SubscriptionDto {
     private String filePath;
+    private String watchedPath;
     private String email;
     private String jobId;
     private boolean active;
+    private WatchEngineType watchEngine;
+    private DeliveryPolicy deliveryPolicy;
+    private Integer deliveryIntervalMinutes;
+    private LocalDateTime nextDeliveryAt;
 }
@@ -9,15 +9,23 @@ public class SubscriptionMapper {
         return Subscription.builder()
                 .filePath(command.getFilePath())
                 .email(command.getEmail())
+                .watchEngine(command.getWatchEngine())
+                .deliveryPolicy(command.getDeliveryPolicy())
+                .deliveryIntervalMinutes(command.getDeliveryIntervalMinutes())
                 .build();
     }
 
     public SubscriptionDto toDTO(Subscription subscription) {
         return SubscriptionDto.builder()
                 .filePath(subscription.getFilePath())
+                .watchedPath(subscription.getTargetPath())
                 .email(subscription.getEmail())
                 .jobId(subscription.getJobId())
                 .active(subscription.isActive())
+                .watchEngine(subscription.getWatchEngine())
+                .deliveryPolicy(subscription.getDeliveryPolicy())
+                .deliveryIntervalMinutes(subscription.getDeliveryIntervalMinutes())
+                .nextDeliveryAt(subscription.getNextDeliveryAt())
                 .build();
     }
 }
@@ -0,0 +1,46 @@
+-- Kolumny i tabele dodane do schematu bazowego z V1: segmenty zmian, odczyt od offsetu, harmonogram
+-- powiadomień, outbox i członkostwo w klastrze.
+
+alter table file_change add column segment_id bigint;
+alter table file_change add column segment_offset bigint;
+alter table file_change add column change_type varchar(255);
+
+alter table subscription add column watched_path varchar(255);
+alter table subscription add column watch_engine varchar(255);
+alter table subscription add column last_delivered_change_id bigint;
+alter table subscription add column delivery_policy varchar(255);
+alter table subscription add column delivery_interval_minutes integer;
+alter table subscription add column next_delivery_at timestamp(6);
+
+create table file_tail_state (
+    file_path      varchar(255) not null,
+    byte_offset    bigint       not null,
+    file_key       varchar(255),
+    last_modified  bigint       not null,
+    last_line_hash bigint       not null,
+    last_change_id bigint,
+    updated_at     timestamp(6),
+    primary key (file_path)
+);
+
+create sequence outbox_message_seq start with 1 increment by 50;
+
+create table outbox_message (
+    id              bigint  not null,
+    recipient       varchar(255),
+    subject         varchar(255),
+    content         clob,
+    status          varchar(255),
+    attempts        integer not null,
+    created_at      timestamp(6),
+    next_attempt_at timestamp(6),
+    sent_at         timestamp(6),
+    last_error      varchar(1000),
+    primary key (id)
+);
+
+create table cluster_node (
+    node_id        varchar(255) not null,
+    last_heartbeat timestamp(6),
+    primary key (node_id)
+);
@@ -0,0 +1,25 @@
+-- Schemat dokładnie taki, jaki ddl-auto: update tworzyło z encji sprzed wprowadzenia migracji. Istniejąca baza
+-- jest przyjmowana z wersją 0 (baseline-version), więc ten skrypt wykonuje się także na niej - dlatego
+-- "if not exists". Kolumny i tabele dodane później tworzy V1_1 i następne migracje.
+
+create sequence if not exists file_change_seq start with 1 increment by 50;
+create sequence if not exists subscription_seq start with 1 increment by 50;
+
+create table if not exists file_change (
+    id                     bigint not null,
+    change_time            timestamp(6),
+    content                varchar(255),
+    file_path              varchar(255),
+    last_notification_sent timestamp(6),
+    primary key (id)
+);
+
+create table if not exists subscription (
+    id        bigint  not null,
+    active    boolean not null,
+    email     varchar(255),
+    file_path varchar(255),
+    job_id    varchar(255),
+    version   bigint,
+    primary key (id)
+);
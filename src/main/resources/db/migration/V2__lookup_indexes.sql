@@ -0,0 +1,21 @@
+-- Indeksy pod zapytania z gorących ścieżek. H2 nie obsługuje indeksów częściowych, dlatego
+-- idx_file_change_pending obejmuje wszystkie wiersze; na PostgreSQL wystarczyłby
+-- "on file_change (file_path, id) where last_notification_sent is null".
+
+-- findMaxPendingId, findPendingPage, markNotified: file_path = ? and last_notification_sent is null [and id ...]
+create index idx_file_change_pending on file_change (file_path, last_notification_sent, id);
+-- findByFilePathAfterId (odtwarzanie strumienia SSE): file_path = ? and id > ? order by id
+create index idx_file_change_path_id on file_change (file_path, id);
+
+alter table subscription add constraint uk_subscription_job_id unique (job_id);
+-- findMinDeliveredChangeId i wyszukiwanie subskrypcji pliku
+create index idx_subscription_watched_path_active on subscription (watched_path, active);
+create index idx_subscription_file_path_active on subscription (file_path, active);
+-- findActiveAfter, findByActive (odtwarzanie obserwatorów i harmonogram)
+create index idx_subscription_active_id on subscription (active, id);
+
+-- findByFileKey (kanonizacja dowiązań twardych)
+create index idx_file_tail_state_file_key on file_tail_state (file_key);
+
+-- findDue: status = ? and next_attempt_at <= ? order by id
+create index idx_outbox_message_due on outbox_message (status, next_attempt_at, id);
@@ -0,0 +1,3 @@
+-- Treść zmiany to dopisany fragment (do file-monitoring.reader.max-chunk-size) albo opis różnicy,
+-- więc varchar(255) z V1 odrzucał niemal każdą rzeczywistą zmianę.
+alter table file_change alter column content set data type clob;
@@ -0,0 +1,2 @@
+-- CRC32 odczytanej części pliku (do file-monitoring.diff.max-file-size) do wykrywania zmian w środku pliku.
+alter table file_tail_state add column prefix_checksum bigint default 0 not null;
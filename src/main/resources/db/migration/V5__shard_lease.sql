@@ -0,0 +1,9 @@
+create table if not exists shard_lease (
+    shard         integer not null,
+    owner         varchar(255),
+    lease_expiry  timestamp(6),
+    fencing_token bigint  not null,
+    primary key (shard)
+);
+
+create index if not exists idx_shard_lease_owner on shard_lease (owner);
@@ -0,0 +1,3 @@
+-- deleteSentBefore (retencja outboxa): status = 'SENT' and sent_at < ?
+-- Wiadomości DEAD są usuwane po next_attempt_at, które obejmuje już idx_outbox_message_due.
+create index idx_outbox_message_sent on outbox_message (status, sent_at);
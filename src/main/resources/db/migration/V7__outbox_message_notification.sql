@@ -0,0 +1,7 @@
+-- Powiadomienie w outboxie pamięta subskrypcję i ostatnią zmianę, którą obejmuje. Kursor subskrypcji
+-- (last_delivered_change_id) jest przesuwany dopiero, gdy wiadomość zostanie wysłana.
+alter table outbox_message add column subscription_id bigint;
+alter table outbox_message add column change_id bigint;
+
+-- findSubscriptionIdsByStatus: subscription_id in (...) and status = 'PENDING'
+create index idx_outbox_message_subscription on outbox_message (subscription_id, status);
@@ -0,0 +1,51 @@
+package org.example.filemonitoringapi;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SchemaMigrationTest {
+
+    private static final String URL = "jdbc:h2:mem:schema-migration;DB_CLOSE_DELAY=-1";
+
+    @Test
+    public void testMigratesDatabaseCreatedBeforeMigrations() throws Exception {
+        try (Connection connection = DriverManager.getConnection(URL, "sa", "");
+             Statement statement = connection.createStatement()) {
+            // Schemat tworzony wcześniej przez ddl-auto: update.
+            statement.execute("create sequence file_change_seq start with 1 increment by 50");
+            statement.execute("create sequence subscription_seq start with 1 increment by 50");
+            statement.execute("create table file_change (id bigint not null, change_time timestamp(6), "
+                    + "content varchar(255), file_path varchar(255), last_notification_sent timestamp(6), primary key (id))");
+            statement.execute("create table subscription (id bigint not null, active boolean not null, "
+                    + "email varchar(255), file_path varchar(255), job_id varchar(255), version bigint, primary key (id))");
+            statement.execute("insert into subscription (id, active, email, file_path, job_id, version) "
+                    + "values (1, true, 'a@example.com', 'logs/app.log', 'job-1', 0)");
+
+            Flyway.configure()
+                    .dataSource(URL, "sa", "")
+                    .baselineOnMigrate(true)
+                    .baselineVersion("0")
+                    .load()
+                    .migrate();
+
+            try (ResultSet columns = connection.getMetaData().getColumns(null, null, "SUBSCRIPTION", "LAST_DELIVERED_CHANGE_ID")) {
+                assertTrue(columns.next());
+            }
+            try (ResultSet columns = connection.getMetaData().getColumns(null, null, "FILE_TAIL_STATE", "PREFIX_CHECKSUM")) {
+                assertTrue(columns.next());
+            }
+            try (ResultSet subscriptions = statement.executeQuery("select count(*) from subscription")) {
+                subscriptions.next();
+                assertEquals(1, subscriptions.getInt(1));
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package org.example.filemonitoringapi.cluster;
+
+import org.example.filemonitoringapi.config.FileMonitoringProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class ClusterMembershipTest {
+
+    @Autowired
+    private ClusterNodeRepository clusterNodeRepository;
+
+    @Autowired
+    private ShardLeaseRepository shardLeaseRepository;
+
+    @BeforeEach
+    public void setUp() {
+        clusterNodeRepository.deleteAll();
+        shardLeaseRepository.deleteAll();
+    }
+
+    @Test
+    public void testShardLeaseIsHeldByOneNodeAtATime() {
+        ClusterMembership first = node("node-a", Duration.ofMinutes(1));
+        ClusterMembership second = node("node-b", Duration.ofMinutes(1));
+
+        assertTrue(first.acquireShard(0));
+        assertFalse(second.acquireShard(0));
+        assertTrue(first.isOwner("logs/app.log"));
+        assertFalse(second.isOwner("logs/app.log"));
+
+        first.releaseShard(0);
+        assertFalse(first.isOwner("logs/app.log"));
+        assertTrue(second.acquireShard(0));
+        assertTrue(second.isOwner("logs/app.log"));
+    }
+
+    @Test
+    public void testExpiredLeaseIsTakenOverAndFencesPreviousOwner() throws Exception {
+        ClusterMembership stalled = node("node-a", Duration.ofMillis(200));
+        ClusterMembership successor = node("node-b", Duration.ofMinutes(1));
+        assertTrue(stalled.acquireShard(0));
+        long staleToken = shardLeaseRepository.findById(0).orElseThrow().getFencingToken();
+
+        Thread.sleep(300);
+
+        assertFalse(stalled.isOwner("logs/app.log"));
+        assertTrue(successor.acquireShard(0));
+        ShardLease lease = shardLeaseRepository.findById(0).orElseThrow();
+        assertEquals("node-b", lease.getOwner());
+        assertEquals(staleToken + 1, lease.getFencingToken());
+        assertTrue(stalled.fencingTokenOf("logs/app.log").isEmpty());
+        assertEquals(staleToken + 1, successor.fencingTokenOf("logs/app.log").getAsLong());
+        assertEquals(Map.of(0, staleToken + 1), successor.findValidLeases());
+
+        assertEquals(0, shardLeaseRepository.release(0, "node-a", staleToken));
+        stalled.heartbeat();
+        assertTrue(stalled.getHeldShards().isEmpty());
+        assertFalse(stalled.isOwner("logs/app.log"));
+        assertTrue(successor.isOwner("logs/app.log"));
+    }
+
+    private ClusterMembership node(String nodeId, Duration leaseTtl) {
+        FileMonitoringProperties properties = new FileMonitoringProperties();
+        properties.getCluster().setEnabled(true);
+        properties.getCluster().setNodeId(nodeId);
+        properties.getCluster().setLeaseTtl(leaseTtl);
+        properties.getCluster().setShards(1);
+        return new ClusterMembership(clusterNodeRepository, shardLeaseRepository,
+                mock(ApplicationEventPublisher.class), properties);
+    }
+}
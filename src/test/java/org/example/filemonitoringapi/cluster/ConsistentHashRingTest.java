@@ -0,0 +1,46 @@
+package org.example.filemonitoringapi.cluster;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConsistentHashRingTest {
+
+    @Test
+    public void testSpreadsKeysAcrossNodes() {
+        ConsistentHashRing ring = new ConsistentHashRing(List.of("node-a", "node-b", "node-c"), 128);
+
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 30_000; i++) {
+            counts.merge(ring.ownerOf("/var/log/app-" + i + ".log"), 1, Integer::sum);
+        }
+
+        assertEquals(3, counts.size());
+        counts.values().forEach(count -> assertTrue(count > 7_000 && count < 13_000, "Nierówny podział: " + counts));
+    }
+
+    @Test
+    public void testMovesOnlyKeysOfRemovedNode() {
+        ConsistentHashRing before = new ConsistentHashRing(List.of("node-a", "node-b", "node-c"), 128);
+        ConsistentHashRing after = new ConsistentHashRing(List.of("node-a", "node-c"), 128);
+
+        for (int i = 0; i < 10_000; i++) {
+            String key = "/var/log/app-" + i + ".log";
+            String previousOwner = before.ownerOf(key);
+            if (!previousOwner.equals("node-b")) {
+                assertEquals(previousOwner, after.ownerOf(key));
+            } else {
+                assertNotEquals("node-b", after.ownerOf(key));
+            }
+        }
+    }
+
+    @Test
+    public void testEmptyRingHasNoOwner() {
+        assertNull(new ConsistentHashRing(List.of(), 128).ownerOf("plik.txt"));
+    }
+}
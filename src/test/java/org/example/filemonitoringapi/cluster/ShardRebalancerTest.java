@@ -0,0 +1,81 @@
+package org.example.filemonitoringapi.cluster;
+
+import org.example.filemonitoringapi.config.FileMonitoringProperties;
+import org.example.filemonitoringapi.listener.FileWatcherService;
+import org.example.filemonitoringapi.subscription.SubscriptionRepository;
+import org.example.filemonitoringapi.subscription.model.Subscription;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class ShardRebalancerTest {
+
+    private SubscriptionRepository subscriptionRepository;
+    private FileWatcherService fileWatcherService;
+    private ClusterMembership clusterMembership;
+    private ShardRebalancer shardRebalancer;
+
+    @BeforeEach
+    public void setUp() {
+        FileMonitoringProperties properties = new FileMonitoringProperties();
+        properties.getCluster().setEnabled(true);
+        subscriptionRepository = mock(SubscriptionRepository.class);
+        fileWatcherService = mock(FileWatcherService.class);
+        clusterMembership = mock(ClusterMembership.class);
+        when(clusterMembership.shardOf(anyString())).then(invocation ->
+                invocation.getArgument(0, String.class).startsWith("a") ? 1 : 2);
+        shardRebalancer = new ShardRebalancer(subscriptionRepository, fileWatcherService, clusterMembership, properties);
+    }
+
+    @Test
+    public void testStopsWatchingBeforeReleasingShardLease() {
+        Subscription moved = subscription(1L, "b.log");
+        when(subscriptionRepository.findByActive(eq(true), any(Pageable.class))).thenReturn(new PageImpl<>(List.of(moved)));
+        when(fileWatcherService.getRegisteredSubscriptions()).thenReturn(List.of(moved));
+        when(clusterMembership.getHeldShards()).thenReturn(Set.of(2));
+        when(clusterMembership.getDesiredShards()).thenReturn(Set.of(1));
+        when(clusterMembership.isOwner("b.log")).thenReturn(true);
+
+        shardRebalancer.rebalance();
+
+        InOrder inOrder = inOrder(fileWatcherService, clusterMembership);
+        inOrder.verify(fileWatcherService).releaseFileWatcher(moved, true);
+        inOrder.verify(clusterMembership).releaseShard(2);
+    }
+
+    @Test
+    public void testWatchesOnlyFilesOfAcquiredShards() throws Exception {
+        Subscription acquired = subscription(1L, "a.log");
+        Subscription stillLeased = subscription(2L, "b.log");
+        when(subscriptionRepository.findByActive(eq(true), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(acquired, stillLeased)));
+        when(clusterMembership.getHeldShards()).thenReturn(Set.of());
+        when(clusterMembership.getDesiredShards()).thenReturn(Set.of(1, 2));
+        when(clusterMembership.acquireShard(1)).thenReturn(true);
+        when(clusterMembership.acquireShard(2)).thenReturn(false);
+        when(clusterMembership.isOwner("a.log")).thenReturn(true);
+
+        shardRebalancer.rebalance();
+
+        verify(fileWatcherService).registerFileWatcher(acquired);
+        verify(fileWatcherService, never()).registerFileWatcher(stillLeased);
+    }
+
+    private Subscription subscription(Long id, String filePath) {
+        Subscription subscription = new Subscription();
+        subscription.setId(id);
+        subscription.setFilePath(filePath);
+        subscription.setActive(true);
+        return subscription;
+    }
+}
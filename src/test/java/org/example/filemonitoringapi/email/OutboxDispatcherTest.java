@@ -0,0 +1,146 @@
+package org.example.filemonitoringapi.email;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+import org.example.filemonitoringapi.cluster.ClusterMembership;
+import org.example.filemonitoringapi.cluster.ClusterNodeRepository;
+import org.example.filemonitoringapi.cluster.ShardLeaseRepository;
+import org.example.filemonitoringapi.config.FileMonitoringProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class OutboxDispatcherTest {
+
+    @Mock
+    private JavaMailSender mailSender;
+
+    @Mock
+    private OutboxMessageRepository outboxMessageRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private FileMonitoringProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private OutboxDispatcher outboxDispatcher;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        properties = new FileMonitoringProperties();
+        properties.getMail().setMaxMessagesPerSecond(0);
+        when(mailSender.createMimeMessage()).thenAnswer(invocation -> new MimeMessage((Session) null));
+        ClusterMembership singleNode = new ClusterMembership(mock(ClusterNodeRepository.class),
+                mock(ShardLeaseRepository.class), mock(ApplicationEventPublisher.class), properties);
+        meterRegistry = new SimpleMeterRegistry();
+        outboxDispatcher = new OutboxDispatcher(mailSender, outboxMessageRepository, singleNode, eventPublisher,
+                properties, meterRegistry);
+    }
+
+    @Test
+    public void testSendsBatchThroughSingleCall() {
+        OutboxMessage first = new OutboxMessage("a@example.com", "Temat", "Treść", LocalDateTime.now());
+        OutboxMessage second = new OutboxMessage("b@example.com", "Temat", "Treść", LocalDateTime.now());
+        when(outboxMessageRepository.findDue(eq(OutboxStatus.PENDING), any(), any())).thenReturn(List.of(first, second));
+
+        outboxDispatcher.dispatch();
+
+        ArgumentCaptor<MimeMessage[]> messagesCaptor = ArgumentCaptor.forClass(MimeMessage[].class);
+        verify(mailSender, times(1)).send(messagesCaptor.capture());
+        assertEquals(2, messagesCaptor.getValue().length);
+        assertEquals(OutboxStatus.SENT, first.getStatus());
+        assertEquals(OutboxStatus.SENT, second.getStatus());
+        verify(outboxMessageRepository).saveAll(List.of(first, second));
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    public void testAnnouncesOnlySentNotifications() {
+        properties.getMail().setMaxAttempts(1);
+        OutboxMessage sent = new OutboxMessage("a@example.com", "Temat", "Treść", LocalDateTime.now());
+        sent.setSubscriptionId(10L);
+        sent.setChangeId(5L);
+        OutboxMessage dead = new OutboxMessage("b@example.com", "Temat", "Treść", LocalDateTime.now());
+        dead.setSubscriptionId(11L);
+        dead.setChangeId(5L);
+        when(outboxMessageRepository.findDue(eq(OutboxStatus.PENDING), any(), any())).thenReturn(List.of(sent, dead));
+        doAnswer(invocation -> {
+            Object[] messages = invocation.getArguments();
+            MimeMessage last = (MimeMessage) messages[messages.length - 1];
+            throw new MailSendException(Map.<Object, Exception>of(last, new RuntimeException("550 mailbox unavailable")));
+        }).when(mailSender).send(any(MimeMessage[].class));
+
+        outboxDispatcher.dispatch();
+
+        assertEquals(OutboxStatus.DEAD, dead.getStatus());
+        ArgumentCaptor<OutboxMessagesSentEvent> eventCaptor = ArgumentCaptor.forClass(OutboxMessagesSentEvent.class);
+        verify(eventPublisher).publishEvent(eventCaptor.capture());
+        assertEquals(List.of(sent), eventCaptor.getValue().getMessages());
+    }
+
+    @Test
+    public void testRetriesFailedMessageAndDeadLettersAfterMaxAttempts() {
+        properties.getMail().setMaxAttempts(2);
+        OutboxMessage delivered = new OutboxMessage("a@example.com", "Temat", "Treść", LocalDateTime.now());
+        OutboxMessage failed = new OutboxMessage("b@example.com", "Temat", "Treść", LocalDateTime.now());
+        when(outboxMessageRepository.findDue(eq(OutboxStatus.PENDING), any(), any()))
+                .thenReturn(List.of(delivered, failed))
+                .thenReturn(List.of(failed));
+        doAnswer(invocation -> {
+            Object[] messages = invocation.getArguments();
+            MimeMessage last = (MimeMessage) messages[messages.length - 1];
+            throw new MailSendException(Map.<Object, Exception>of(last, new RuntimeException("550 mailbox unavailable")));
+        }).when(mailSender).send(any(MimeMessage[].class));
+
+        outboxDispatcher.dispatch();
+
+        assertEquals(OutboxStatus.SENT, delivered.getStatus());
+        assertEquals(OutboxStatus.PENDING, failed.getStatus());
+        assertEquals(1, failed.getAttempts());
+        assertTrue(failed.getNextAttemptAt().isAfter(LocalDateTime.now()));
+
+        outboxDispatcher.dispatch();
+
+        assertEquals(OutboxStatus.DEAD, failed.getStatus());
+        assertEquals(2, failed.getAttempts());
+        assertEquals("550 mailbox unavailable", failed.getLastError());
+        assertEquals(1.0, meterRegistry.counter("filemonitoring.mail.failures", "outcome", "retry").count());
+        assertEquals(1.0, meterRegistry.counter("filemonitoring.mail.failures", "outcome", "dead").count());
+        assertEquals(2, meterRegistry.timer("filemonitoring.mail.send.duration").count());
+    }
+
+    @Test
+    public void testRetentionDeletesSentAndDeadMessagesOlderThanConfiguredAge() {
+        properties.getMail().setSentRetention(Duration.ofDays(1));
+        properties.getMail().setDeadRetention(Duration.ofDays(10));
+        LocalDateTime before = LocalDateTime.now();
+
+        outboxDispatcher.applyRetention();
+
+        ArgumentCaptor<LocalDateTime> sentCutoff = ArgumentCaptor.forClass(LocalDateTime.class);
+        ArgumentCaptor<LocalDateTime> deadCutoff = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(outboxMessageRepository).deleteSentBefore(sentCutoff.capture());
+        verify(outboxMessageRepository).deleteDeadBefore(deadCutoff.capture());
+        assertFalse(sentCutoff.getValue().isBefore(before.minusDays(1)));
+        assertTrue(sentCutoff.getValue().isBefore(before.minusHours(23)));
+        assertFalse(deadCutoff.getValue().isBefore(before.minusDays(10)));
+        assertTrue(deadCutoff.getValue().isBefore(before.minusDays(9)));
+    }
+}
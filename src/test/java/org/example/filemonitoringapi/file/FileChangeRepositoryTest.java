@@ -0,0 +1,30 @@
+package org.example.filemonitoringapi.file;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest
+public class FileChangeRepositoryTest {
+
+    @Autowired
+    private FileChangeRepository fileChangeRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Test
+    public void testStoresContentLongerThanVarcharLimit() {
+        String content = "linia dziennika\n".repeat(10_000);
+        FileChange change = fileChangeRepository.saveAndFlush(
+                new FileChange("logs/app.log", content, LocalDateTime.now(), null));
+        entityManager.clear();
+
+        assertEquals(content, fileChangeRepository.findById(change.getId()).orElseThrow().getContent());
+    }
+}
@@ -0,0 +1,133 @@
+package org.example.filemonitoringapi.file;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.filemonitoringapi.cluster.ClusterMembership;
+import org.example.filemonitoringapi.config.FileMonitoringProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class FileChangeWriterTest {
+
+    private FileChangeRepository fileChangeRepository;
+    private TailStateCache tailStateCache;
+    private SimpleMeterRegistry meterRegistry;
+    private FileChangeWriter fileChangeWriter;
+    private ClusterMembership clusterMembership;
+
+    @BeforeEach
+    public void setUp() {
+        fileChangeRepository = mock(FileChangeRepository.class);
+        tailStateCache = mock(TailStateCache.class);
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        FileMonitoringProperties properties = new FileMonitoringProperties();
+        properties.getWriter().setMaxAttempts(2);
+        properties.getWriter().setInitialBackoff(Duration.ofMillis(1));
+        meterRegistry = new SimpleMeterRegistry();
+        clusterMembership = mock(ClusterMembership.class);
+        // Wątek zapisujący nie jest uruchamiany - shutdown() zapisuje kolejkę w wątku testu.
+        fileChangeWriter = new FileChangeWriter(fileChangeRepository, tailStateCache, transactionManager,
+                mock(ApplicationEventPublisher.class), clusterMembership, properties, meterRegistry);
+    }
+
+    @Test
+    public void testRetriesTransientFailureAndPersistsOffsetOnlyAfterCommit() throws InterruptedException {
+        FileChange change = new FileChange("logs/app.log", "nowa linia\n", LocalDateTime.now(), null);
+        FileTailState tailState = tailState("logs/app.log", 11);
+        when(fileChangeRepository.saveAllAndFlush(anyList()))
+                .thenThrow(new QueryTimeoutException("blokada"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        fileChangeWriter.enqueue(List.of(change), tailState, 0);
+        fileChangeWriter.shutdown();
+
+        verify(fileChangeRepository, times(2)).saveAllAndFlush(List.of(change));
+        verify(tailStateCache, times(1)).persist(tailState);
+        assertEquals(1.0, meterRegistry.counter("filemonitoring.persist.failures").count());
+        assertEquals(0.0, meterRegistry.counter("filemonitoring.persist.dropped").count());
+    }
+
+    @Test
+    public void testIsolatesPoisonChangeByBisectingBatch() throws InterruptedException {
+        FileChange valid = new FileChange("logs/app.log", "poprawna", LocalDateTime.now(), null);
+        FileChange poison = new FileChange("logs/other.log", "wadliwa", LocalDateTime.now(), null);
+        FileTailState validState = tailState("logs/app.log", 8);
+        FileTailState poisonState = tailState("logs/other.log", 7);
+        when(fileChangeRepository.saveAllAndFlush(anyList())).thenAnswer(invocation -> {
+            List<FileChange> changes = invocation.getArgument(0);
+            if (changes.contains(poison)) {
+                throw new DataIntegrityViolationException("naruszenie ograniczenia");
+            }
+            return changes;
+        });
+
+        fileChangeWriter.enqueue(List.of(valid), validState, 0);
+        fileChangeWriter.enqueue(List.of(poison), poisonState, 0);
+        fileChangeWriter.shutdown();
+
+        verify(fileChangeRepository).saveAllAndFlush(List.of(valid));
+        verify(tailStateCache).persist(validState);
+        verify(tailStateCache, never()).persist(poisonState);
+        assertEquals(1.0, meterRegistry.counter("filemonitoring.persist.dropped").count());
+    }
+
+    @Test
+    public void testDiscardDropsQueuedWritesOfReleasedFile() throws InterruptedException {
+        FileChange released = new FileChange("logs/app.log", "po anulowaniu", LocalDateTime.now(), null);
+        FileChange kept = new FileChange("logs/other.log", "inny plik", LocalDateTime.now(), null);
+        FileTailState keptState = tailState("logs/other.log", 9);
+        when(fileChangeRepository.saveAllAndFlush(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        fileChangeWriter.enqueue(List.of(released), tailState("logs/app.log", 13), 0);
+        fileChangeWriter.enqueue(List.of(kept), keptState, 0);
+        fileChangeWriter.discard("logs/app.log");
+        fileChangeWriter.shutdown();
+
+        verify(fileChangeRepository).saveAllAndFlush(List.of(kept));
+        verify(tailStateCache, times(1)).persist(any());
+        verify(tailStateCache).persist(keptState);
+    }
+
+    @Test
+    public void testRejectsWritesReadUnderLostShardLease() throws InterruptedException {
+        FileChange fenced = new FileChange("logs/app.log", "stary właściciel", LocalDateTime.now(), null);
+        FileChange current = new FileChange("logs/other.log", "aktualna dzierżawa", LocalDateTime.now(), null);
+        FileTailState fencedState = tailState("logs/app.log", 17);
+        FileTailState currentState = tailState("logs/other.log", 19);
+        when(clusterMembership.isEnabled()).thenReturn(true);
+        when(clusterMembership.shardOf(anyString())).thenReturn(0);
+        when(clusterMembership.findValidLeases()).thenReturn(Map.of(0, 2L));
+        when(fileChangeRepository.saveAllAndFlush(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        fileChangeWriter.enqueue(List.of(fenced), fencedState, 1);
+        fileChangeWriter.enqueue(List.of(current), currentState, 2);
+        fileChangeWriter.shutdown();
+
+        verify(fileChangeRepository).saveAllAndFlush(List.of(current));
+        verify(tailStateCache, never()).persist(fencedState);
+        verify(tailStateCache).persist(currentState);
+        assertEquals(1.0, meterRegistry.counter("filemonitoring.persist.fenced").count());
+    }
+
+    private FileTailState tailState(String filePath, long byteOffset) {
+        FileTailState tailState = new FileTailState(filePath);
+        tailState.setByteOffset(byteOffset);
+        return tailState;
+    }
+}
@@ -0,0 +1,119 @@
+package org.example.filemonitoringapi.file;
+
+import org.example.filemonitoringapi.config.FileMonitoringProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class SegmentLogChangeStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private FileMonitoringProperties properties;
+    private FileChangeRepository fileChangeRepository;
+    private SegmentLogChangeStore changeStore;
+
+    @BeforeEach
+    public void setUp() {
+        properties = new FileMonitoringProperties();
+        properties.getChangeStore().setDirectory(tempDir);
+        fileChangeRepository = mock(FileChangeRepository.class);
+        when(fileChangeRepository.findMinPendingSegmentId(anyString())).thenReturn(Optional.empty());
+        changeStore = new SegmentLogChangeStore(properties, fileChangeRepository);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        changeStore.shutdown();
+    }
+
+    @Test
+    public void testAppendAndLoadContent() {
+        FileChange first = changeStore.append("logs/app.log", "pierwsza zmiana", LocalDateTime.now());
+        FileChange second = changeStore.append("logs/app.log", "druga zmiana\nw dwóch liniach", LocalDateTime.now());
+
+        assertNull(first.getContent());
+        assertEquals(first.getSegmentId(), second.getSegmentId());
+        assertTrue(second.getSegmentOffset() > first.getSegmentOffset());
+        assertEquals("pierwsza zmiana", changeStore.loadContent(first));
+        assertEquals("druga zmiana\nw dwóch liniach", changeStore.loadContent(second));
+    }
+
+    @Test
+    public void testRollsSegmentWhenFull() {
+        properties.getChangeStore().setMaxSegmentSize(DataSize.ofBytes(1));
+
+        FileChange first = changeStore.append("logs/app.log", "a", LocalDateTime.now());
+        FileChange second = changeStore.append("logs/app.log", "b", LocalDateTime.now());
+
+        assertEquals(first.getSegmentId() + 1, second.getSegmentId());
+        assertEquals(0L, second.getSegmentOffset());
+        assertEquals("a", changeStore.loadContent(first));
+        assertEquals("b", changeStore.loadContent(second));
+    }
+
+    @Test
+    public void testRetentionRemovesExpiredSealedSegments() {
+        properties.getChangeStore().setMaxSegmentSize(DataSize.ofBytes(1));
+        LocalDateTime expired = LocalDateTime.now().minusDays(60);
+        FileChange first = changeStore.append("logs/app.log", "a", expired);
+        FileChange second = changeStore.append("logs/app.log", "b", expired);
+        FileChange open = changeStore.append("logs/app.log", "c", expired);
+
+        changeStore.applyRetention();
+
+        assertEquals("", changeStore.loadContent(first));
+        assertEquals("", changeStore.loadContent(second));
+        assertEquals("c", changeStore.loadContent(open));
+        verify(fileChangeRepository).deleteNotifiedBySegment("logs/app.log", first.getSegmentId());
+        verify(fileChangeRepository).deleteNotifiedBySegment("logs/app.log", second.getSegmentId());
+    }
+
+    @Test
+    public void testRetentionKeepsSegmentsOfPendingChanges() {
+        properties.getChangeStore().setMaxSegmentSize(DataSize.ofBytes(1));
+        LocalDateTime expired = LocalDateTime.now().minusDays(60);
+        FileChange notified = changeStore.append("logs/app.log", "a", expired);
+        FileChange pending = changeStore.append("logs/app.log", "b", expired);
+        changeStore.append("logs/app.log", "c", expired);
+        when(fileChangeRepository.findMinPendingSegmentId("logs/app.log")).thenReturn(Optional.of(pending.getSegmentId()));
+
+        changeStore.applyRetention();
+
+        assertEquals("", changeStore.loadContent(notified));
+        assertEquals("b", changeStore.loadContent(pending));
+        verify(fileChangeRepository).deleteNotifiedBySegment("logs/app.log", notified.getSegmentId());
+        verify(fileChangeRepository, never()).deleteNotifiedBySegment("logs/app.log", pending.getSegmentId());
+    }
+
+    @Test
+    public void testReleaseDeletesSegmentsOfFile() throws Exception {
+        FileChange released = changeStore.append("logs/app.log", "a", LocalDateTime.now());
+        FileChange kept = changeStore.append("logs/other.log", "b", LocalDateTime.now());
+
+        changeStore.release("logs/app.log");
+
+        try (Stream<Path> directories = Files.list(tempDir)) {
+            assertEquals(1, directories.count());
+        }
+        assertEquals("", changeStore.loadContent(released));
+        assertEquals("b", changeStore.loadContent(kept));
+
+        FileChange next = changeStore.append("logs/app.log", "c", LocalDateTime.now());
+        assertEquals(0L, next.getSegmentOffset());
+        assertEquals("c", changeStore.loadContent(next));
+    }
+}
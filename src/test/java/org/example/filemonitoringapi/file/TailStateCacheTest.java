@@ -0,0 +1,64 @@
+package org.example.filemonitoringapi.file;
+
+import org.example.filemonitoringapi.config.FileMonitoringProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class TailStateCacheTest {
+
+    @Autowired
+    private FileTailStateRepository fileTailStateRepository;
+
+    private TailStateCache tailStateCache;
+
+    @BeforeEach
+    public void setUp() {
+        fileTailStateRepository.deleteAll();
+        tailStateCache = new TailStateCache(fileTailStateRepository, new FileMonitoringProperties());
+    }
+
+    @Test
+    public void testSaveInsertsNewStateAndUpdatesKnownOne() {
+        FileTailState tailState = new FileTailState("logs/app.log");
+        tailState.setByteOffset(10);
+        assertTrue(tailState.isNew());
+
+        tailStateCache.save(tailState);
+        assertFalse(tailState.isNew());
+
+        tailState.setByteOffset(42);
+        tailState.setUpdatedAt(LocalDateTime.now());
+        tailStateCache.save(tailState);
+
+        tailStateCache.evict("logs/app.log");
+        FileTailState stored = tailStateCache.get("logs/app.log").orElseThrow();
+        assertNotSame(tailState, stored);
+        assertFalse(stored.isNew());
+        assertEquals(42, stored.getByteOffset());
+        assertEquals(1, fileTailStateRepository.count());
+    }
+
+    @Test
+    public void testLateSnapshotDoesNotRecreateDeletedState() {
+        FileTailState tailState = new FileTailState("logs/app.log");
+        tailStateCache.save(tailState);
+        tailState.setByteOffset(7);
+        FileTailState queuedSnapshot = tailState.snapshot();
+
+        tailStateCache.delete("logs/app.log");
+        tailStateCache.persist(queuedSnapshot);
+
+        assertTrue(fileTailStateRepository.findById("logs/app.log").isEmpty());
+        assertTrue(tailStateCache.get("logs/app.log").isEmpty());
+    }
+}
@@ -0,0 +1,129 @@
+package org.example.filemonitoringapi.fileWatcher;
+
+import org.example.filemonitoringapi.listener.DirectoryWatchRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.WatchKey;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DirectoryWatchRegistryTest {
+
+    @TempDir
+    Path tempDir;
+
+    private DirectoryWatchRegistry registry;
+    private String firstFile;
+    private String secondFile;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        registry = new DirectoryWatchRegistry();
+        firstFile = Files.writeString(tempDir.resolve("first.log"), "").toString();
+        secondFile = Files.writeString(tempDir.resolve("second.log"), "").toString();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        registry.close();
+    }
+
+    @Test
+    public void testRegisterWatchesDirectoryOfFile() throws Exception {
+        assertTrue(registry.register(firstFile));
+
+        assertTrue(registry.isWatching(firstFile));
+        assertEquals(1, registry.getWatchedFileCount());
+        assertEquals(1, registry.getWatchedDirectoryCount());
+        assertEquals(1, registry.getOpenWatchServiceCount());
+        assertFalse(registry.register(firstFile));
+        assertEquals(1, registry.getWatchedFileCount());
+    }
+
+    @Test
+    public void testSecondFileSharesDirectoryKey() throws Exception {
+        registry.register(firstFile);
+
+        assertTrue(registry.register(secondFile));
+
+        assertTrue(registry.isWatching(secondFile));
+        assertEquals(2, registry.getWatchedFileCount());
+        assertEquals(1, registry.getWatchedDirectoryCount());
+        assertEquals(1, registry.getOpenWatchServiceCount());
+    }
+
+    @Test
+    public void testReleasingOneFileKeepsDirectoryWatched() throws Exception {
+        registry.register(firstFile);
+        registry.register(secondFile);
+
+        assertTrue(registry.unregister(firstFile));
+
+        assertFalse(registry.isWatching(firstFile));
+        assertTrue(registry.isWatching(secondFile));
+        assertEquals(1, registry.getWatchedFileCount());
+        assertEquals(1, registry.getWatchedDirectoryCount());
+    }
+
+    @Test
+    public void testReleasingLastFileStopsWatchingDirectory() throws Exception {
+        registry.register(firstFile);
+        registry.register(firstFile);
+        registry.register(secondFile);
+
+        assertFalse(registry.unregister(firstFile));
+        assertTrue(registry.unregister(firstFile));
+        assertTrue(registry.unregister(secondFile));
+
+        assertFalse(registry.isWatching(secondFile));
+        assertEquals(0, registry.getWatchedFileCount());
+        assertEquals(0, registry.getWatchedDirectoryCount());
+        assertFalse(registry.unregister(secondFile));
+    }
+
+    @Test
+    public void testInvalidatedKeyIsReregistered() throws Exception {
+        registry.register(firstFile);
+        WatchKey key = awaitModification(firstFile);
+        key.cancel();
+
+        assertEquals(List.of(firstFile), registry.invalidate(key));
+
+        assertTrue(registry.isWatching(firstFile));
+        WatchKey renewedKey = awaitModification(firstFile);
+        assertNotSame(key, renewedKey);
+        assertEquals(List.of(firstFile), registry.findFilePaths(renewedKey));
+    }
+
+    @Test
+    public void testInvalidatedKeyKeepsReferenceCountsWhenDirectoryIsGone() throws Exception {
+        registry.register(firstFile);
+        WatchKey key = awaitModification(firstFile);
+        Files.delete(Path.of(firstFile));
+        Files.delete(Path.of(secondFile));
+        Files.delete(tempDir);
+        key.cancel();
+
+        registry.invalidate(key);
+
+        assertTrue(registry.isWatching(firstFile));
+        assertTrue(registry.unregister(firstFile));
+        assertEquals(0, registry.getWatchedDirectoryCount());
+    }
+
+    private WatchKey awaitModification(String filePath) throws Exception {
+        Files.writeString(Path.of(filePath), "line\n", StandardOpenOption.APPEND);
+        WatchKey key = registry.getWatchService().poll(5, TimeUnit.SECONDS);
+        assertNotNull(key);
+        key.pollEvents();
+        return key;
+    }
+}
@@ -0,0 +1,64 @@
+package org.example.filemonitoringapi.fileWatcher;
+
+import org.example.filemonitoringapi.config.FileMonitoringProperties;
+import org.example.filemonitoringapi.exception.FileReadException;
+import org.example.filemonitoringapi.file.FileTailState;
+import org.example.filemonitoringapi.file.FileTailStateRepository;
+import org.example.filemonitoringapi.listener.FilePathCanonicalizer;
+import org.example.filemonitoringapi.listener.FileTailReader;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class FilePathCanonicalizerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private FileTailStateRepository fileTailStateRepository;
+    private FilePathCanonicalizer canonicalizer;
+
+    @BeforeEach
+    public void setUp() {
+        fileTailStateRepository = mock(FileTailStateRepository.class);
+        when(fileTailStateRepository.findByFileKey(anyString())).thenReturn(List.of());
+        canonicalizer = new FilePathCanonicalizer(new FileTailReader(new FileMonitoringProperties()), fileTailStateRepository);
+    }
+
+    @Test
+    public void testDifferentSpellingsAndSymlinksResolveToOnePath() throws IOException, FileReadException {
+        Path file = Files.writeString(tempDir.resolve("app.log"), "linia\n");
+        Path link = Files.createSymbolicLink(tempDir.resolve("link.log"), file);
+        String expected = file.toRealPath().toString();
+
+        assertEquals(expected, canonicalizer.canonicalize(file.toString()));
+        assertEquals(expected, canonicalizer.canonicalize(tempDir.resolve(".").resolve("app.log").toString()));
+        assertEquals(expected, canonicalizer.canonicalize(link.toString()));
+    }
+
+    @Test
+    public void testHardLinkResolvesToAlreadyWatchedPath() throws IOException, FileReadException {
+        Path file = Files.writeString(tempDir.resolve("app.log"), "linia\n");
+        Path hardLink = Files.createLink(tempDir.resolve("hard.log"), file);
+        String watchedPath = file.toRealPath().toString();
+        when(fileTailStateRepository.findByFileKey(anyString())).thenReturn(List.of(new FileTailState(watchedPath)));
+
+        assertEquals(watchedPath, canonicalizer.canonicalize(hardLink.toString()));
+    }
+
+    @Test
+    public void testMissingFileIsRejected() {
+        assertThrows(FileReadException.class, () -> canonicalizer.canonicalize(tempDir.resolve("brak.log").toString()));
+    }
+}
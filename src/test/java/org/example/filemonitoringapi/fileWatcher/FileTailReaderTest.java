@@ -0,0 +1,143 @@
+package org.example.filemonitoringapi.fileWatcher;
+
+import org.example.filemonitoringapi.config.FileMonitoringProperties;
+import org.example.filemonitoringapi.file.ChangeType;
+import org.example.filemonitoringapi.listener.FileTailReader;
+import org.example.filemonitoringapi.listener.TailChunk;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FileTailReaderTest {
+
+    private final FileMonitoringProperties properties = new FileMonitoringProperties();
+    private final FileTailReader fileTailReader = new FileTailReader(properties);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testReadsOnlyAppendedLines() throws Exception {
+        Path file = tempDir.resolve("app.log");
+        Files.writeString(file, "pierwsza\ndruga\n");
+        String filePath = file.toString();
+        long offset = fileTailReader.currentSize(filePath);
+        String fileKey = fileTailReader.currentFileKey(filePath);
+
+        Files.writeString(file, "trzecia\nczwarta\n", StandardOpenOption.APPEND);
+        TailChunk chunk = fileTailReader.readAppended(filePath, offset, fileKey);
+
+        assertEquals("trzecia\nczwarta", chunk.getContent());
+        assertEquals(Files.size(file), chunk.getOffset());
+    }
+
+    @Test
+    public void testKeepsIncompleteLineForNextRead() throws Exception {
+        Path file = tempDir.resolve("app.log");
+        Files.writeString(file, "pełna linia\nniepeł");
+        String filePath = file.toString();
+
+        TailChunk chunk = fileTailReader.readAppended(filePath, 0, null);
+        assertEquals("pełna linia", chunk.getContent());
+
+        Files.writeString(file, "na\n", StandardOpenOption.APPEND);
+        TailChunk next = fileTailReader.readAppended(filePath, chunk.getOffset(), chunk.getFileKey());
+        assertEquals("niepełna", next.getContent());
+    }
+
+    @Test
+    public void testRestartsFromBeginningAfterTruncation() throws Exception {
+        Path file = tempDir.resolve("app.log");
+        Files.writeString(file, "stara zawartość pliku\n");
+        String filePath = file.toString();
+        long offset = fileTailReader.currentSize(filePath);
+        String fileKey = fileTailReader.currentFileKey(filePath);
+
+        Files.write(file, "nowa\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.TRUNCATE_EXISTING);
+        TailChunk chunk = fileTailReader.readAppended(filePath, offset, fileKey);
+
+        assertEquals("nowa", chunk.getContent());
+        assertEquals(ChangeType.TRUNCATED, chunk.getChangeType());
+        assertTrue(chunk.getOffset() < offset);
+    }
+
+    @Test
+    public void testReadsLineEndingBeforeOffset() throws Exception {
+        Path file = tempDir.resolve("app.log");
+        Files.writeString(file, "pierwsza\r\ndruga\n" + "x".repeat(70_000) + "\n");
+        String filePath = file.toString();
+
+        assertEquals("pierwsza", fileTailReader.readLineBefore(filePath, 10));
+        assertEquals("druga", fileTailReader.readLineBefore(filePath, 16));
+        assertNull(fileTailReader.readLineBefore(filePath, Files.size(file)));
+        assertNull(fileTailReader.readLineBefore(filePath, 0));
+    }
+
+    @Test
+    public void testMappedReadAboveThreshold() throws Exception {
+        properties.getReader().setMappedThreshold(DataSize.ofBytes(1));
+        Path file = tempDir.resolve("big.log");
+        Files.writeString(file, "linia 1\r\nlinia 2\r\n");
+        String filePath = file.toString();
+
+        TailChunk chunk = fileTailReader.readAppended(filePath, 0, null);
+
+        assertEquals("linia 1\nlinia 2", chunk.getContent());
+        assertEquals(Files.size(file), chunk.getOffset());
+    }
+
+    @Test
+    public void testMappedReadKeepsCarriageReturnInsideLine() throws Exception {
+        properties.getReader().setMappedThreshold(DataSize.ofBytes(1));
+        Path file = tempDir.resolve("crlf.log");
+        Files.writeString(file, "a\rb\r\n\r\nźdźbło\r\n");
+
+        TailChunk chunk = fileTailReader.readAppended(file.toString(), 0, null);
+
+        assertEquals("a\rb\n\nźdźbło", chunk.getContent());
+        assertEquals(Files.size(file), chunk.getOffset());
+    }
+
+    @Test
+    public void testFullChunkDoesNotSplitMultibyteCharacter() throws Exception {
+        properties.getReader().setMaxChunkSize(DataSize.ofBytes(4));
+        Path file = tempDir.resolve("utf8.log");
+        Files.writeString(file, "abcż\n");
+        String filePath = file.toString();
+
+        TailChunk first = fileTailReader.readAppended(filePath, 0, null);
+        TailChunk second = fileTailReader.readAppended(filePath, first.getOffset(), first.getFileKey());
+
+        assertEquals("abc", first.getContent());
+        assertEquals(3, first.getOffset());
+        assertTrue(first.isHasMore());
+        assertEquals("ż", second.getContent());
+        assertEquals(Files.size(file), second.getOffset());
+    }
+
+    @Test
+    public void testChecksumCoversOnlyRequestedRange() throws Exception {
+        Path file = tempDir.resolve("window.log");
+        Files.writeString(file, "stara linia\nokno\n");
+        String filePath = file.toString();
+        long size = Files.size(file);
+        long window = fileTailReader.checksum(filePath, size - 5, size);
+
+        Files.writeString(file, "nowa linia!\nokno\n");
+
+        assertEquals(window, fileTailReader.checksum(filePath, size - 5, size));
+        CRC32 crc = new CRC32();
+        crc.update("okno\n".getBytes(StandardCharsets.UTF_8));
+        assertEquals(crc.getValue(), window);
+    }
+}
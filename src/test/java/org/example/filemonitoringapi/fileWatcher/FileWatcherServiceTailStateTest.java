@@ -0,0 +1,108 @@
+package org.example.filemonitoringapi.fileWatcher;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.filemonitoringapi.cluster.ClusterMembership;
+import org.example.filemonitoringapi.cluster.ClusterNodeRepository;
+import org.example.filemonitoringapi.cluster.ShardLeaseRepository;
+import org.example.filemonitoringapi.config.FileMonitoringProperties;
+import org.example.filemonitoringapi.file.*;
+import org.example.filemonitoringapi.listener.*;
+import org.example.filemonitoringapi.subscription.SubscriptionRepository;
+import org.example.filemonitoringapi.subscription.model.Subscription;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Anulowanie subskrypcji przy niezapisanych jeszcze zmianach w kolejce {@link FileChangeWriter}.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class FileWatcherServiceTailStateTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Autowired
+    private FileTailStateRepository fileTailStateRepository;
+
+    @Autowired
+    private FileChangeRepository fileChangeRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private FileChangeWriter fileChangeWriter;
+    private FileWatcherService fileWatcherService;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        fileTailStateRepository.deleteAll();
+        fileChangeRepository.deleteAll();
+        FileMonitoringProperties properties = new FileMonitoringProperties();
+        properties.getWatcher().setCoalesceWindow(Duration.ZERO);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        TailStateCache tailStateCache = new TailStateCache(fileTailStateRepository, properties);
+        // Wątek zapisujący nie jest uruchamiany - zmiany czekają w kolejce do shutdown().
+        ClusterMembership singleNode = new ClusterMembership(mock(ClusterNodeRepository.class),
+                mock(ShardLeaseRepository.class), mock(ApplicationEventPublisher.class), properties);
+        fileChangeWriter = new FileChangeWriter(fileChangeRepository, tailStateCache, transactionManager,
+                mock(ApplicationEventPublisher.class), singleNode, properties, meterRegistry);
+        WatchEngine watchEngine = mock(WatchEngine.class);
+        when(watchEngine.getType()).thenReturn(WatchEngineType.NATIVE);
+        when(watchEngine.register(anyString())).thenReturn(true);
+        when(watchEngine.unregister(anyString())).thenReturn(true);
+
+        fileWatcherService = new FileWatcherService(mock(SubscriptionRepository.class), tailStateCache, fileChangeWriter,
+                new FileTailReader(properties), new ModificationCoalescer(properties, mock(WatcherExecutors.class)),
+                meterRegistry, List.of(watchEngine), properties, new DatabaseChangeStore(), singleNode,
+                new LineDiffEngine(), new LineHashCache(properties));
+    }
+
+    @Test
+    public void testResubscribeDoesNotResumeFromOffsetQueuedBeforeUnsubscribe() throws Exception {
+        Path file = Files.writeString(tempDir.resolve("app.log"), "pierwsza\n");
+        Subscription first = subscription(1L, file);
+        fileWatcherService.registerFileWatcher(first);
+        Files.writeString(file, "przed anulowaniem\n", StandardOpenOption.APPEND);
+        fileWatcherService.onFileModified(file.toString());
+        assertEquals(1, fileChangeWriter.getQueueSize());
+
+        fileWatcherService.unregisterFileWatcher(first);
+        fileChangeWriter.shutdown();
+
+        assertTrue(fileTailStateRepository.findById(file.toString()).isEmpty());
+        assertEquals(0, fileChangeRepository.count());
+
+        Files.writeString(file, "nowa\n", StandardOpenOption.TRUNCATE_EXISTING);
+        fileWatcherService.registerFileWatcher(subscription(2L, file));
+
+        FileTailState resumed = fileTailStateRepository.findById(file.toString()).orElseThrow();
+        assertEquals(Files.size(file), resumed.getByteOffset());
+    }
+
+    private Subscription subscription(Long id, Path file) {
+        Subscription subscription = new Subscription();
+        subscription.setId(id);
+        subscription.setFilePath(file.toString());
+        subscription.setActive(true);
+        return subscription;
+    }
+}
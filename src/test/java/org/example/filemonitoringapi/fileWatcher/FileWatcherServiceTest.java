@@ -1,82 +1,204 @@
 package org.example.filemonitoringapi.fileWatcher;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.filemonitoringapi.cluster.ClusterMembership;
+import org.example.filemonitoringapi.cluster.ClusterNodeRepository;
+import org.example.filemonitoringapi.cluster.ShardLeaseRepository;
+import org.example.filemonitoringapi.config.FileMonitoringProperties;
+import org.example.filemonitoringapi.file.ChangeType;
+import org.example.filemonitoringapi.file.DatabaseChangeStore;
 import org.example.filemonitoringapi.file.FileChange;
-import org.example.filemonitoringapi.file.FileChangeRepository;
-import org.example.filemonitoringapi.listener.FileWatcherService;
+import org.example.filemonitoringapi.file.FileChangeWriter;
+import org.example.filemonitoringapi.file.FileTailState;
+import org.example.filemonitoringapi.file.FileTailStateRepository;
+import org.example.filemonitoringapi.file.TailStateCache;
+import org.example.filemonitoringapi.listener.*;
 import org.example.filemonitoringapi.subscription.SubscriptionRepository;
 import org.example.filemonitoringapi.subscription.model.Subscription;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.junit.runner.RunWith;
-import org.mockito.*;
-import org.mockito.junit.MockitoJUnitRunner;
-import org.springframework.boot.test.context.SpringBootTest;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
-
-import java.time.LocalDateTime;
-import java.util.Collections;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.util.List;
-import java.util.Optional;
 
-import static org.mockito.ArgumentMatchers.anyString;
-import static org.mockito.Mockito.when;
-import static org.mockito.Mockito.verify;
-import static org.mockito.Mockito.times;
-import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
 
-@SpringBootTest
-@RunWith(MockitoJUnitRunner.class)
 public class FileWatcherServiceTest {
 
-    @Mock
+    @TempDir
+    Path tempDir;
+
     private SubscriptionRepository subscriptionRepository;
+    private FileChangeWriter fileChangeWriter;
+    private WatchEngine watchEngine;
+    private TailStateCache tailStateCache;
+    private SimpleMeterRegistry meterRegistry;
+    private FileWatcherService fileWatcherService;
 
-    @Mock
-    private FileChangeRepository fileChangeRepository;
+    @BeforeEach
+    public void setUp() throws Exception {
+        FileMonitoringProperties properties = new FileMonitoringProperties();
+        properties.getWatcher().setCoalesceWindow(Duration.ZERO);
+        subscriptionRepository = mock(SubscriptionRepository.class);
+        fileChangeWriter = mock(FileChangeWriter.class);
+        watchEngine = mock(WatchEngine.class);
+        when(watchEngine.getType()).thenReturn(WatchEngineType.NATIVE);
+        when(watchEngine.register(anyString())).thenReturn(true);
+        when(watchEngine.unregister(anyString())).thenReturn(true);
+        tailStateCache = new TailStateCache(mock(FileTailStateRepository.class), properties);
+        meterRegistry = new SimpleMeterRegistry();
+        ClusterMembership singleNode = new ClusterMembership(mock(ClusterNodeRepository.class),
+                mock(ShardLeaseRepository.class), mock(ApplicationEventPublisher.class), properties);
+
+        fileWatcherService = new FileWatcherService(subscriptionRepository, tailStateCache, fileChangeWriter,
+                new FileTailReader(properties), new ModificationCoalescer(properties, mock(WatcherExecutors.class)),
+                meterRegistry, List.of(watchEngine), properties, new DatabaseChangeStore(), singleNode,
+                new LineDiffEngine(), new LineHashCache(properties));
+    }
 
-    @Mock
-    private JavaMailSender mailSender;
+    @Test
+    public void testRegisterStartsTailingAtCurrentEndOfFile() throws Exception {
+        Path file = write("app.log", "stara linia\n");
 
-    @InjectMocks
-    private FileWatcherService fileWatcherService;
+        fileWatcherService.registerFileWatcher(subscription(1L, file));
 
-    @Captor
-    private ArgumentCaptor<FileChange> fileChangeCaptor;
+        verify(watchEngine).register(file.toString());
+        verify(watchEngine).start(fileWatcherService);
+        FileTailState tailState = tailStateCache.get(file.toString()).orElseThrow();
+        assertEquals(Files.size(file), tailState.getByteOffset());
+        assertTrue(fileWatcherService.isRegistered(1L));
+        verifyNoInteractions(fileChangeWriter);
+    }
 
-    @BeforeEach
-    public void setUp() {
-        MockitoAnnotations.openMocks(this);
+    @Test
+    public void testReportsOnlyAppendedLines() throws Exception {
+        Path file = write("app.log", "stara linia\n");
+        fileWatcherService.registerFileWatcher(subscription(1L, file));
+
+        append(file, "nowa linia\ndruga linia\n");
+        fileWatcherService.onFileModified(file.toString());
+
+        List<FileChange> changes = lastEnqueuedChanges();
+        assertEquals(1, changes.size());
+        assertEquals("nowa linia\ndruga linia", changes.get(0).getContent());
+        assertEquals(ChangeType.APPENDED, changes.get(0).getChangeType());
+        assertEquals(Files.size(file), lastEnqueuedState().getByteOffset());
     }
 
+    @Test
+    public void testReadsTruncatedFileFromStart() throws Exception {
+        Path file = write("app.log", "pierwsza linia\ndruga linia\n");
+        fileWatcherService.registerFileWatcher(subscription(1L, file));
 
+        Files.writeString(file, "nowa\n", StandardOpenOption.TRUNCATE_EXISTING);
+        fileWatcherService.onFileModified(file.toString());
+
+        List<FileChange> changes = lastEnqueuedChanges();
+        assertEquals("nowa", changes.get(0).getContent());
+        assertEquals(ChangeType.TRUNCATED, changes.get(0).getChangeType());
+        assertEquals(5, lastEnqueuedState().getByteOffset());
+    }
 
     @Test
-    public void testSendEmailOnFileChange() throws Exception {
-        // Utwórz przykładową subskrypcję
-        Subscription subscription = new Subscription();
-        subscription.setFilePath("testFilePath");
-        subscription.setEmail("test@example.com");
-        subscription.setActive(true);
+    public void testDetectsEditBeforeUnchangedLastLine() throws Exception {
+        Path file = write("app.log", "a\nb\nc\n");
+        fileWatcherService.registerFileWatcher(subscription(1L, file));
+
+        Files.writeString(file, "a\nX\nc\nd\n", StandardOpenOption.TRUNCATE_EXISTING);
+        fileWatcherService.onFileModified(file.toString());
+
+        FileChange change = lastEnqueuedChanges().get(0);
+        assertEquals(ChangeType.EDITED, change.getChangeType());
+        assertTrue(change.getContent().contains("X"), change.getContent());
+        assertEquals(Files.size(file), lastEnqueuedState().getByteOffset());
+    }
+
+    @Test
+    public void testAppendedEmptyLinesKeepLineNumbersOfLaterEdit() throws Exception {
+        Path file = write("app.log", "a\nb\n");
+        fileWatcherService.registerFileWatcher(subscription(1L, file));
+        for (String line : List.of("c\n", "\n", "d\n")) {
+            append(file, line);
+            fileWatcherService.onFileModified(file.toString());
+        }
+
+        Files.writeString(file, "A\nb\nc\n\nd\n", StandardOpenOption.TRUNCATE_EXISTING);
+        fileWatcherService.onFileModified(file.toString());
+
+        FileChange change = lastEnqueuedChanges().get(0);
+        assertEquals(ChangeType.EDITED, change.getChangeType());
+        assertEquals("[usunięto 1 linii od linii 1]\n[wstawiono 1 linii od linii 1]\nA", change.getContent());
+    }
+
+    @Test
+    public void testReconcilesOnlyChangedFilesAfterOverflow() throws Exception {
+        Path changed = write("changed.log", "a\n");
+        Path untouched = write("untouched.log", "b\n");
+        fileWatcherService.registerFileWatcher(subscription(1L, changed));
+        fileWatcherService.registerFileWatcher(subscription(2L, untouched));
+
+        append(changed, "utracone zdarzenie\n");
+        fileWatcherService.onEventsLost(List.of(changed.toString(), untouched.toString()));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<FileChange>> changesCaptor = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<FileTailState> stateCaptor = ArgumentCaptor.forClass(FileTailState.class);
+        verify(fileChangeWriter, times(1)).enqueue(changesCaptor.capture(), stateCaptor.capture(), anyLong());
+        assertEquals("utracone zdarzenie", changesCaptor.getValue().get(0).getContent());
+        assertEquals(changed.toString(), stateCaptor.getValue().getFilePath());
+        assertEquals(Files.size(changed), stateCaptor.getValue().getByteOffset());
+        assertEquals(1.0, meterRegistry.counter("filemonitoring.watcher.overflows").count());
+        assertEquals(19.0, meterRegistry.counter("filemonitoring.watcher.overflow.recovered.bytes").count());
+    }
+
+    @Test
+    public void testUnregisterReleasesLastWatcherOfFile() throws Exception {
+        Path file = write("app.log", "linia\n");
+        Subscription subscription = subscription(1L, file);
+        fileWatcherService.registerFileWatcher(subscription);
 
-        // Symuluj pobranie subskrypcji na podstawie jobId
-        when(subscriptionRepository.findByJobId(anyString())).thenReturn(Optional.of(subscription));
+        fileWatcherService.unregisterFileWatcher(subscription);
 
-        // Symuluj pobranie zmian w pliku
-        FileChange fileChange = new FileChange("testFilePath", "New content", LocalDateTime.now(), null);
-        List<FileChange> fileChanges = Collections.singletonList(fileChange);
-        when(fileChangeRepository.findByLastNotificationSentIsNull()).thenReturn(fileChanges);
+        verify(watchEngine).unregister(file.toString());
+        verify(subscriptionRepository).delete(subscription);
+        assertFalse(fileWatcherService.isRegistered(1L));
+    }
 
-        // Wywołaj metodę, która powinna wysłać email
-        fileWatcherService.sendPendingNotifications();
+    private List<FileChange> lastEnqueuedChanges() {
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<FileChange>> changesCaptor = ArgumentCaptor.forClass(List.class);
+        verify(fileChangeWriter, atLeastOnce()).enqueue(changesCaptor.capture(), any(), anyLong());
+        return changesCaptor.getValue();
+    }
 
-        // Zweryfikuj, czy metoda do wysyłania emaila została wywołana
-        verify(mailSender, times(1)).send(any(SimpleMailMessage.class));
+    private FileTailState lastEnqueuedState() {
+        ArgumentCaptor<FileTailState> stateCaptor = ArgumentCaptor.forClass(FileTailState.class);
+        verify(fileChangeWriter, atLeastOnce()).enqueue(any(), stateCaptor.capture(), anyLong());
+        return stateCaptor.getValue();
+    }
+
+    private Path write(String fileName, String content) throws Exception {
+        return Files.writeString(tempDir.resolve(fileName), content);
+    }
 
-        // Zweryfikuj, czy zmiana w pliku została oznaczona jako wysłana
-        verify(fileChangeRepository, times(1)).save(fileChangeCaptor.capture());
-        FileChange capturedFileChange = fileChangeCaptor.getValue();
-        assertNotNull(capturedFileChange.getLastNotificationSent());
+    private void append(Path file, String content) throws Exception {
+        Files.writeString(file, content, StandardOpenOption.APPEND);
+    }
+
+    private Subscription subscription(Long id, Path file) {
+        Subscription subscription = new Subscription();
+        subscription.setId(id);
+        subscription.setFilePath(file.toString());
+        subscription.setActive(true);
+        return subscription;
     }
 }
@@ -0,0 +1,100 @@
+package org.example.filemonitoringapi.fileWatcher;
+
+import org.example.filemonitoringapi.listener.LineDelta;
+import org.example.filemonitoringapi.listener.LineDiffEngine;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LineDiffEngineTest {
+
+    private final LineDiffEngine lineDiffEngine = new LineDiffEngine();
+
+    @Test
+    public void testAppendedLinesAreSingleInsertion() {
+        List<LineDelta> deltas = diff(List.of("a", "b"), List.of("a", "b", "c", "d"));
+
+        assertEquals(1, deltas.size());
+        assertDelta(deltas.get(0), LineDelta.Type.INSERTED, 2, 2);
+        assertEquals(List.of("c", "d"), deltas.get(0).getLines());
+    }
+
+    @Test
+    public void testInsertAndDeleteInTheMiddle() {
+        List<String> original = lines(100);
+        List<String> changed = new ArrayList<>(original);
+        changed.subList(20, 25).clear();
+        changed.addAll(60, List.of("nowa 1", "nowa 2"));
+
+        List<LineDelta> deltas = diff(original, changed);
+
+        assertEquals(2, deltas.size());
+        assertDelta(deltas.get(0), LineDelta.Type.DELETED, 20, 5);
+        assertDelta(deltas.get(1), LineDelta.Type.INSERTED, 60, 2);
+        assertEquals(List.of("nowa 1", "nowa 2"), deltas.get(1).getLines());
+    }
+
+    @Test
+    public void testEditedLineIsDeletionAndInsertion() {
+        List<String> original = lines(50);
+        List<String> changed = new ArrayList<>(original);
+        changed.set(30, "zmieniona");
+
+        List<LineDelta> deltas = diff(original, changed);
+
+        assertEquals(2, deltas.size());
+        assertDelta(deltas.get(0), LineDelta.Type.DELETED, 30, 1);
+        assertDelta(deltas.get(1), LineDelta.Type.INSERTED, 30, 1);
+        assertEquals(List.of("zmieniona"), deltas.get(1).getLines());
+    }
+
+    @Test
+    public void testRepeatedLinesDoNotProduceSpuriousChanges() {
+        List<String> original = new ArrayList<>();
+        IntStream.range(0, 40).forEach(i -> original.add(i % 2 == 0 ? "powtórzona" : "linia " + i));
+        List<String> changed = new ArrayList<>(original);
+        changed.add(10, "wstawiona");
+        changed.remove(31);
+
+        List<LineDelta> deltas = diff(original, changed);
+
+        int inserted = deltas.stream().filter(delta -> delta.getType() == LineDelta.Type.INSERTED)
+                .mapToInt(LineDelta::getLineCount).sum();
+        int deleted = deltas.stream().filter(delta -> delta.getType() == LineDelta.Type.DELETED)
+                .mapToInt(LineDelta::getLineCount).sum();
+        assertEquals(1, inserted);
+        assertEquals(1, deleted);
+    }
+
+    @Test
+    public void testTruncatedContentIsSingleDeletion() {
+        List<LineDelta> deltas = diff(lines(10), List.of());
+
+        assertEquals(1, deltas.size());
+        assertDelta(deltas.get(0), LineDelta.Type.DELETED, 0, 10);
+    }
+
+    @Test
+    public void testUnchangedContentHasNoDeltas() {
+        assertTrue(diff(lines(10), lines(10)).isEmpty());
+    }
+
+    private List<LineDelta> diff(List<String> original, List<String> changed) {
+        return lineDiffEngine.diff(lineDiffEngine.hashLines(original), changed);
+    }
+
+    private void assertDelta(LineDelta delta, LineDelta.Type type, int index, int lineCount) {
+        assertEquals(type, delta.getType());
+        assertEquals(index, type == LineDelta.Type.DELETED ? delta.getOldIndex() : delta.getNewIndex());
+        assertEquals(lineCount, delta.getLineCount());
+    }
+
+    private List<String> lines(int count) {
+        return IntStream.range(0, count).mapToObj(i -> "linia " + i).toList();
+    }
+}
@@ -0,0 +1,87 @@
+package org.example.filemonitoringapi.fileWatcher;
+
+import org.example.filemonitoringapi.config.FileMonitoringProperties;
+import org.example.filemonitoringapi.listener.ModificationCoalescer;
+import org.example.filemonitoringapi.listener.WatcherExecutors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ModificationCoalescerTest {
+
+    private FileMonitoringProperties properties;
+    private ThreadPoolTaskScheduler scheduler;
+    private WatcherExecutors watcherExecutors;
+    private ModificationCoalescer coalescer;
+
+    @BeforeEach
+    public void setUp() {
+        properties = new FileMonitoringProperties();
+        scheduler = new ThreadPoolTaskScheduler();
+        scheduler.initialize();
+        watcherExecutors = mock(WatcherExecutors.class);
+        when(watcherExecutors.getCoalesceScheduler()).thenReturn(scheduler);
+        when(watcherExecutors.getProcessingExecutor()).thenReturn(Runnable::run);
+        coalescer = new ModificationCoalescer(properties, watcherExecutors);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void testCoalescesEventsWithinWindow() throws Exception {
+        properties.getWatcher().setCoalesceWindow(Duration.ofMillis(200));
+        List<String> processed = new CopyOnWriteArrayList<>();
+        CountDownLatch firstRun = new CountDownLatch(1);
+
+        for (int i = 0; i < 5; i++) {
+            coalescer.submit("logs/app.log", filePath -> {
+                processed.add(filePath);
+                firstRun.countDown();
+            });
+        }
+        coalescer.submit("logs/other.log", processed::add);
+
+        assertTrue(processed.isEmpty());
+        assertTrue(firstRun.await(5, TimeUnit.SECONDS));
+        Thread.sleep(300);
+        assertEquals(1, processed.stream().filter("logs/app.log"::equals).count());
+        assertEquals(1, processed.stream().filter("logs/other.log"::equals).count());
+
+        CountDownLatch secondRun = new CountDownLatch(1);
+        coalescer.submit("logs/app.log", filePath -> {
+            processed.add(filePath);
+            secondRun.countDown();
+        });
+        assertTrue(secondRun.await(5, TimeUnit.SECONDS));
+        assertEquals(2, processed.stream().filter("logs/app.log"::equals).count());
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {0, -1})
+    public void testProcessesInlineWithoutWindow(long windowMillis) {
+        properties.getWatcher().setCoalesceWindow(Duration.ofMillis(windowMillis));
+        List<String> processingThreads = new CopyOnWriteArrayList<>();
+
+        coalescer.submit("logs/app.log", filePath -> processingThreads.add(Thread.currentThread().getName()));
+        coalescer.submit("logs/app.log", filePath -> processingThreads.add(Thread.currentThread().getName()));
+
+        assertEquals(List.of(Thread.currentThread().getName(), Thread.currentThread().getName()), processingThreads);
+        verify(watcherExecutors, never()).getCoalesceScheduler();
+        verify(watcherExecutors, never()).getProcessingExecutor();
+    }
+}
@@ -0,0 +1,95 @@
+package org.example.filemonitoringapi.fileWatcher;
+
+import org.example.filemonitoringapi.config.FileMonitoringProperties;
+import org.example.filemonitoringapi.listener.FileEventListener;
+import org.example.filemonitoringapi.listener.PollingWatchEngine;
+import org.example.filemonitoringapi.listener.WatcherExecutors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class PollingWatchEngineTest {
+    private static final Duration MIN_INTERVAL = Duration.ofMillis(10);
+    private static final Duration MAX_INTERVAL = Duration.ofMillis(80);
+
+    @TempDir
+    Path tempDir;
+
+    private Thread pollerThread;
+    private PollingWatchEngine pollingWatchEngine;
+
+    @BeforeEach
+    public void setUp() {
+        FileMonitoringProperties properties = new FileMonitoringProperties();
+        properties.getWatcher().getPolling().setMinInterval(MIN_INTERVAL);
+        properties.getWatcher().getPolling().setMaxInterval(MAX_INTERVAL);
+        WatcherExecutors watcherExecutors = mock(WatcherExecutors.class);
+        when(watcherExecutors.getPollerExecutor()).thenReturn(task -> {
+            pollerThread = new Thread(task, "file-watcher-test");
+            pollerThread.setDaemon(true);
+            pollerThread.start();
+        });
+        pollingWatchEngine = new PollingWatchEngine(properties, watcherExecutors);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        if (pollerThread != null) {
+            pollerThread.interrupt();
+            pollerThread.join(1000);
+        }
+    }
+
+    @Test
+    public void testIdleFileBacksOffToMaxIntervalAndChangeResetsIt() throws Exception {
+        Path file = Files.writeString(tempDir.resolve("app.log"), "linia\n");
+        String filePath = file.toString();
+        CompletableFuture<Duration> intervalOnChange = new CompletableFuture<>();
+        FileEventListener listener = mock(FileEventListener.class);
+        doAnswer(invocation -> intervalOnChange.complete(pollingWatchEngine.getPollInterval(filePath).orElseThrow()))
+                .when(listener).onFileModified(anyString());
+
+        assertTrue(pollingWatchEngine.register(filePath));
+        assertEquals(MIN_INTERVAL, pollingWatchEngine.getPollInterval(filePath).orElseThrow());
+        pollingWatchEngine.start(listener);
+
+        List<Duration> observed = new ArrayList<>();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        Duration interval = MIN_INTERVAL;
+        while (!interval.equals(MAX_INTERVAL) && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+            interval = pollingWatchEngine.getPollInterval(filePath).orElseThrow();
+            if (observed.isEmpty() || !observed.get(observed.size() - 1).equals(interval)) {
+                observed.add(interval);
+            }
+        }
+        assertEquals(MAX_INTERVAL, interval);
+        for (Duration step : observed) {
+            long multiple = step.toNanos() / MIN_INTERVAL.toNanos();
+            assertEquals(0, step.toNanos() % MIN_INTERVAL.toNanos());
+            assertEquals(1, Long.bitCount(multiple), "Interwał rośnie przez podwajanie: " + observed);
+        }
+        Thread.sleep(3 * MAX_INTERVAL.toMillis());
+        assertEquals(MAX_INTERVAL, pollingWatchEngine.getPollInterval(filePath).orElseThrow());
+        verify(listener, never()).onFileModified(anyString());
+
+        Files.writeString(file, "nowa linia\n", StandardOpenOption.APPEND);
+
+        assertEquals(MIN_INTERVAL, intervalOnChange.get(5, TimeUnit.SECONDS));
+        verify(listener, atLeastOnce()).onFileModified(filePath);
+    }
+}
@@ -0,0 +1,63 @@
+package org.example.filemonitoringapi.fileWatcher;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.filemonitoringapi.cluster.ClusterMembership;
+import org.example.filemonitoringapi.cluster.ClusterNodeRepository;
+import org.example.filemonitoringapi.cluster.ShardLeaseRepository;
+import org.example.filemonitoringapi.config.FileMonitoringProperties;
+import org.example.filemonitoringapi.exception.FileWatcherRegistrationException;
+import org.example.filemonitoringapi.file.TailStateCache;
+import org.example.filemonitoringapi.listener.FileWatcherService;
+import org.example.filemonitoringapi.listener.WatcherBootstrap;
+import org.example.filemonitoringapi.subscription.SubscriptionRepository;
+import org.example.filemonitoringapi.subscription.model.Subscription;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class WatcherBootstrapTest {
+
+    @Test
+    public void testRestoresActiveSubscriptionsPageByPage() throws FileWatcherRegistrationException {
+        SubscriptionRepository subscriptionRepository = mock(SubscriptionRepository.class);
+        FileWatcherService fileWatcherService = mock(FileWatcherService.class);
+        TailStateCache tailStateCache = mock(TailStateCache.class);
+        FileMonitoringProperties properties = new FileMonitoringProperties();
+        properties.getWatcher().getBootstrap().setPageSize(2);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        Subscription first = subscription(1L, "a.log");
+        Subscription second = subscription(2L, "b.log");
+        Subscription broken = subscription(5L, "missing.log");
+        when(subscriptionRepository.findActiveAfter(eq(0L), any())).thenReturn(List.of(first, second));
+        when(subscriptionRepository.findActiveAfter(eq(2L), any())).thenReturn(List.of(broken));
+        doThrow(new FileWatcherRegistrationException("brak pliku", null))
+                .when(fileWatcherService).registerFileWatcher(broken);
+
+        ClusterMembership singleNode = new ClusterMembership(mock(ClusterNodeRepository.class),
+                mock(ShardLeaseRepository.class), mock(ApplicationEventPublisher.class), properties);
+        new WatcherBootstrap(subscriptionRepository, fileWatcherService, tailStateCache, singleNode,
+                meterRegistry, properties).restoreWatchers();
+
+        verify(fileWatcherService).registerFileWatcher(first);
+        verify(fileWatcherService).registerFileWatcher(second);
+        verify(fileWatcherService).registerFileWatcher(broken);
+        verify(tailStateCache, times(2)).preload(any());
+        assertEquals(1.0, meterRegistry.counter("filemonitoring.watcher.bootstrap.failures").count());
+        assertEquals(1, meterRegistry.timer("filemonitoring.watcher.bootstrap.duration").count());
+    }
+
+    private Subscription subscription(Long id, String filePath) {
+        Subscription subscription = new Subscription();
+        subscription.setId(id);
+        subscription.setFilePath(filePath);
+        subscription.setActive(true);
+        return subscription;
+    }
+}
@@ -0,0 +1,26 @@
+package org.example.filemonitoringapi.notification;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class DigestBuilderTest {
+
+    @Test
+    public void testJoinsChangesWithNewLine() {
+        DigestBuilder digest = new DigestBuilder("Nagłówek:\n", 1000);
+        digest.append("a");
+        digest.append("b\nc");
+
+        assertEquals("Nagłówek:\na\nb\nc", digest.build());
+    }
+
+    @Test
+    public void testTruncatesAndCountsOmittedLines() {
+        DigestBuilder digest = new DigestBuilder("H:\n", 10);
+        digest.append("111\n222\n333");
+        digest.append("444\n555");
+
+        assertEquals("H:\n111\n222\n... (treść obcięta, pominięto jeszcze 3 linii)", digest.build());
+    }
+}
@@ -0,0 +1,126 @@
+package org.example.filemonitoringapi.notification;
+
+import org.example.filemonitoringapi.config.FileMonitoringProperties;
+import org.example.filemonitoringapi.email.EmailService;
+import org.example.filemonitoringapi.email.OutboxMessage;
+import org.example.filemonitoringapi.email.OutboxMessagesSentEvent;
+import org.example.filemonitoringapi.file.DatabaseChangeStore;
+import org.example.filemonitoringapi.file.FileChange;
+import org.example.filemonitoringapi.file.FileChangeRepository;
+import org.example.filemonitoringapi.subscription.SubscriptionRepository;
+import org.example.filemonitoringapi.subscription.model.Subscription;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.*;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class NotificationServiceTest {
+
+    @Mock
+    private SubscriptionRepository subscriptionRepository;
+
+    @Mock
+    private FileChangeRepository fileChangeRepository;
+
+    @Mock
+    private EmailService emailService;
+
+    private NotificationService notificationService;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        notificationService = new NotificationService(emailService, subscriptionRepository, fileChangeRepository,
+                new DatabaseChangeStore(), new FileMonitoringProperties());
+    }
+
+    @Test
+    public void testSendEmailOnFileChange() {
+        // Utwórz przykładową subskrypcję
+        Subscription subscription = new Subscription();
+        subscription.setFilePath("testFilePath");
+        subscription.setEmail("test@example.com");
+        subscription.setId(10L);
+        subscription.setActive(true);
+
+        // Symuluj pobranie zmian w pliku
+        FileChange fileChange = new FileChange("testFilePath", "New content", LocalDateTime.now(), null);
+        fileChange.setId(1L);
+        when(fileChangeRepository.findMaxPendingId("testFilePath")).thenReturn(Optional.of(1L));
+        when(fileChangeRepository.findPendingPage(eq("testFilePath"), eq(0L), eq(1L), any()))
+                .thenReturn(Collections.singletonList(fileChange));
+        when(emailService.sendNotification(anyString(), anyString(), anyString(), any(), any()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        // Wywołaj metodę, która powinna wysłać email
+        notificationService.deliver(List.of(subscription));
+
+        // Zweryfikuj, czy metoda do wysyłania emaila została wywołana
+        ArgumentCaptor<String> bodyCaptor = ArgumentCaptor.forClass(String.class);
+        verify(emailService, times(1)).sendNotification(eq("test@example.com"), anyString(), bodyCaptor.capture(),
+                eq(10L), eq(1L));
+        assertTrue(bodyCaptor.getValue().endsWith("New content"));
+
+        // Wiadomość jest dopiero w outboxie - kursor i zmiany czekają na jej wysłanie
+        verify(subscriptionRepository, never()).updateLastDeliveredChangeId(any(), any());
+        verify(fileChangeRepository, never()).markNotified(anyString(), any(), any());
+    }
+
+    @Test
+    public void testAdvancesCursorOnlyAfterMessageIsSent() {
+        Subscription subscription = new Subscription();
+        subscription.setId(10L);
+        subscription.setFilePath("testFilePath");
+        OutboxMessage sent = new OutboxMessage("test@example.com", "Temat", "Treść", LocalDateTime.now());
+        sent.setSubscriptionId(10L);
+        sent.setChangeId(5L);
+        when(subscriptionRepository.findAllById(Set.of(10L))).thenReturn(List.of(subscription));
+        when(subscriptionRepository.findMinDeliveredChangeId("testFilePath")).thenReturn(5L);
+
+        notificationService.onMessagesSent(new OutboxMessagesSentEvent(List.of(sent)));
+
+        verify(subscriptionRepository, times(1)).updateLastDeliveredChangeId(List.of(10L), 5L);
+        verify(fileChangeRepository, times(1)).markNotified(eq("testFilePath"), eq(5L), any());
+    }
+
+    @Test
+    public void testSkipsSubscriptionWhoseNotificationAwaitsDelivery() {
+        Subscription awaiting = new Subscription();
+        awaiting.setId(10L);
+        awaiting.setFilePath("testFilePath");
+        awaiting.setEmail("test@example.com");
+        awaiting.setActive(true);
+        when(fileChangeRepository.findMaxPendingId("testFilePath")).thenReturn(Optional.of(5L));
+        when(emailService.findSubscriptionsAwaitingDelivery(List.of(10L))).thenReturn(Set.of(10L));
+
+        notificationService.deliver(List.of(awaiting));
+
+        verify(emailService, never()).sendNotification(anyString(), anyString(), anyString(), any(), any());
+        assertNull(awaiting.getLastDeliveredChangeId());
+    }
+
+    @Test
+    public void testSkipsInactiveSubscriptions() {
+        Subscription subscription = new Subscription();
+        subscription.setFilePath("testFilePath");
+        subscription.setActive(false);
+
+        notificationService.deliver(List.of(subscription));
+
+        verify(fileChangeRepository, never()).findMaxPendingId(anyString());
+        verifyNoInteractions(emailService);
+    }
+}
@@ -0,0 +1,135 @@
+package org.example.filemonitoringapi.stream;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.filemonitoringapi.cluster.ClusterMembership;
+import org.example.filemonitoringapi.config.FileMonitoringProperties;
+import org.example.filemonitoringapi.file.DatabaseChangeStore;
+import org.example.filemonitoringapi.file.FileChange;
+import org.example.filemonitoringapi.file.FileChangeRepository;
+import org.example.filemonitoringapi.file.FileChangesPersistedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class ChangeStreamHubTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private ChangeStreamHub changeStreamHub;
+
+    @BeforeEach
+    public void setUp() {
+        FileMonitoringProperties properties = new FileMonitoringProperties();
+        properties.getStream().setClientBufferSize(2);
+        meterRegistry = new SimpleMeterRegistry();
+        // Wykonawca, który nie uruchamia zadań - klient nigdy nie odbiera zdarzeń.
+        ThreadPoolTaskExecutor stalledExecutor = mock(ThreadPoolTaskExecutor.class);
+        changeStreamHub = new ChangeStreamHub(mock(FileChangeRepository.class), new DatabaseChangeStore(),
+                stalledExecutor, mock(ClusterMembership.class), properties, meterRegistry);
+    }
+
+    @Test
+    public void testDisconnectsSlowConsumer() {
+        changeStreamHub.subscribe("logs/app.log", null);
+        changeStreamHub.subscribe("logs/other.log", null);
+
+        changeStreamHub.onChangesPersisted(new FileChangesPersistedEvent(List.of(change(1L), change(2L))));
+        assertEquals(1, changeStreamHub.getClientCount("logs/app.log"));
+
+        changeStreamHub.onChangesPersisted(new FileChangesPersistedEvent(List.of(change(3L))));
+        assertEquals(0, changeStreamHub.getClientCount("logs/app.log"));
+        assertEquals(1, changeStreamHub.getClientCount("logs/other.log"));
+        assertEquals(1.0, meterRegistry.counter("filemonitoring.stream.slow.consumers").count());
+    }
+
+    @Test
+    public void testPollsChangesOfFileOwnedByAnotherNode() {
+        FileMonitoringProperties properties = new FileMonitoringProperties();
+        properties.getCluster().setEnabled(true);
+        FileChangeRepository fileChangeRepository = mock(FileChangeRepository.class);
+        when(fileChangeRepository.findMaxId("logs/app.log")).thenReturn(Optional.of(5L));
+        when(fileChangeRepository.findByFilePathAfterId(eq("logs/app.log"), eq(5L), any())).thenReturn(List.of(change(6L)));
+        ThreadPoolTaskExecutor inlineExecutor = mock(ThreadPoolTaskExecutor.class);
+        doAnswer(invocation -> {
+            invocation.getArgument(0, Runnable.class).run();
+            return null;
+        }).when(inlineExecutor).execute(any(Runnable.class));
+        ChangeStreamHub hub = new ChangeStreamHub(fileChangeRepository, new DatabaseChangeStore(), inlineExecutor,
+                mock(ClusterMembership.class), properties, meterRegistry);
+
+        hub.subscribe("logs/app.log", null);
+        hub.pollRemoteChanges();
+        hub.pollRemoteChanges();
+
+        verify(fileChangeRepository).findByFilePathAfterId(eq("logs/app.log"), eq(5L), any());
+        verify(fileChangeRepository).findByFilePathAfterId(eq("logs/app.log"), eq(6L), any());
+    }
+
+    @Test
+    public void testLiveEventsDuringReplayDoNotOverflowClientBuffer() {
+        FileMonitoringProperties properties = new FileMonitoringProperties();
+        properties.getStream().setClientBufferSize(2);
+        properties.getStream().setReplayPageSize(2);
+        FileChangeRepository fileChangeRepository = mock(FileChangeRepository.class);
+        when(fileChangeRepository.findByFilePathAfterId(eq("logs/app.log"), eq(0L), any())).thenReturn(List.of(change(1L), change(2L)));
+        when(fileChangeRepository.findByFilePathAfterId(eq("logs/app.log"), eq(2L), any())).thenReturn(List.of(change(3L)));
+        Deque<Runnable> tasks = new ArrayDeque<>();
+        ChangeStreamHub hub = new ChangeStreamHub(fileChangeRepository, new DatabaseChangeStore(), queueingExecutor(tasks),
+                mock(ClusterMembership.class), properties, meterRegistry);
+
+        hub.subscribe("logs/app.log", 0L);
+        hub.onChangesPersisted(new FileChangesPersistedEvent(List.of(change(1L), change(2L), change(3L))));
+        while (!tasks.isEmpty()) {
+            tasks.poll().run();
+        }
+
+        assertEquals(1, hub.getClientCount("logs/app.log"));
+        assertEquals(0.0, meterRegistry.counter("filemonitoring.stream.slow.consumers").count());
+        // Zdarzenia pominięte w trakcie powtórki są doczytywane z bazy po jej wyłączeniu.
+        verify(fileChangeRepository).findByFilePathAfterId(eq("logs/app.log"), eq(3L), any());
+    }
+
+    @Test
+    public void testClientYieldsThreadAfterMaxEventsPerTurn() {
+        FileMonitoringProperties properties = new FileMonitoringProperties();
+        properties.getStream().setMaxEventsPerTurn(1);
+        Deque<Runnable> tasks = new ArrayDeque<>();
+        ChangeStreamHub hub = new ChangeStreamHub(mock(FileChangeRepository.class), new DatabaseChangeStore(),
+                queueingExecutor(tasks), mock(ClusterMembership.class), properties, meterRegistry);
+        hub.subscribe("logs/app.log", null);
+        tasks.poll().run();
+
+        hub.onChangesPersisted(new FileChangesPersistedEvent(List.of(change(1L), change(2L), change(3L))));
+        int turns = 0;
+        while (!tasks.isEmpty()) {
+            tasks.poll().run();
+            turns++;
+        }
+
+        assertEquals(3, turns);
+        assertEquals(1, hub.getClientCount("logs/app.log"));
+    }
+
+    private ThreadPoolTaskExecutor queueingExecutor(Deque<Runnable> tasks) {
+        ThreadPoolTaskExecutor executor = mock(ThreadPoolTaskExecutor.class);
+        doAnswer(invocation -> tasks.add(invocation.getArgument(0, Runnable.class)))
+                .when(executor).execute(any(Runnable.class));
+        return executor;
+    }
+
+    private FileChange change(Long id) {
+        FileChange change = new FileChange("logs/app.log", "linia " + id, LocalDateTime.now(), null);
+        change.setId(id);
+        return change;
+    }
+}
@@ -85,6 +85,60 @@ public class SubscriptionControllerTest {
                 .andExpect(content().string("Wewnętrzny błąd serwera."));
     }
 
+    @Test
+    @WithMockUser
+    public void testFollowFilesReportsEachItem() throws Exception {
+        CreateSubscriptionCommand existing = new CreateSubscriptionCommand();
+        existing.setFilePath("src/main/resources/zakupy.txt");
+        existing.setEmail("test@example.com");
+        CreateSubscriptionCommand missing = new CreateSubscriptionCommand();
+        missing.setFilePath("/nonexistent/file.txt");
+        missing.setEmail("test@example.com");
+        CreateSubscriptionCommand invalid = new CreateSubscriptionCommand();
+        invalid.setFilePath("src/main/resources/zakupy.txt");
+        invalid.setEmail("niepoprawny");
+
+        mockMvc.perform(post("/api/subscriptions/follow/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(existing, missing, invalid))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].success").value(true))
+                .andExpect(jsonPath("$[0].subscription.active").value(true))
+                .andExpect(jsonPath("$[1].success").value(false))
+                .andExpect(jsonPath("$[1].filePath").value("/nonexistent/file.txt"))
+                .andExpect(jsonPath("$[2].success").value(false))
+                .andExpect(jsonPath("$[2].error").value("Nieprawidłowy format adresu email"));
+
+        List<Subscription> subscriptions = subscriptionRepository.findAll();
+        assertEquals(1, subscriptions.size());
+        assertEquals("src/main/resources/zakupy.txt", subscriptions.get(0).getFilePath());
+    }
+
+    @Test
+    public void testUnfollowFilesReportsUnknownJobId() throws Exception {
+        Subscription subscription = new Subscription();
+        subscription.setFilePath("src/main/resources/zakupy.txt");
+        subscription.setEmail("test@example.com");
+        subscription.setActive(true);
+        subscription.setJobId(UUID.randomUUID().toString());
+        Subscription savedSubscription = subscriptionRepository.save(subscription);
+
+        mockMvc.perform(get("/api/subscriptions/{jobId}/status", savedSubscription.getJobId()))
+                .andExpect(status().isOk());
+        mockMvc.perform(delete("/api/subscriptions/unfollow/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(savedSubscription.getJobId(), "brak"))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].success").value(true))
+                .andExpect(jsonPath("$[1].success").value(false))
+                .andExpect(jsonPath("$[1].jobId").value("brak"));
+
+        assertFalse(subscriptionRepository.findByJobId(savedSubscription.getJobId()).isPresent());
+        mockMvc.perform(get("/api/subscriptions/{jobId}/status", savedSubscription.getJobId()))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     public void testUnfollowFile() throws Exception {
         Subscription subscription = new Subscription();
@@ -117,6 +171,25 @@ public class SubscriptionControllerTest {
                 .andExpect(content().string("true"));
     }
 
+    @Test
+    public void testGetSubscriptionStatusIsEvictedOnUnfollow() throws Exception {
+        Subscription subscription = new Subscription();
+        subscription.setFilePath("src/main/resources/zakupy.txt");
+        subscription.setEmail("test@example.com");
+        subscription.setActive(true);
+        subscription.setJobId(UUID.randomUUID().toString());
+
+        Subscription savedSubscription = subscriptionRepository.save(subscription);
+
+        mockMvc.perform(get("/api/subscriptions/{jobId}/status", savedSubscription.getJobId()))
+                .andExpect(status().isOk())
+                .andExpect(content().string("true"));
+        mockMvc.perform(delete("/api/subscriptions/{jobId}/unfollow", savedSubscription.getJobId()))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/subscriptions/{jobId}/status", savedSubscription.getJobId()))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     public void testGetAllSubscriptions() throws Exception {
         Subscription subscription1 = new Subscription();
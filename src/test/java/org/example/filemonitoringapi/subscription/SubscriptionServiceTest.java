@@ -1,18 +1,25 @@
 package org.example.filemonitoringapi.subscription;
 
+import jakarta.validation.Validator;
+import org.example.filemonitoringapi.config.FileMonitoringProperties;
 import org.example.filemonitoringapi.exception.FileWatcherRegistrationException;
+import org.example.filemonitoringapi.exception.SubscriptionCreationException;
 import org.example.filemonitoringapi.exception.SubscriptionNotFoundException;
+import org.example.filemonitoringapi.listener.FilePathCanonicalizer;
 import org.example.filemonitoringapi.listener.FileWatcherService;
+import org.example.filemonitoringapi.listener.WatcherExecutors;
+import org.example.filemonitoringapi.notification.DeliveryScheduler;
 import org.example.filemonitoringapi.subscription.model.CreateSubscriptionCommand;
 import org.example.filemonitoringapi.subscription.model.Subscription;
+import org.example.filemonitoringapi.subscription.model.SubscriptionBatchResult;
 import org.example.filemonitoringapi.subscription.model.SubscriptionDto;
 import org.example.filemonitoringapi.subscription.model.SubscriptionMapper;
-import org.junit.Test;
-import org.junit.jupiter.api.BeforeEach;
-import org.junit.runner.RunWith;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
-import org.mockito.junit.MockitoJUnitRunner;
-import org.springframework.boot.test.context.SpringBootTest;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
@@ -21,14 +28,13 @@ import org.springframework.data.domain.Pageable;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
-import static org.junit.Assert.assertTrue;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
-@SpringBootTest
-@RunWith(MockitoJUnitRunner.class)
+@ExtendWith(MockitoExtension.class)
 public class SubscriptionServiceTest {
 
     @Mock
@@ -40,12 +46,32 @@ public class SubscriptionServiceTest {
     @Mock
     private SubscriptionMapper subscriptionMapper;
 
+    @Mock
+    private DeliveryScheduler deliveryScheduler;
+
+    @Mock
+    private FilePathCanonicalizer filePathCanonicalizer;
+
+    @Mock
+    private CacheManager cacheManager;
+
+    @Mock
+    private Cache statusCache;
+
+    @Mock
+    private WatcherExecutors watcherExecutors;
+
+    @Mock
+    private Validator validator;
+
+    @Spy
+    private FileMonitoringProperties properties = new FileMonitoringProperties();
+
     @InjectMocks
     private SubscriptionService subscriptionService;
 
     @Captor
     private ArgumentCaptor<Subscription> subscriptionCaptor;
-
     @Test
     public void testCreateSubscription() throws FileWatcherRegistrationException {
         CreateSubscriptionCommand command = new CreateSubscriptionCommand();
@@ -68,6 +94,23 @@ public class SubscriptionServiceTest {
 
     }
 
+    @Test
+    public void testCreateSubscriptionRemovesSubscriptionWithFailedWatcher() throws Exception {
+        CreateSubscriptionCommand command = command("logs/missing.log");
+        Subscription subscription = new Subscription();
+        subscription.setFilePath(command.getFilePath());
+        when(subscriptionMapper.fromCreateCommand(command)).thenReturn(subscription);
+        doThrow(new FileWatcherRegistrationException("brak pliku", null)).when(fileWatcherService).registerFileWatcher(subscription);
+
+        assertThrows(SubscriptionCreationException.class, () -> subscriptionService.createSubscription(command));
+
+        InOrder inOrder = inOrder(subscriptionRepository, fileWatcherService);
+        inOrder.verify(subscriptionRepository).save(subscription);
+        inOrder.verify(fileWatcherService).registerFileWatcher(subscription);
+        inOrder.verify(subscriptionRepository).delete(subscription);
+        verify(deliveryScheduler, never()).schedule(subscription);
+    }
+
     @Test
     public void testCancelSubscription() {
         String jobId = "testJobId";
@@ -86,6 +129,51 @@ public class SubscriptionServiceTest {
         assertTrue(result);
     }
 
+    @Test
+    public void testCancelSubscriptions() {
+        Subscription subscription = new Subscription();
+        subscription.setId(7L);
+        subscription.setJobId("testJobId");
+        when(subscriptionRepository.findByJobIdIn(anyCollection())).thenReturn(List.of(subscription));
+        when(cacheManager.getCache(SubscriptionService.STATUS_CACHE)).thenReturn(statusCache);
+
+        List<SubscriptionBatchResult> results = subscriptionService.cancelSubscriptions(List.of("testJobId", "unknownJobId"));
+
+        assertEquals(2, results.size());
+        assertTrue(results.get(0).isSuccess());
+        assertFalse(results.get(1).isSuccess());
+        assertEquals("unknownJobId", results.get(1).getJobId());
+        verify(fileWatcherService, times(1)).releaseFileWatcher(subscription, false);
+        verify(deliveryScheduler, times(1)).unschedule(subscription);
+        verify(subscriptionRepository, times(1)).deleteAllByIdInBatch(List.of(7L));
+        verify(statusCache, times(1)).evict("testJobId");
+    }
+
+    @Test
+    public void testCreateSubscriptionsRemovesSubscriptionWithFailedWatcher() throws Exception {
+        Subscription watched = new Subscription();
+        watched.setFilePath("logs/app.log");
+        Subscription unwatched = new Subscription();
+        unwatched.setFilePath("logs/missing.log");
+        CreateSubscriptionCommand watchedCommand = command(watched.getFilePath());
+        CreateSubscriptionCommand unwatchedCommand = command(unwatched.getFilePath());
+        when(subscriptionMapper.fromCreateCommand(watchedCommand)).thenReturn(watched);
+        when(subscriptionMapper.fromCreateCommand(unwatchedCommand)).thenReturn(unwatched);
+        when(filePathCanonicalizer.canonicalize(anyString())).then(invocation -> invocation.getArgument(0));
+        when(validator.validate(any(CreateSubscriptionCommand.class))).thenReturn(Set.of());
+        when(watcherExecutors.getProcessingExecutor()).thenReturn(Runnable::run);
+        lenient().doThrow(new FileWatcherRegistrationException("brak pliku", null)).when(fileWatcherService).registerFileWatcher(unwatched);
+
+        List<SubscriptionBatchResult> results = subscriptionService.createSubscriptions(List.of(watchedCommand, unwatchedCommand));
+
+        assertTrue(results.get(0).isSuccess());
+        assertFalse(results.get(1).isSuccess());
+        assertEquals("brak pliku", results.get(1).getError());
+        verify(deliveryScheduler, times(1)).schedule(watched);
+        verify(deliveryScheduler, never()).schedule(unwatched);
+        verify(subscriptionRepository, times(1)).delete(unwatched);
+    }
+
     @Test
     public void testGetSubscriptionByJobId() {
         String jobId = "testJobId";
@@ -170,29 +258,26 @@ public class SubscriptionServiceTest {
     @Test
     public void testGetSubscriptionStatusByJobId_AktywnaSubskrypcja() {
         String jobId = UUID.randomUUID().toString();
-        Subscription subscription = new Subscription();
-        subscription.setJobId(jobId);
-        subscription.setActive(true);
-
-        when(subscriptionRepository.findByJobId(jobId)).thenReturn(Optional.of(subscription));
+        when(subscriptionRepository.findActiveByJobId(jobId)).thenReturn(Optional.of(true));
 
         boolean status = subscriptionService.getSubscriptionStatusByJobId(jobId);
 
-        assertTrue("Status powinien być prawdziwy dla aktywnej subskrypcji", status);
-        verify(subscriptionRepository, times(1)).findByJobId(jobId);
+        assertTrue(status, "Status powinien być prawdziwy dla aktywnej subskrypcji");
+        verify(subscriptionRepository, times(1)).findActiveByJobId(jobId);
+        verify(subscriptionRepository, never()).findByJobId(jobId);
     }
 
     @Test
     public void testGetSubscriptionStatusByJobId_NieistniejącaSubskrypcja() {
         String jobId = UUID.randomUUID().toString();
 
-        when(subscriptionRepository.findByJobId(jobId)).thenReturn(Optional.empty());
+        when(subscriptionRepository.findActiveByJobId(jobId)).thenReturn(Optional.empty());
 
         assertThrows(SubscriptionNotFoundException.class,
                 () -> subscriptionService.getSubscriptionStatusByJobId(jobId),
                 "Oczekiwano zgłoszenia SubscriptionNotFoundException dla nieistniejącej subskrypcji");
 
-        verify(subscriptionRepository, times(1)).findByJobId(jobId);
+        verify(subscriptionRepository, times(1)).findActiveByJobId(jobId);
     }
 
 
@@ -200,13 +285,13 @@ public class SubscriptionServiceTest {
     public void testGetSubscriptionStatusByJobId_NonExistingSubscription() {
         String jobId = UUID.randomUUID().toString();
 
-        when(subscriptionRepository.findByJobId(jobId)).thenReturn(Optional.empty());
+        when(subscriptionRepository.findActiveByJobId(jobId)).thenReturn(Optional.empty());
 
         assertThrows(SubscriptionNotFoundException.class,
                 () -> subscriptionService.getSubscriptionStatusByJobId(jobId),
                 "Expected SubscriptionNotFoundException to be thrown for non-existing subscription");
 
-        verify(subscriptionRepository, times(1)).findByJobId(jobId);
+        verify(subscriptionRepository, times(1)).findActiveByJobId(jobId);
     }
 
     @Test
@@ -238,6 +323,11 @@ public class SubscriptionServiceTest {
 
         assertThrows(NullPointerException.class, () -> subscriptionService.createSubscription(command));
     }
-}
-
 
+    private CreateSubscriptionCommand command(String filePath) {
+        return CreateSubscriptionCommand.builder()
+                .filePath(filePath)
+                .email("test@example.com")
+                .build();
+    }
+}